@@ -0,0 +1,46 @@
+package com.finrating.benchmarks;
+
+import com.finrating.entity.Dataset;
+import com.finrating.service.FinancialRecordParser;
+import com.opencsv.CSVReader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/** CSV row path as run by the consumer: {@link CSVReader} followed by the record parser. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvParsingBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private final FinancialRecordParser parser = new FinancialRecordParser();
+    private final Dataset dataset = new Dataset();
+    private String csv;
+
+    @Setup
+    public void setUp() throws Exception {
+        StringWriter writer = new StringWriter();
+        new SyntheticData().writeCsv(writer, ROWS);
+        csv = writer.toString();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void parseRows(Blackhole blackhole) throws Exception {
+        try (CSVReader reader = new CSVReader(new StringReader(csv))) {
+            reader.readNext(); // skip header
+            String[] line;
+            while ((line = reader.readNext()) != null) {
+                blackhole.consume(parser.parseRecordFromArray(line, dataset));
+            }
+        }
+    }
+}
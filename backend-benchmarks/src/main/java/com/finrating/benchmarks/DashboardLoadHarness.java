@@ -0,0 +1,246 @@
+package com.finrating.benchmarks;
+
+import com.finrating.FinancialRatingApplication;
+import com.finrating.entity.User;
+import com.finrating.repository.UserRepository;
+import com.finrating.security.AuthenticatedUser;
+import com.finrating.security.JwtService;
+import com.finrating.service.RecordStreamService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.*;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrent dashboard reads over HTTP against the Boot app, once with platform
+ * request threads and once with {@code spring.threads.virtual.enabled}, to compare
+ * throughput and p50/p99 latency. Each mode starts its own application on an
+ * in-memory H2 database (PostgreSQL mode), seeds {@code --datasets} datasets through
+ * {@link RecordStreamService}, then keeps {@code --concurrency} requests in flight
+ * until {@code --requests} have completed, after {@code --warmup-requests} that are
+ * not measured. Requests carry a JWT of the seeded user, so authentication is on
+ * the measured path too. With {@code --concurrency} above Tomcat's 200 platform
+ * threads, the platform mode queues requests that the virtual mode runs at once;
+ * both modes still share the read pool of {@code --read-pool-size} connections.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.finrating.benchmarks.DashboardLoadHarness \
+ *      --virtual-threads=both --endpoint=records --concurrency=400 --requests=20000
+ * </pre>
+ */
+public class DashboardLoadHarness {
+
+    private static final Map<String, String> ENDPOINTS = Map.of(
+            "records", "/api/dashboard/records?page=0&size=20",
+            "summary", "/api/dashboard/summary"
+    );
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        String virtualThreads = options.getOrDefault("virtual-threads", "both");
+        String endpoint = options.getOrDefault("endpoint", "records");
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "400"));
+        int requests = Integer.parseInt(options.getOrDefault("requests", "20000"));
+        int warmupRequests = Integer.parseInt(options.getOrDefault("warmup-requests", "2000"));
+        long rows = Long.parseLong(options.getOrDefault("rows", "20000"));
+        int datasets = Integer.parseInt(options.getOrDefault("datasets", "4"));
+        int readPoolSize = Integer.parseInt(options.getOrDefault("read-pool-size", "10"));
+
+        List<Boolean> modes = switch (virtualThreads) {
+            case "true" -> List.of(true);
+            case "false" -> List.of(false);
+            case "both" -> List.of(false, true);
+            default -> throw new IllegalArgumentException("--virtual-threads must be true, false or both");
+        };
+        if (!ENDPOINTS.containsKey(endpoint)) {
+            throw new IllegalArgumentException("--endpoint must be one of " + ENDPOINTS.keySet());
+        }
+        if (concurrency < 1 || requests < 1 || datasets < 1 || rows < datasets) {
+            throw new IllegalArgumentException("--concurrency, --requests and --datasets must be positive, --rows at least --datasets");
+        }
+
+        Path workDir = Files.createTempDirectory("finrating-dashboard-load");
+        Path input = workDir.resolve("dataset.ndjson");
+        try (Writer writer = Files.newBufferedWriter(input, StandardCharsets.UTF_8)) {
+            new SyntheticData(SyntheticData.DEFAULT_SEED, 50_000).writeNdjson(writer, rows / datasets, 0);
+        }
+
+        List<Report> reports = new ArrayList<>();
+        for (boolean virtual : modes) {
+            try (ConfigurableApplicationContext context = startApplication(virtual, workDir.resolve("uploads"), readPoolSize)) {
+                String token = seed(context, input, datasets);
+                URI uri = URI.create("http://localhost:"
+                        + ((WebServerApplicationContext) context).getWebServer().getPort() + ENDPOINTS.get(endpoint));
+
+                load(uri, token, concurrency, warmupRequests);
+                Report report = load(uri, token, concurrency, requests).named(virtual ? "virtual" : "platform");
+                report.print();
+                reports.add(report);
+            }
+        }
+
+        if (reports.size() > 1) {
+            System.out.println("=== COMPARISON ===");
+            System.out.printf("%-10s %12s %10s %10s %8s%n", "Threads", "Requests/s", "p50 ms", "p99 ms", "Errors");
+            for (Report report : reports) {
+                System.out.printf("%-10s %,12.0f %10.1f %10.1f %8d%n", report.mode(), report.requestsPerSecond(),
+                        report.p50Millis(), report.p99Millis(), report.errors());
+            }
+        }
+    }
+
+    /* ===================== LOAD ===================== */
+
+    /** Keeps {@code concurrency} requests in flight until {@code requests} have completed. */
+    private static Report load(URI uri, String token, int concurrency, int requests) throws InterruptedException {
+        if (requests == 0) return null;
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+
+        long start = System.nanoTime();
+        // Client threads are virtual in both modes, so only the server side changes
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < Math.min(concurrency, requests); c++) {
+                clients.execute(() -> {
+                    for (int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) errors.incrementAndGet();
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        latencies[i] = System.nanoTime() - sent;
+                    }
+                });
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        client.close();
+
+        Arrays.sort(latencies);
+        return new Report(null, requests, errors.get(), elapsed,
+                percentile(latencies, 0.50), percentile(latencies, 0.99));
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    /* ===================== SETUP ===================== */
+
+    /** Creates the user and its datasets; returns a token for the user. */
+    private static String seed(ConfigurableApplicationContext context, Path input, int datasets) throws IOException {
+        User user = context.getBean(UserRepository.class).save(User.builder()
+                .email("dashboard-load@example.com")
+                .password("unused")
+                .role(User.Role.USER)
+                .build());
+        AuthenticatedUser principal = AuthenticatedUser.from(user);
+
+        RecordStreamService streamService = context.getBean(RecordStreamService.class);
+        for (int d = 0; d < datasets; d++) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(input))) {
+                streamService.ingestIntoNewDataset("dataset-" + d + ".ndjson", in, Files.size(input), principal);
+            }
+        }
+        return context.getBean(JwtService.class).generateToken(user);
+    }
+
+    private static ConfigurableApplicationContext startApplication(boolean virtualThreads, Path uploadDir,
+                                                                   int readPoolSize) {
+        // Passed as command-line arguments so they override application.yml
+        return new SpringApplicationBuilder(FinancialRatingApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        // A database per mode, so the second run does not read the first one's rows
+                        "--spring.datasource.url=jdbc:h2:mem:dashboard-" + virtualThreads + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=create",
+                        "--spring.sql.init.mode=never",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        // Datasets are seeded synchronously; nothing is dispatched to a broker
+                        "--spring.kafka.bootstrap-servers=localhost:1",
+                        "--app.dispatch.backend=jobqueue",
+                        "--app.upload.dir=" + uploadDir,
+                        "--app.datasource.read.pool-size=" + readPoolSize,
+                        "--logging.level.com.finrating=WARN",
+                        "--logging.level.org.springframework.security=WARN",
+                        "--logging.level.org.apache.kafka=WARN"
+                );
+    }
+
+    /* ===================== OPTIONS ===================== */
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    /* ===================== REPORT ===================== */
+
+    private record Report(String mode, int requests, int errors, long elapsedNanos, long p50Nanos, long p99Nanos) {
+
+        Report named(String mode) {
+            return new Report(mode, requests, errors, elapsedNanos, p50Nanos, p99Nanos);
+        }
+
+        double requestsPerSecond() {
+            return requests / (elapsedNanos / 1_000_000_000.0);
+        }
+
+        double p50Millis() {
+            return p50Nanos / 1_000_000.0;
+        }
+
+        double p99Millis() {
+            return p99Nanos / 1_000_000.0;
+        }
+
+        void print() {
+            System.out.println("=== DASHBOARD LOAD REPORT ===");
+            System.out.printf("Request threads:    %s%n", mode);
+            System.out.printf("Requests:           %,d (%,d errors)%n", requests, errors);
+            System.out.printf("Elapsed:            %.2f s%n", elapsedNanos / 1_000_000_000.0);
+            System.out.printf("Throughput:         %,.0f requests/s%n", requestsPerSecond());
+            System.out.printf("Latency p50 / p99:  %.1f / %.1f ms%n", p50Millis(), p99Millis());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.finrating.benchmarks;
+
+import com.finrating.entity.Dataset;
+import com.finrating.service.FinancialRecordParser;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Excel row path: {@link FinancialRecordParser#parseRecordFromRow} over an in-memory sheet.
+ * Workbook loading is excluded so the number isolates per-row cost.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExcelParsingBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private final FinancialRecordParser parser = new FinancialRecordParser();
+    private final Dataset dataset = new Dataset();
+    private XSSFWorkbook workbook;
+    private Sheet sheet;
+
+    @Setup
+    public void setUp() {
+        workbook = new XSSFWorkbook();
+        new SyntheticData().fillSheet(workbook, ROWS);
+        sheet = workbook.getSheetAt(0);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        workbook.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void parseRows(Blackhole blackhole) {
+        for (int i = 1; i <= sheet.getLastRowNum(); i++) {
+            Row row = sheet.getRow(i);
+            if (row == null) continue;
+            blackhole.consume(parser.parseRecordFromRow(row, dataset));
+        }
+    }
+}
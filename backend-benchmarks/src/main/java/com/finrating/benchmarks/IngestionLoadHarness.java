@@ -0,0 +1,462 @@
+package com.finrating.benchmarks;
+
+import com.finrating.FinancialRatingApplication;
+import com.finrating.dto.AlertRuleRequest;
+import com.finrating.dto.BatchStatusResponse;
+import com.finrating.dto.DatasetUploadResponse;
+import com.finrating.dto.RejectedRowFix;
+import com.finrating.dto.RejectedRowResponse;
+import com.finrating.entity.Dataset;
+import com.finrating.entity.User;
+import com.finrating.repository.AlertRepository;
+import com.finrating.repository.DatasetRepository;
+import com.finrating.repository.UserRepository;
+import com.finrating.security.AuthenticatedUser;
+import com.finrating.service.AlertService;
+import com.finrating.service.DatasetService;
+import com.finrating.service.RecordStreamService;
+import com.github.luben.zstd.ZstdOutputStream;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * End-to-end ingestion run, fully offline: synthetic file →
+ * {@link DatasetService#uploadDataset} → embedded Kafka → {@code KafkaConsumerService}
+ * → in-memory H2 (PostgreSQL mode). Reports throughput, peak heap and time to
+ * COMPLETED, and exits non-zero when {@code --min-rows-per-sec} is not met so it
+ * can gate a CI job. {@code --format=ndjson} posts the file through
+ * {@link RecordStreamService} instead, which ingests synchronously.
+ * {@code --alert-rules=N} gives the uploading user N alert rules first, to measure
+ * rule evaluation during ingestion. {@code --batch=adaptive} lets
+ * {@code AdaptiveBatchSize} tune the worker's write batch instead of pinning it at 500 rows.
+ * {@code --dispatch=jobqueue} hands datasets to the worker through the
+ * {@code ingestion_jobs} table instead of Kafka, and starts no broker.
+ * {@code --append-resubmit=true} (ndjson with {@code --invalid-every}) then appends
+ * the same stream to the dataset and resubmits every rejected row corrected, and
+ * fails unless the dataset ends up COMPLETED.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.finrating.benchmarks.IngestionLoadHarness \
+ *      --rows=1000000 --format=csv --min-rows-per-sec=20000
+ * </pre>
+ */
+public class IngestionLoadHarness {
+
+    /** Rows per sheet allowed by the XLSX format, excluding the header. */
+    private static final int XLSX_MAX_ROWS = 1_048_575;
+
+    private static final List<String> CSV_FORMATS = List.of("csv", "csv.gz", "csv.zst", "zip");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        long rows = Long.parseLong(options.getOrDefault("rows", "10000"));
+        String format = options.getOrDefault("format", "csv").toLowerCase();
+        long seed = Long.parseLong(options.getOrDefault("seed", String.valueOf(SyntheticData.DEFAULT_SEED)));
+        double minRowsPerSec = Double.parseDouble(options.getOrDefault("min-rows-per-sec", "0"));
+        long timeoutSeconds = Long.parseLong(options.getOrDefault("timeout-seconds", "3600"));
+        long invalidEvery = Long.parseLong(options.getOrDefault("invalid-every", "0"));
+        int batchFiles = Integer.parseInt(options.getOrDefault("batch-files", "0"));
+        int alertRules = Integer.parseInt(options.getOrDefault("alert-rules", "0"));
+        String batchMode = options.getOrDefault("batch", "fixed");
+        String dispatch = options.getOrDefault("dispatch", "kafka");
+        boolean appendResubmit = Boolean.parseBoolean(options.getOrDefault("append-resubmit", "false"));
+
+        if (!CSV_FORMATS.contains(format) && !format.equals("xlsx") && !format.equals("ndjson")) {
+            throw new IllegalArgumentException("Unsupported format: " + format);
+        }
+        if (invalidEvery > 0 && format.equals("xlsx")) {
+            throw new IllegalArgumentException("--invalid-every is only supported for CSV formats");
+        }
+        if (batchFiles > 0 && !format.equals("csv")) {
+            throw new IllegalArgumentException("--batch-files is only supported for csv");
+        }
+        if (!batchMode.equals("adaptive") && !batchMode.equals("fixed")) {
+            throw new IllegalArgumentException("--batch must be adaptive or fixed");
+        }
+        if (!dispatch.equals("kafka") && !dispatch.equals("jobqueue")) {
+            throw new IllegalArgumentException("--dispatch must be kafka or jobqueue");
+        }
+        if (appendResubmit && (!format.equals("ndjson") || invalidEvery <= 0)) {
+            throw new IllegalArgumentException("--append-resubmit needs --format=ndjson and --invalid-every");
+        }
+        if (format.equals("xlsx") && rows > XLSX_MAX_ROWS) {
+            throw new IllegalArgumentException("XLSX supports at most " + XLSX_MAX_ROWS + " rows per sheet");
+        }
+
+        Path workDir = Files.createTempDirectory("finrating-load");
+        Path input = batchFiles > 0
+                ? workDir.resolve("synthetic-batch-" + rows + ".zip")
+                : workDir.resolve("synthetic-" + rows + "." + format);
+
+        long generateStart = System.nanoTime();
+        if (batchFiles > 0) {
+            generateBatch(input, rows, batchFiles, seed, invalidEvery);
+        } else {
+            generate(input, format, rows, seed, invalidEvery);
+        }
+        System.out.printf("Generated %,d rows (%,d bytes) in %.1f s%n",
+                rows, Files.size(input), seconds(System.nanoTime() - generateStart));
+
+        EmbeddedKafkaKraftBroker kafka = null;
+        if (dispatch.equals("kafka")) {
+            kafka = new EmbeddedKafkaKraftBroker(1, 1);
+            kafka.afterPropertiesSet();
+        }
+
+        try (ConfigurableApplicationContext context = startApplication(kafka, dispatch, workDir.resolve("uploads"),
+                batchMode.equals("adaptive"))) {
+            AuthenticatedUser user = createUser(context, alertRules);
+            Report report = batchFiles > 0 ? runBatch(context, user, input, batchFiles, rows, timeoutSeconds)
+                    : format.equals("ndjson") ? runStream(context, user, input, rows, appendResubmit)
+                    : run(context, user, input, format, rows, timeoutSeconds);
+            report.print();
+            System.out.printf("Dispatch:           %s%n", dispatch);
+            System.out.printf("Batch size:         %s, %,d rows at the end%n", batchMode,
+                    (int) context.getBean(MeterRegistry.class).get("ingestion.batch.size").gauge().value());
+            if (alertRules > 0) {
+                System.out.printf("Alerts raised:      %,d by %,d rules%n",
+                        context.getBean(AlertRepository.class).count(), alertRules);
+            }
+
+            if (report.rowsPerSecond() < minRowsPerSec) {
+                System.out.printf("FAIL: %.0f rows/s is below the %.0f rows/s gate%n",
+                        report.rowsPerSecond(), minRowsPerSec);
+                System.exit(1);
+            }
+        } finally {
+            if (kafka != null) kafka.destroy();
+        }
+    }
+
+    /* ===================== RUN ===================== */
+
+    private static Report run(ConfigurableApplicationContext context, AuthenticatedUser user, Path input,
+                              String format, long rows, long timeoutSeconds) throws Exception {
+        DatasetRepository datasetRepository = context.getBean(DatasetRepository.class);
+        DatasetService datasetService = context.getBean(DatasetService.class);
+
+        System.gc();
+        resetHeapPeaks();
+
+        long start = System.nanoTime();
+        DatasetUploadResponse response = datasetService.uploadDataset(new PathMultipartFile(input, format), user);
+        long uploaded = System.nanoTime();
+
+        long deadline = start + timeoutSeconds * 1_000_000_000L;
+        Dataset dataset;
+        do {
+            Thread.sleep(200);
+            dataset = datasetRepository.findById(response.getId()).orElseThrow();
+        } while (!isFinished(dataset.getStatus()) && System.nanoTime() < deadline);
+        long finished = System.nanoTime();
+
+        return new Report(format, rows, dataset.getStatus().name(), dataset.getRecordCount(), dataset.getRejectedCount(),
+                seconds(uploaded - start), seconds(finished - start), peakHeapBytes());
+    }
+
+    /** NDJSON through the streaming endpoint's service; returns once the data is committed. */
+    private static Report runStream(ConfigurableApplicationContext context, AuthenticatedUser user,
+                                    Path input, long rows, boolean appendResubmit) throws Exception {
+        RecordStreamService streamService = context.getBean(RecordStreamService.class);
+
+        System.gc();
+        resetHeapPeaks();
+
+        long start = System.nanoTime();
+        Dataset dataset;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(input))) {
+            dataset = streamService.ingestIntoNewDataset(input.getFileName().toString(), in, Files.size(input), user);
+        }
+        long finished = System.nanoTime();
+
+        if (appendResubmit) checkAppendAndResubmit(context, user, input, dataset.getId(), rows);
+
+        return new Report("ndjson", rows, dataset.getStatus().name(), dataset.getRecordCount(),
+                dataset.getRejectedCount(), seconds(finished - start), seconds(finished - start), peakHeapBytes());
+    }
+
+    /**
+     * Appends {@code input} to the dataset a second time, then resubmits every rejected
+     * row with its revenue corrected. Exits with status 1 unless that clears them all.
+     */
+    private static void checkAppendAndResubmit(ConfigurableApplicationContext context, AuthenticatedUser user,
+                                               Path input, Long datasetId, long rows) throws IOException {
+        RecordStreamService streamService = context.getBean(RecordStreamService.class);
+        DatasetService datasetService = context.getBean(DatasetService.class);
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(input))) {
+            streamService.ingestIntoDataset(datasetId, in, user);
+        }
+
+        List<RejectedRowFix> fixes = new ArrayList<>();
+        for (RejectedRowResponse row : datasetService.getRejectedRows(datasetId, user)) {
+            RejectedRowFix fix = new RejectedRowFix();
+            fix.setRowNumber(row.getRowNumber());
+            fix.setRawText(row.getRawText().replace("n/a", "1000000"));
+            fixes.add(fix);
+        }
+        Dataset dataset = datasetService.resubmitRejectedRows(datasetId, fixes, user);
+
+        boolean cleared = dataset.getStatus() == Dataset.ProcessingStatus.COMPLETED
+                && dataset.getRecordCount() == 2 * rows;
+        System.out.printf("Append + resubmit:  %s (%,d rows resubmitted, %s records)%n",
+                cleared ? "OK" : "FAIL", fixes.size(), dataset.getRecordCount());
+        if (!cleared) System.exit(1);
+    }
+
+    /** One zip of {@code files} CSVs through the batch endpoint; children ingest in parallel. */
+    private static Report runBatch(ConfigurableApplicationContext context, AuthenticatedUser user, Path input,
+                                   int files, long rows, long timeoutSeconds) throws Exception {
+        DatasetService datasetService = context.getBean(DatasetService.class);
+
+        System.gc();
+        resetHeapPeaks();
+
+        long start = System.nanoTime();
+        BatchStatusResponse batch = datasetService.uploadBatch(new PathMultipartFile(input, "zip"), user);
+        long uploaded = System.nanoTime();
+
+        long deadline = start + timeoutSeconds * 1_000_000_000L;
+        do {
+            Thread.sleep(200);
+            batch = datasetService.getBatchStatus(batch.getId(), user);
+        } while (!isFinished(Dataset.ProcessingStatus.valueOf(batch.getStatus())) && System.nanoTime() < deadline);
+        long finished = System.nanoTime();
+
+        return new Report("batch of " + files + " csv", rows, batch.getStatus(), batch.getRecordCount(),
+                batch.getRejectedCount(), seconds(uploaded - start), seconds(finished - start), peakHeapBytes());
+    }
+
+    private static AuthenticatedUser createUser(ConfigurableApplicationContext context, int alertRules) {
+        User user = context.getBean(UserRepository.class).save(User.builder()
+                .email("load-harness@example.com")
+                .password("unused")
+                .role(User.Role.USER)
+                .build());
+        AuthenticatedUser principal = AuthenticatedUser.from(user);
+
+        // A mix of the rule shapes users write, spread over every bucket the engine keys on
+        AlertService alertService = context.getBean(AlertService.class);
+        List<String> industries = SyntheticData.industries();
+        List<String> countries = SyntheticData.countries();
+        for (int i = 0; i < alertRules; i++) {
+            AlertRuleRequest rule = new AlertRuleRequest();
+            rule.setName("rule-" + i);
+            switch (i % 4) {
+                case 0 -> {
+                    rule.setIndustry(industries.get(i % industries.size()));
+                    rule.setMetric("debtToEbitda");
+                    rule.setComparison("GT");
+                    rule.setThreshold(BigDecimal.valueOf(6 + i % 5));
+                }
+                case 1 -> {
+                    rule.setCountry(countries.get(i % countries.size()));
+                    rule.setCategory("DISTRESSED");
+                }
+                case 2 -> {
+                    List<String> watchlist = new ArrayList<>();
+                    for (int k = 0; k < 10; k++) watchlist.add("Issuer " + (i * 10 + k));
+                    rule.setIssuers(watchlist);
+                    rule.setCategory("DISTRESSED");
+                }
+                default -> {
+                    rule.setRatings(List.of("D"));
+                    rule.setMetric("interestCoverageRatio");
+                    rule.setComparison("LT");
+                    rule.setThreshold(BigDecimal.valueOf(1));
+                }
+            }
+            alertService.createRule(rule, principal);
+        }
+        return principal;
+    }
+
+    private static boolean isFinished(Dataset.ProcessingStatus status) {
+        return status == Dataset.ProcessingStatus.COMPLETED
+                || status == Dataset.ProcessingStatus.COMPLETED_WITH_ERRORS
+                || status == Dataset.ProcessingStatus.FAILED;
+    }
+
+    private static ConfigurableApplicationContext startApplication(EmbeddedKafkaKraftBroker kafka, String dispatch,
+                                                                   Path uploadDir, boolean adaptiveBatches) {
+        // Passed as command-line arguments so they override application.yml
+        return new SpringApplicationBuilder(FinancialRatingApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:load;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=create",
+                        "--spring.sql.init.mode=never",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        // Nothing listens on this address in jobqueue mode, which must not need a broker
+                        "--spring.kafka.bootstrap-servers=" + (kafka == null ? "localhost:1" : kafka.getBrokersAsString()),
+                        "--app.dispatch.backend=" + dispatch,
+                        "--app.upload.dir=" + uploadDir,
+                        "--app.upload.max-file-size=" + Long.MAX_VALUE,
+                        "--app.ingestion.batch.adaptive=" + adaptiveBatches,
+                        "--logging.level.com.finrating=INFO",
+                        "--logging.level.org.springframework.security=WARN",
+                        "--logging.level.org.apache.kafka=WARN"
+                );
+    }
+
+    /* ===================== INPUT ===================== */
+
+    private static void generate(Path input, String format, long rows, long seed, long invalidEvery) throws IOException {
+        SyntheticData data = new SyntheticData(seed, 50_000);
+
+        if (CSV_FORMATS.contains(format)) {
+            try (OutputStream out = compress(new BufferedOutputStream(Files.newOutputStream(input)), format);
+                 Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                data.writeCsv(writer, rows, invalidEvery);
+            }
+            return;
+        }
+        if (format.equals("ndjson")) {
+            try (Writer writer = Files.newBufferedWriter(input, StandardCharsets.UTF_8)) {
+                data.writeNdjson(writer, rows, invalidEvery);
+            }
+            return;
+        }
+
+        SXSSFWorkbook workbook = new SXSSFWorkbook(1000);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(input))) {
+            data.fillSheet(workbook, rows);
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private static void generateBatch(Path input, long rows, int files, long seed, long invalidEvery) throws IOException {
+        SyntheticData data = new SyntheticData(seed, 50_000);
+
+        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(input)))) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8));
+            for (int i = 0; i < files; i++) {
+                zip.putNextEntry(new ZipEntry("region-" + i + ".csv"));
+                data.writeCsv(writer, rows / files + (i < rows % files ? 1 : 0), invalidEvery);
+                writer.flush();
+                zip.closeEntry();
+            }
+        }
+    }
+
+    private static OutputStream compress(OutputStream out, String format) throws IOException {
+        return switch (format) {
+            case "csv.gz" -> new GZIPOutputStream(out, 64 * 1024);
+            case "csv.zst" -> new ZstdOutputStream(out);
+            case "zip" -> {
+                ZipOutputStream zip = new ZipOutputStream(out);
+                zip.putNextEntry(new ZipEntry("synthetic.csv"));
+                yield zip;
+            }
+            default -> out;
+        };
+    }
+
+    /* ===================== HEAP ===================== */
+
+    private static void resetHeapPeaks() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+        }
+    }
+
+    private static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    /* ===================== HELPERS ===================== */
+
+    private static double seconds(long nanos) {
+        return nanos / 1_000_000_000.0;
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    private record Report(String format, long rows, String status,
+                          Number recordCount, Number rejectedCount,
+                          double uploadSeconds, double completedSeconds, long peakHeapBytes) {
+
+        double rowsPerSecond() {
+            return status.startsWith("COMPLETED") ? rows / completedSeconds : 0;
+        }
+
+        void print() {
+            System.out.println("=== INGESTION LOAD REPORT ===");
+            System.out.printf("Format:             %s%n", format);
+            System.out.printf("Rows:               %,d%n", rows);
+            System.out.printf("Status:             %s (%s records, %s rejected)%n", status, recordCount, rejectedCount);
+            System.out.printf("Upload call:        %.2f s%n", uploadSeconds);
+            System.out.printf("Time to COMPLETED:  %.2f s%n", completedSeconds);
+            System.out.printf("Throughput:         %,.0f rows/s%n", rowsPerSecond());
+            System.out.printf("Peak heap:          %,d MB%n", peakHeapBytes / (1024 * 1024));
+        }
+    }
+
+    /** Upload backed by a file on disk, so large inputs never sit on the heap. */
+    private record PathMultipartFile(Path path, String format) implements MultipartFile {
+
+        @Override public String getName() { return "file"; }
+        @Override public String getOriginalFilename() { return path.getFileName().toString(); }
+        @Override public String getContentType() {
+            return switch (format) {
+                case "csv" -> "text/csv";
+                case "csv.gz" -> "application/gzip";
+                case "csv.zst" -> "application/zstd";
+                case "zip" -> "application/zip";
+                default -> "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+            };
+        }
+        @Override public boolean isEmpty() { return getSize() == 0; }
+        @Override public long getSize() {
+            try {
+                return Files.size(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        @Override public byte[] getBytes() throws IOException { return Files.readAllBytes(path); }
+        @Override public InputStream getInputStream() throws IOException { return Files.newInputStream(path); }
+        @Override public void transferTo(File dest) throws IOException { Files.copy(path, dest.toPath()); }
+        @Override public void transferTo(Path dest) throws IOException { Files.copy(path, dest); }
+    }
+}
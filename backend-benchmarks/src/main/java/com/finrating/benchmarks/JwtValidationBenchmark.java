@@ -0,0 +1,48 @@
+package com.finrating.benchmarks;
+
+import com.finrating.entity.User;
+import com.finrating.security.JwtService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token checks done by {@code JwtAuthenticationFilter} on every request: the
+ * database-backed path (username + validity) and the claims-only principal path.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtValidationBenchmark {
+
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+
+    private JwtService jwtService;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService(SECRET, 86_400_000L);
+        user = User.builder()
+                .id(1L)
+                .email("analyst@example.com")
+                .password("unused")
+                .role(User.Role.USER)
+                .build();
+        token = jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public boolean validateAgainstUser() {
+        return jwtService.extractUsername(token) != null && jwtService.isTokenValid(token, user);
+    }
+
+    @Benchmark
+    public Object principalFromClaims() {
+        return jwtService.extractAuthenticatedUser(token);
+    }
+}
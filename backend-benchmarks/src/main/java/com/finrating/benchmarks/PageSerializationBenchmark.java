@@ -0,0 +1,61 @@
+package com.finrating.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.finrating.config.JacksonConfig;
+import com.finrating.entity.Dataset;
+import com.finrating.entity.FinancialRecord;
+import com.finrating.service.RatingService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** JSON rendering of the {@code /api/dashboard/records} response body. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PageSerializationBenchmark {
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private final ObjectMapper objectMapper = new JacksonConfig().objectMapper();
+    private Page<FinancialRecord> page;
+
+    @Setup
+    public void setUp() {
+        SyntheticData data = new SyntheticData();
+        RatingService ratingService = new RatingService();
+        Dataset dataset = Dataset.builder()
+                .id(1L)
+                .name("benchmark.csv")
+                .fileName("benchmark.csv")
+                .fileType("csv")
+                .fileSize(0L)
+                .filePath("uploads/benchmark.csv")
+                .build();
+
+        List<FinancialRecord> records = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            FinancialRecord record = data.nextRecord(dataset);
+            record.setId((long) i);
+            ratingService.calculateRating(record);
+            record.setCalculatedAt(LocalDateTime.of(2024, 1, 1, 0, 0));
+            records.add(record);
+        }
+        page = new PageImpl<>(records, PageRequest.of(0, pageSize), 1_000_000L);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws Exception {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
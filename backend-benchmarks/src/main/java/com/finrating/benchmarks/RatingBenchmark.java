@@ -0,0 +1,39 @@
+package com.finrating.benchmarks;
+
+import com.finrating.entity.Dataset;
+import com.finrating.entity.FinancialRecord;
+import com.finrating.service.RatingService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** Per-record cost of {@link RatingService#calculateRating}. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RatingBenchmark {
+
+    private static final int RECORDS = 1024;
+
+    private final RatingService ratingService = new RatingService();
+    private FinancialRecord[] records;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SyntheticData data = new SyntheticData();
+        Dataset dataset = new Dataset();
+        records = new FinancialRecord[RECORDS];
+        for (int i = 0; i < RECORDS; i++) records[i] = data.nextRecord(dataset);
+    }
+
+    @Benchmark
+    public FinancialRecord calculateRating() {
+        FinancialRecord record = records[next++ & (RECORDS - 1)];
+        ratingService.calculateRating(record);
+        return record;
+    }
+}
@@ -0,0 +1,173 @@
+package com.finrating.benchmarks;
+
+import com.finrating.entity.Dataset;
+import com.finrating.entity.FinancialRecord;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic generator of issuer rows. The same seed always yields the same
+ * sequence, so before/after numbers are measured against identical input.
+ * Industry and country follow skewed weights similar to real portfolios.
+ */
+public class SyntheticData {
+
+    public static final long DEFAULT_SEED = 42L;
+
+    public static final String CSV_HEADER =
+            "Issuer Name,Industry,Country,Revenue,EBITDA,Total Debt,Interest Expense,Current Assets,Current Liabilities";
+
+    private static final String[] INDUSTRIES = {
+            "Financial Services", "Technology", "Manufacturing", "Energy", "Healthcare",
+            "Retail", "Telecommunications", "Insurance", "Transportation", "Automotive",
+            "Construction", "Chemicals", "Food & Beverage"
+    };
+    private static final int[] INDUSTRY_WEIGHTS = {18, 15, 12, 10, 9, 8, 6, 6, 5, 4, 3, 2, 2};
+
+    private static final String[] COUNTRIES = {
+            "USA", "UK", "Germany", "Japan", "France", "Canada", "Switzerland",
+            "Australia", "South Korea", "Netherlands", "Brazil", "India"
+    };
+    private static final int[] COUNTRY_WEIGHTS = {35, 12, 10, 9, 7, 6, 5, 4, 4, 3, 3, 2};
+
+    private final SplittableRandom random;
+    private final int issuerPool;
+    private long rowNumber;
+
+    public SyntheticData() {
+        this(DEFAULT_SEED, 50_000);
+    }
+
+    /**
+     * @param issuerPool number of distinct issuers; rows beyond it repeat issuers
+     *                   the way monthly extracts do
+     */
+    public SyntheticData(long seed, int issuerPool) {
+        this.random = new SplittableRandom(seed);
+        this.issuerPool = issuerPool;
+    }
+
+    public static List<String> industries() {
+        return List.of(INDUSTRIES);
+    }
+
+    public static List<String> countries() {
+        return List.of(COUNTRIES);
+    }
+
+    /* ===================== ROWS ===================== */
+
+    public String[] nextRow() {
+        long issuerId = rowNumber++ % issuerPool;
+
+        long revenue = 1_000_000L + (long) (Math.exp(random.nextDouble(0, 8)) * 100_000);
+        long ebitda = (long) (revenue * random.nextDouble(0.03, 0.40));
+        long totalDebt = (long) (ebitda * random.nextDouble(0.2, 9.0));
+        long interestExpense = (long) (totalDebt * random.nextDouble(0.02, 0.11));
+        long currentLiabilities = (long) (revenue * random.nextDouble(0.05, 0.40));
+        long currentAssets = (long) (currentLiabilities * random.nextDouble(0.5, 3.0));
+
+        return new String[]{
+                "Issuer " + issuerId,
+                pick(INDUSTRIES, INDUSTRY_WEIGHTS),
+                pick(COUNTRIES, COUNTRY_WEIGHTS),
+                Long.toString(revenue),
+                Long.toString(ebitda),
+                Long.toString(totalDebt),
+                Long.toString(interestExpense),
+                Long.toString(currentAssets),
+                Long.toString(currentLiabilities)
+        };
+    }
+
+    public List<String[]> rows(int count) {
+        List<String[]> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) rows.add(nextRow());
+        return rows;
+    }
+
+    /** Unrated record as the parser would produce it. */
+    public FinancialRecord nextRecord(Dataset dataset) {
+        String[] row = nextRow();
+        return FinancialRecord.builder()
+                .dataset(dataset)
+                .issuerName(row[0])
+                .industry(row[1])
+                .country(row[2])
+                .revenue(new BigDecimal(row[3]))
+                .ebitda(new BigDecimal(row[4]))
+                .totalDebt(new BigDecimal(row[5]))
+                .interestExpense(new BigDecimal(row[6]))
+                .currentAssets(new BigDecimal(row[7]))
+                .currentLiabilities(new BigDecimal(row[8]))
+                .build();
+    }
+
+    /* ===================== FILE FORMATS ===================== */
+
+    public void writeCsv(Writer writer, long count) throws IOException {
+        writeCsv(writer, count, 0);
+    }
+
+    /** @param invalidEvery when positive, every n-th row gets an unparseable revenue */
+    public void writeCsv(Writer writer, long count, long invalidEvery) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        for (long i = 1; i <= count; i++) {
+            String[] row = nextRow();
+            if (invalidEvery > 0 && i % invalidEvery == 0) row[3] = "n/a";
+            writer.write(String.join(",", row));
+            writer.write('\n');
+        }
+    }
+
+    /** One JSON object per line with the field names the stream endpoint expects. */
+    public void writeNdjson(Writer writer, long count, long invalidEvery) throws IOException {
+        for (long i = 1; i <= count; i++) {
+            String[] row = nextRow();
+            String revenue = invalidEvery > 0 && i % invalidEvery == 0 ? "\"n/a\"" : row[3];
+            writer.write("{\"issuerName\":\"" + row[0] + "\",\"industry\":\"" + row[1]
+                    + "\",\"country\":\"" + row[2] + "\",\"revenue\":" + revenue
+                    + ",\"ebitda\":" + row[4] + ",\"totalDebt\":" + row[5]
+                    + ",\"interestExpense\":" + row[6] + ",\"currentAssets\":" + row[7]
+                    + ",\"currentLiabilities\":" + row[8] + "}\n");
+        }
+    }
+
+    public void fillSheet(Workbook workbook, long count) {
+        Sheet sheet = workbook.createSheet("Ratings");
+
+        Row header = sheet.createRow(0);
+        String[] columns = CSV_HEADER.split(",");
+        for (int c = 0; c < columns.length; c++) header.createCell(c).setCellValue(columns[c]);
+
+        for (int i = 1; i <= count; i++) {
+            String[] data = nextRow();
+            Row row = sheet.createRow(i);
+            for (int c = 0; c < 3; c++) row.createCell(c).setCellValue(data[c]);
+            for (int c = 3; c < data.length; c++) row.createCell(c).setCellValue(Double.parseDouble(data[c]));
+        }
+    }
+
+    /* ===================== HELPERS ===================== */
+
+    private String pick(String[] values, int[] weights) {
+        int total = 0;
+        for (int w : weights) total += w;
+
+        int roll = random.nextInt(total);
+        for (int i = 0; i < values.length; i++) {
+            roll -= weights[i];
+            if (roll < 0) return values[i];
+        }
+        return values[values.length - 1];
+    }
+}
@@ -0,0 +1,357 @@
+package com.finrating.benchmarks;
+
+import com.finrating.FinancialRatingApplication;
+import com.finrating.entity.Dataset;
+import com.finrating.entity.User;
+import com.finrating.repository.DatasetRepository;
+import com.finrating.repository.UserRepository;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.h2.engine.Constants;
+import org.h2.tools.Server;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time from launching a worker process to its first message ingested, for each way
+ * the backend can be built:
+ * <ul>
+ *   <li>{@code jar}: the executable jar ({@code mvn package});</li>
+ *   <li>{@code cds}: the AOT-processed jar with its AppCDS archive ({@code mvn -Paot-cds package});</li>
+ *   <li>{@code native}: the GraalVM image ({@code mvn -Pnative native:compile}); needs {@code --jdbc-url},
+ *       since an image cannot load the H2 driver.</li>
+ * </ul>
+ * Each run queues one small dataset on an embedded Kafka broker, starts a worker
+ * and waits for the dataset to be COMPLETED; variants are interleaved run by run.
+ * The database is an H2 TCP server unless {@code --jdbc-url} points at PostgreSQL.
+ * The AOT build leaves generated classes in {@code target/classes} that break the
+ * plain jar, so copy {@code target/cds} away and rebuild without the profile before
+ * building this module.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.finrating.benchmarks.WorkerStartupHarness \
+ *      --variants=jar,cds --cds-dir=/tmp/finrating-cds --runs=5
+ * </pre>
+ */
+public class WorkerStartupHarness {
+
+    private static final String STARTED = "Started FinancialRatingApplication in ";
+    private static final List<String> VARIANTS = List.of("jar", "cds", "native");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        List<String> variants = List.of(options.getOrDefault("variants", "jar,cds").split(","));
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        long timeoutSeconds = Long.parseLong(options.getOrDefault("timeout-seconds", "120"));
+        Path backend = Path.of(options.getOrDefault("backend", "../backend")).toAbsolutePath().normalize();
+        String jdbcUrl = options.get("jdbc-url");
+
+        for (String variant : variants) {
+            if (!VARIANTS.contains(variant)) {
+                throw new IllegalArgumentException("Unknown variant " + variant + "; expected one of " + VARIANTS);
+            }
+        }
+        if (variants.contains("native") && jdbcUrl == null) {
+            throw new IllegalArgumentException("The native variant needs --jdbc-url of a PostgreSQL database");
+        }
+
+        Path workDir = Files.createTempDirectory("finrating-startup");
+        Path input = workDir.resolve("first-message.csv");
+        try (Writer writer = Files.newBufferedWriter(input, StandardCharsets.UTF_8)) {
+            new SyntheticData(SyntheticData.DEFAULT_SEED, 100).writeCsv(writer, 100, 0);
+        }
+
+        Server h2 = null;
+        Database database;
+        if (jdbcUrl == null) {
+            h2 = Server.createTcpServer("-tcpPort", String.valueOf(freePort()), "-ifNotExists").start();
+            database = new Database("jdbc:h2:tcp://localhost:" + h2.getPort() + "/mem:startup;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                    "sa", "", true);
+        } else {
+            database = new Database(jdbcUrl, options.getOrDefault("jdbc-user", "postgres"),
+                    options.getOrDefault("jdbc-password", "postgres"), false);
+        }
+
+        EmbeddedKafkaKraftBroker kafka = new EmbeddedKafkaKraftBroker(1, 6, "dataset-processing", "dataset-processing-large");
+        kafka.afterPropertiesSet();
+
+        try (KafkaProducer<String, String> producer = producer(kafka.getBrokersAsString())) {
+            long[] ids = prepare(database, input, workDir.resolve("uploads"));
+            long userId = ids[0];
+            long datasetId = ids[1];
+
+            Map<String, List<Result>> results = new LinkedHashMap<>();
+            for (int run = 1; run <= runs; run++) {
+                for (String variant : variants) {
+                    reset(database, datasetId);
+                    producer.send(new ProducerRecord<>("dataset-processing", String.valueOf(userId), String.valueOf(datasetId))).get();
+
+                    Result result = launch(command(variant, backend, options, database, kafka, workDir),
+                            database, datasetId, timeoutSeconds);
+                    results.computeIfAbsent(variant, k -> new ArrayList<>()).add(result);
+                    System.out.printf("Run %d %-7s started in %5.2f s, first message ingested at %5.2f s%n",
+                            run, variant, result.startedSeconds(), result.ingestedSeconds());
+                }
+            }
+            print(results);
+        } finally {
+            kafka.destroy();
+            if (h2 != null) h2.stop();
+        }
+    }
+
+    /* ===================== RUN ===================== */
+
+    private static List<String> command(String variant, Path backend, Map<String, String> options,
+                                        Database database, EmbeddedKafkaKraftBroker kafka, Path workDir) throws IOException {
+        List<String> command = new ArrayList<>();
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        String h2Jar = database.h2 ? File.pathSeparator + h2Jar(options) : "";
+
+        switch (variant) {
+            case "jar" -> {
+                command.add(java);
+                command.addAll(jvmArgs(options));
+                // JarLauncher delegates to the application class path for the H2 driver
+                String jar = options.getOrDefault("exec-jar", single(backend.resolve("target"), "-exec.jar"));
+                command.addAll(List.of("-cp", jar + h2Jar,
+                        "org.springframework.boot.loader.launch.JarLauncher"));
+            }
+            case "cds" -> {
+                Path cds = Path.of(options.getOrDefault("cds-dir", backend.resolve("target/cds").toString()));
+                command.add(java);
+                command.addAll(jvmArgs(options));
+                command.addAll(List.of("-XX:SharedArchiveFile=" + cds.resolve("app.jsa"), "-Dspring.aot.enabled=true",
+                        "-cp", single(cds, "-cds.jar") + h2Jar, FinancialRatingApplication.class.getName()));
+            }
+            default -> command.add(options.getOrDefault("native-image",
+                    backend.resolve("target/finrating-worker").toString()));
+        }
+
+        command.addAll(List.of(
+                "--spring.profiles.active=worker",
+                "--server.port=0",
+                "--spring.datasource.url=" + database.url,
+                "--spring.datasource.username=" + database.user,
+                "--spring.datasource.password=" + database.password,
+                "--spring.kafka.bootstrap-servers=" + kafka.getBrokersAsString(),
+                "--app.upload.dir=" + workDir.resolve("uploads"),
+                "--logging.level.root=WARN",
+                "--logging.level.com.finrating.FinancialRatingApplication=INFO"));
+        if (database.h2) {
+            command.addAll(List.of(
+                    "--spring.datasource.driver-class-name=org.h2.Driver",
+                    "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                    "--spring.sql.init.mode=never"));
+        }
+        return command;
+    }
+
+    private static Result launch(List<String> command, Database database, long datasetId,
+                                 long timeoutSeconds) throws Exception {
+        long start = System.nanoTime();
+        Process worker = new ProcessBuilder(command).redirectErrorStream(true).start();
+
+        long[] started = {0};
+        Thread output = new Thread(() -> {
+            try (BufferedReader reader = worker.inputReader(StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (started[0] == 0 && line.contains(STARTED)) {
+                        synchronized (started) {
+                            started[0] = System.nanoTime();
+                        }
+                    } else if (line.contains(" ERROR ")) {
+                        System.out.println("  worker: " + line);
+                    }
+                }
+            } catch (IOException ignored) {
+                // The worker was stopped
+            }
+        });
+        output.setDaemon(true);
+        output.start();
+
+        long deadline = start + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        long ingested = 0;
+        try (Connection connection = database.connect();
+             PreparedStatement status = connection.prepareStatement("SELECT status FROM datasets WHERE id = ?")) {
+            status.setLong(1, datasetId);
+            while (System.nanoTime() < deadline && worker.isAlive()) {
+                try (ResultSet rs = status.executeQuery()) {
+                    if (rs.next() && rs.getString(1).startsWith("COMPLETED")) {
+                        ingested = System.nanoTime();
+                        break;
+                    }
+                }
+                Thread.sleep(10);
+            }
+        } finally {
+            // SIGTERM, so the consumer leaves the group instead of holding partitions until its session expires
+            worker.destroy();
+            if (!worker.waitFor(30, TimeUnit.SECONDS)) worker.destroyForcibly().waitFor();
+        }
+
+        if (ingested == 0) {
+            throw new IllegalStateException("Worker did not ingest the dataset within " + timeoutSeconds
+                    + " s; command: " + String.join(" ", command));
+        }
+        synchronized (started) {
+            return new Result(seconds(started[0] - start), seconds(ingested - start));
+        }
+    }
+
+    /* ===================== DATA ===================== */
+
+    /** Creates the schema in-process, then a user and a dataset for every run to re-ingest. */
+    private static long[] prepare(Database database, Path input, Path uploadDir) {
+        List<String> arguments = new ArrayList<>(List.of(
+                "--spring.profiles.active=api",
+                "--server.port=0",
+                "--spring.datasource.url=" + database.url,
+                "--spring.datasource.username=" + database.user,
+                "--spring.datasource.password=" + database.password,
+                "--app.dispatch.backend=jobqueue",
+                "--app.upload.dir=" + uploadDir,
+                "--logging.level.root=WARN"));
+        if (database.h2) {
+            arguments.addAll(List.of(
+                    "--spring.datasource.driver-class-name=org.h2.Driver",
+                    "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                    "--spring.jpa.hibernate.ddl-auto=create",
+                    "--spring.sql.init.mode=never"));
+        }
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FinancialRatingApplication.class)
+                .run(arguments.toArray(String[]::new))) {
+            User user = context.getBean(UserRepository.class).save(User.builder()
+                    .email("startup-harness-" + System.currentTimeMillis() + "@example.com")
+                    .password("unused")
+                    .role(User.Role.USER)
+                    .build());
+            Dataset dataset = context.getBean(DatasetRepository.class).save(Dataset.builder()
+                    .name("first-message")
+                    .fileName(input.getFileName().toString())
+                    .fileType("csv")
+                    .fileSize(input.toFile().length())
+                    .filePath(input.toString())
+                    .user(user)
+                    .build());
+            return new long[]{user.getId(), dataset.getId()};
+        }
+    }
+
+    private static void reset(Database database, long datasetId) throws Exception {
+        try (Connection connection = database.connect()) {
+            try (PreparedStatement ps = connection.prepareStatement("DELETE FROM financial_records WHERE dataset_id = ?")) {
+                ps.setLong(1, datasetId);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "UPDATE datasets SET status = 'PENDING', record_count = NULL, processed_at = NULL WHERE id = ?")) {
+                ps.setLong(1, datasetId);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private static KafkaProducer<String, String> producer(String brokers) {
+        Map<String, Object> config = Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, brokers,
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        return new KafkaProducer<>(config);
+    }
+
+    /* ===================== REPORT ===================== */
+
+    private static void print(Map<String, List<Result>> results) {
+        System.out.println("=== WORKER STARTUP REPORT ===");
+        System.out.printf("%-8s %5s %25s %30s%n", "Variant", "Runs", "Started (median / min)", "First message (median / min)");
+        results.forEach((variant, runs) -> {
+            double[] started = runs.stream().mapToDouble(Result::startedSeconds).sorted().toArray();
+            double[] ingested = runs.stream().mapToDouble(Result::ingestedSeconds).sorted().toArray();
+            System.out.printf("%-8s %5d %15.2f / %5.2f s %20.2f / %5.2f s%n", variant, runs.size(),
+                    median(started), started[0], median(ingested), ingested[0]);
+        });
+    }
+
+    private static double median(double[] sorted) {
+        int n = sorted.length;
+        return n % 2 == 1 ? sorted[n / 2] : (sorted[n / 2 - 1] + sorted[n / 2]) / 2;
+    }
+
+    /* ===================== HELPERS ===================== */
+
+    private static List<String> jvmArgs(Map<String, String> options) {
+        String args = options.getOrDefault("jvm-args", "");
+        return args.isBlank() ? List.of() : List.of(args.trim().split("\\s+"));
+    }
+
+    /** The H2 driver jar for workers; the shaded benchmarks jar would shadow the application's classes. */
+    private static String h2Jar(Map<String, String> options) {
+        String version = Constants.VERSION_MAJOR + "." + Constants.VERSION_MINOR + "." + Constants.BUILD_ID;
+        Path jar = Path.of(options.getOrDefault("h2-jar", Path.of(System.getProperty("user.home"),
+                ".m2", "repository", "com", "h2database", "h2", version, "h2-" + version + ".jar").toString()));
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalArgumentException("H2 driver not found at " + jar + "; pass --h2-jar");
+        }
+        return jar.toString();
+    }
+
+    private static String single(Path dir, String suffix) throws IOException {
+        try (var files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(suffix))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("No *" + suffix + " in " + dir + "; build it first"))
+                    .toString();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1_000_000_000.0;
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    private record Database(String url, String user, String password, boolean h2) {
+
+        Connection connect() throws Exception {
+            return DriverManager.getConnection(url, user, password);
+        }
+    }
+
+    private record Result(double startedSeconds, double ingestedSeconds) {
+    }
+}
@@ -0,0 +1,70 @@
+package com.finrating.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Separate Hikari pools for dashboard reads and ingestion writes, so a large
+ * ingest cannot starve {@code /api/dashboard} of connections. Each pool is
+ * reported under its own name in the {@code hikaricp.connections.*} metrics.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    public HikariDataSource writeDataSource(
+            DataSourceProperties properties,
+            @Value("${app.datasource.write.pool-size:10}") int poolSize) {
+
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("write");
+        dataSource.setMaximumPoolSize(poolSize);
+        return dataSource;
+    }
+
+    @Bean
+    public HikariDataSource readDataSource(
+            DataSourceProperties properties,
+            @Value("${app.datasource.read.url:}") String replicaUrl,
+            @Value("${app.datasource.read.pool-size:10}") int poolSize) {
+
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        if (!replicaUrl.isBlank()) {
+            dataSource.setJdbcUrl(replicaUrl);
+        }
+        dataSource.setPoolName("read");
+        dataSource.setMaximumPoolSize(poolSize);
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            @Qualifier("writeDataSource") DataSource writeDataSource,
+            @Qualifier("readDataSource") DataSource readDataSource) {
+
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource();
+        routing.setTargetDataSources(Map.of(
+                ReadWriteRoutingDataSource.Route.READ, readDataSource,
+                ReadWriteRoutingDataSource.Route.WRITE, writeDataSource
+        ));
+        routing.setDefaultTargetDataSource(writeDataSource);
+        routing.afterPropertiesSet();
+
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
@@ -1,22 +1,64 @@
 package com.finrating.config;
 
+import com.finrating.kafka.KafkaProducerService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.*;
+import org.springframework.kafka.listener.ContainerProperties;
 import java.util.HashMap;
 import java.util.Map;
 
 @Configuration
+@RequiredArgsConstructor
 public class KafkaConfig {
+
+    private final MeterRegistry meterRegistry;
     
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
+
+    @Value("${app.kafka.producer.compression:lz4}")
+    private String producerCompression;
+
+    @Value("${app.kafka.producer.linger-ms:20}")
+    private int producerLingerMs;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${app.kafka.topic-partitions:6}")
+    private int topicPartitions;
+
+    /* ===================== TOPICS ===================== */
+
+    // Without these KafkaAdmin never contacts a broker, so jobqueue deployments need none
+    @Bean
+    @ConditionalOnProperty(name = "app.dispatch.backend", havingValue = "kafka", matchIfMissing = true)
+    public NewTopic datasetProcessingTopic() {
+        return TopicBuilder.name(KafkaProducerService.DATASET_PROCESSING_TOPIC)
+                .partitions(topicPartitions)
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.dispatch.backend", havingValue = "kafka", matchIfMissing = true)
+    public NewTopic datasetProcessingLargeTopic() {
+        return TopicBuilder.name(KafkaProducerService.DATASET_PROCESSING_LARGE_TOPIC)
+                .partitions(topicPartitions)
+                .build();
+    }
     
     @Bean
     public ProducerFactory<String, String> producerFactory() {
@@ -24,7 +66,15 @@ public class KafkaConfig {
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
         configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        return new DefaultKafkaProducerFactory<>(configProps);
+        // Outbox batches: idempotent, compressed, and lingered so bursts share requests
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, producerCompression);
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, producerLingerMs);
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, 64 * 1024);
+        DefaultKafkaProducerFactory<String, String> factory = new DefaultKafkaProducerFactory<>(configProps);
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return factory;
     }
     
     @Bean
@@ -37,9 +87,13 @@ public class KafkaConfig {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, "financial-rating-group");
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
         props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        return new DefaultKafkaConsumerFactory<>(props);
+        DefaultKafkaConsumerFactory<String, String> factory = new DefaultKafkaConsumerFactory<>(props);
+        // Exposes client metrics, including kafka.consumer.fetch.manager.records.lag
+        factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return factory;
     }
     
     @Bean
@@ -47,6 +101,16 @@ public class KafkaConfig {
         ConcurrentKafkaListenerContainerFactory<String, String> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        // IngestionScheduler acknowledges from its own threads, in completion order
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks(true);
+
+        if (virtualThreads) {
+            // Listener threads spend most of their time waiting on Postgres
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("kafka-listener-");
+            executor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(executor);
+        }
         return factory;
     }
 }
@@ -1,5 +1,6 @@
 package com.finrating.security;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -29,14 +30,20 @@ public class SecurityConfig {
                     cfg.setAllowedOrigins(List.of("http://localhost:4200"));
                     cfg.setAllowedMethods(List.of("GET","POST","PUT","DELETE","OPTIONS"));
                     cfg.setAllowedHeaders(List.of("Authorization","Content-Type"));
-                    cfg.setExposedHeaders(List.of("Authorization"));
+                    cfg.setExposedHeaders(List.of("Authorization", "X-Datasets-Pending"));
                     cfg.setAllowCredentials(true);
                     return cfg;
                 }))
                 .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // The error page of an already-authorised request; re-checking it turns a 503 into a 403
+                        .dispatcherTypeMatchers(DispatcherType.ERROR).permitAll()
                         .requestMatchers("/api/auth/**").permitAll()
+                        .requestMatchers("/actuator/health/**").permitAll()
+                        // Latency histograms, ingestion counters and pool gauges are operator data
+                        .requestMatchers("/actuator/prometheus", "/actuator/metrics/**").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                        .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .requestMatchers(
                                 "/api/dashboard/**",
                                 "/api/datasets/**"
@@ -0,0 +1,30 @@
+package com.finrating.controller;
+
+import com.finrating.dto.PlatformRatingDistribution;
+import com.finrating.security.AuthenticatedUser;
+import com.finrating.service.PlatformAnalyticsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@Profile("!worker")
+@RequestMapping("/api/admin/analytics")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "http://localhost:4200")
+public class AdminAnalyticsController {
+
+    private final PlatformAnalyticsService platformAnalyticsService;
+
+    /** Rating distribution across all tenants, by industry or country; partial if the timeout is hit. */
+    @GetMapping("/ratings")
+    public ResponseEntity<PlatformRatingDistribution> getRatingDistribution(
+            @RequestParam(defaultValue = "industry") String groupBy,
+            @RequestParam(required = false) Long timeoutMs,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+
+        return ResponseEntity.ok(platformAnalyticsService.ratingDistribution(groupBy, timeoutMs, user));
+    }
+}
@@ -0,0 +1,57 @@
+package com.finrating.controller;
+
+import com.finrating.dto.AlertRuleRequest;
+import com.finrating.entity.Alert;
+import com.finrating.entity.AlertRule;
+import com.finrating.security.AuthenticatedUser;
+import com.finrating.service.AlertService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@Profile("!worker")
+@RequestMapping("/api/alerts")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "http://localhost:4200")
+public class AlertController {
+
+    private final AlertService alertService;
+
+    /** Alerts raised by the user's rules, newest first. */
+    @GetMapping
+    public ResponseEntity<Page<Alert>> getAlerts(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+
+        return ResponseEntity.ok(alertService.getAlerts(user, page, size));
+    }
+
+    @GetMapping("/rules")
+    public ResponseEntity<List<AlertRule>> getRules(@AuthenticationPrincipal AuthenticatedUser user) {
+        return ResponseEntity.ok(alertService.getRules(user));
+    }
+
+    @PostMapping("/rules")
+    public ResponseEntity<AlertRule> createRule(
+            @RequestBody AlertRuleRequest request,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+
+        return ResponseEntity.ok(alertService.createRule(request, user));
+    }
+
+    @DeleteMapping("/rules/{id}")
+    public ResponseEntity<Void> deleteRule(
+            @PathVariable Long id,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+
+        alertService.deleteRule(id, user);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -4,10 +4,12 @@ import com.finrating.dto.*;
 import com.finrating.service.AuthService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
+@Profile("!worker")
 @RequestMapping("/api/auth")
 @RequiredArgsConstructor
 public class AuthController {
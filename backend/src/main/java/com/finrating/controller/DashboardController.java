@@ -2,52 +2,82 @@ package com.finrating.controller;
 
 import com.finrating.dto.DashboardSummary;
 import com.finrating.dto.FilterRequest;
+import com.finrating.dto.RankingRequest;
+import com.finrating.dto.RankingResponse;
 import com.finrating.entity.FinancialRecord;
-import com.finrating.entity.User;
+import com.finrating.security.AuthenticatedUser;
 import com.finrating.service.DashboardService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 @RestController
+@Profile("!worker")
 @RequestMapping("/api/dashboard")
 @RequiredArgsConstructor
-@CrossOrigin(origins = "http://localhost:4200")
+@CrossOrigin(origins = "http://localhost:4200", exposedHeaders = DashboardController.PENDING_HEADER)
 public class DashboardController {
 
+    // Comma-separated ids of archived datasets a record listing left out while they are rehydrated
+    static final String PENDING_HEADER = "X-Datasets-Pending";
+
     private final DashboardService dashboardService;
 
+    /** Record counts by rating and category; {@code approximate=true} estimates them from samples on large accounts. */
     @GetMapping("/summary")
     public ResponseEntity<DashboardSummary> getDashboardSummary(
-            @AuthenticationPrincipal(expression = "username") String email) {
+            @RequestParam(defaultValue = "false") boolean approximate,
+            @AuthenticationPrincipal AuthenticatedUser user) {
 
-        return ResponseEntity.ok(dashboardService.getDashboardSummaryByEmail(email));
+        return ResponseEntity.ok(dashboardService.getDashboardSummary(user, approximate));
     }
 
 
+    /** Records of the user's datasets, or of {@code datasetIds} only; see {@link #PENDING_HEADER}. */
     @GetMapping("/records")
     public ResponseEntity<Page<FinancialRecord>> getRecords(
-            @AuthenticationPrincipal(expression = "username") String email,
+            @AuthenticationPrincipal AuthenticatedUser user,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) List<Long> datasetIds) {
 
-        Page<FinancialRecord> records =
-                dashboardService.getRecordsByEmail(email, page, size);
+        DashboardService.RecordsPage records =
+                dashboardService.getRecords(user, page, size, datasetIds);
 
-        return ResponseEntity.ok(records);
+        return withPending(records);
     }
 
 
     @PostMapping("/filter")
     public ResponseEntity<Page<FinancialRecord>> filterRecords(
             @RequestBody FilterRequest filterRequest,
-            @AuthenticationPrincipal(expression = "username") String email) {
+            @AuthenticationPrincipal AuthenticatedUser user) {
 
-        return ResponseEntity.ok(
-                dashboardService.filterRecordsByEmail(filterRequest, email)
-        );
+        return withPending(dashboardService.filterRecords(filterRequest, user));
     }
-}
 
+    /** Top N records by a ratio or amount, e.g. the 100 highest debtToEbitda. */
+    @PostMapping("/ranking")
+    public ResponseEntity<RankingResponse> rankRecords(
+            @RequestBody RankingRequest rankingRequest,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+
+        return ResponseEntity.ok(dashboardService.rankRecords(rankingRequest, user));
+    }
+
+    private static ResponseEntity<Page<FinancialRecord>> withPending(DashboardService.RecordsPage records) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (!records.pendingDatasetIds().isEmpty()) {
+            response.header(PENDING_HEADER, records.pendingDatasetIds().stream()
+                    .map(String::valueOf)
+                    .collect(Collectors.joining(",")));
+        }
+        return response.body(records.page());
+    }
+}
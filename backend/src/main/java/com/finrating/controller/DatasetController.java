@@ -1,10 +1,20 @@
 package com.finrating.controller;
 
+import com.finrating.dto.BatchStatusResponse;
+import com.finrating.dto.DatasetAnalytics;
 import com.finrating.dto.DatasetUploadResponse;
+import com.finrating.dto.DeltaIngestResponse;
+import com.finrating.dto.RejectedRowFix;
+import com.finrating.dto.RejectedRowResponse;
 import com.finrating.entity.Dataset;
-import com.finrating.entity.User;
+import com.finrating.security.AuthenticatedUser;
+import com.finrating.service.DatasetAnalyticsService;
 import com.finrating.service.DatasetService;
+import com.finrating.service.DeltaIngestionService;
+import com.finrating.service.RecordStreamService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
@@ -14,38 +24,117 @@ import java.io.IOException;
 import java.util.List;
 
 @RestController
+@Profile("!worker")
 @RequestMapping("/api/datasets")
 @RequiredArgsConstructor
 @CrossOrigin(origins = "http://localhost:4200")
 public class DatasetController {
 
     private final DatasetService datasetService;
+    private final RecordStreamService recordStreamService;
+    private final DeltaIngestionService deltaIngestionService;
+    private final DatasetAnalyticsService datasetAnalyticsService;
 
     @PostMapping("/upload")
     public ResponseEntity<DatasetUploadResponse> uploadDataset(
             @RequestParam("file") MultipartFile file,
-            @AuthenticationPrincipal User user) throws IOException {
+            @AuthenticationPrincipal AuthenticatedUser user) throws IOException {
 
         DatasetUploadResponse response = datasetService.uploadDataset(file, user);
         return ResponseEntity.ok(response);
     }
 
+    /** Applies a CSV extract to an existing dataset: new and changed issuers only. */
+    @PostMapping("/{id}/delta")
+    public ResponseEntity<DeltaIngestResponse> applyDelta(
+            @PathVariable Long id,
+            @RequestParam("file") MultipartFile file,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        return ResponseEntity.ok(deltaIngestionService.applyDelta(id, file, user));
+    }
+
+    /* ===================== STREAMING ===================== */
+
+    /** NDJSON body, one record object per line; ingested synchronously. */
+    @PostMapping(value = "/stream", consumes = {"application/x-ndjson", "application/json"})
+    public ResponseEntity<Dataset> streamNewDataset(
+            @RequestParam("name") String name,
+            HttpServletRequest request,
+            @AuthenticationPrincipal AuthenticatedUser user) throws IOException {
+        return ResponseEntity.ok(recordStreamService.ingestIntoNewDataset(
+                name, request.getInputStream(), request.getContentLengthLong(), user));
+    }
+
+    @PostMapping(value = "/{id}/stream", consumes = {"application/x-ndjson", "application/json"})
+    public ResponseEntity<Dataset> streamIntoDataset(
+            @PathVariable Long id,
+            HttpServletRequest request,
+            @AuthenticationPrincipal AuthenticatedUser user) throws IOException {
+        return ResponseEntity.ok(recordStreamService.ingestIntoDataset(id, request.getInputStream(), user));
+    }
+
+    /* ===================== BATCHES ===================== */
+
+    @PostMapping("/batches")
+    public ResponseEntity<BatchStatusResponse> uploadBatch(
+            @RequestParam("file") MultipartFile file,
+            @AuthenticationPrincipal AuthenticatedUser user) throws IOException {
+        return ResponseEntity.ok(datasetService.uploadBatch(file, user));
+    }
+
+    @GetMapping("/batches/{id}")
+    public ResponseEntity<BatchStatusResponse> getBatchStatus(
+            @PathVariable Long id,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        return ResponseEntity.ok(datasetService.getBatchStatus(id, user));
+    }
+
+    @DeleteMapping("/batches/{id}")
+    public ResponseEntity<Void> deleteBatch(
+            @PathVariable Long id,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        datasetService.deleteBatch(id, user);
+        return ResponseEntity.noContent().build();
+    }
+
     @GetMapping
-    public ResponseEntity<List<Dataset>> getUserDatasets(@AuthenticationPrincipal User user) {
+    public ResponseEntity<List<Dataset>> getUserDatasets(@AuthenticationPrincipal AuthenticatedUser user) {
         return ResponseEntity.ok(datasetService.getUserDatasets(user));
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<Dataset> getDatasetById(
             @PathVariable Long id,
-            @AuthenticationPrincipal User user) {
+            @AuthenticationPrincipal AuthenticatedUser user) {
         return ResponseEntity.ok(datasetService.getDatasetById(id, user));
     }
 
+    @GetMapping("/{id}/analytics")
+    public ResponseEntity<DatasetAnalytics> getAnalytics(
+            @PathVariable Long id,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        return ResponseEntity.ok(datasetAnalyticsService.analyze(id, user));
+    }
+
+    @GetMapping("/{id}/rejected-rows")
+    public ResponseEntity<List<RejectedRowResponse>> getRejectedRows(
+            @PathVariable Long id,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        return ResponseEntity.ok(datasetService.getRejectedRows(id, user));
+    }
+
+    @PostMapping("/{id}/rejected-rows/resubmit")
+    public ResponseEntity<Dataset> resubmitRejectedRows(
+            @PathVariable Long id,
+            @RequestBody List<RejectedRowFix> fixes,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        return ResponseEntity.ok(datasetService.resubmitRejectedRows(id, fixes, user));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteDataset(
             @PathVariable Long id,
-            @AuthenticationPrincipal User user) {
+            @AuthenticationPrincipal AuthenticatedUser user) {
         datasetService.deleteDataset(id, user);
         return ResponseEntity.noContent().build();
     }
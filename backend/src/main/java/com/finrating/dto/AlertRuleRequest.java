@@ -0,0 +1,25 @@
+package com.finrating.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/** New alert rule; every condition given must hold for a record to raise an alert. */
+@Data
+public class AlertRuleRequest {
+    private String name;
+
+    // Watchlist of issuer names
+    private List<String> issuers;
+    private String industry;
+    private String country;
+
+    private List<String> ratings;
+    private String category;
+
+    // e.g. debtToEbitda GT 6
+    private String metric;
+    private String comparison;
+    private BigDecimal threshold;
+}
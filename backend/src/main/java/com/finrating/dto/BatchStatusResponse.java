@@ -0,0 +1,18 @@
+package com.finrating.dto;
+
+import lombok.*;
+
+import java.util.Map;
+
+@Data
+@Builder
+public class BatchStatusResponse {
+    private Long id;
+    private String name;
+    private String status;
+    private int totalDatasets;
+    // Child dataset count per processing status
+    private Map<String, Long> datasetsByStatus;
+    private long recordCount;
+    private long rejectedCount;
+}
@@ -12,4 +12,22 @@ public class DashboardSummary {
     private Map<String, Long> ratingDistribution;
     private Map<String, Long> categoryDistribution;
     private Long datasetCount;
+
+    // True when the distributions are estimates from samples; the fields below are then set
+    private boolean approximate;
+    private Double confidenceLevel;
+    // Rating / category -> range holding the true count at confidenceLevel
+    private Map<String, CountInterval> ratingIntervals;
+    private Map<String, CountInterval> categoryIntervals;
+    private Long sampledRecords;
+    // Datasets without a usable sample, counted exactly
+    private Integer datasetsCountedExactly;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class CountInterval {
+        private long low;
+        private long high;
+    }
 }
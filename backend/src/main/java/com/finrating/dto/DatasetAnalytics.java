@@ -0,0 +1,18 @@
+package com.finrating.dto;
+
+import lombok.*;
+
+import java.util.DoubleSummaryStatistics;
+import java.util.Map;
+
+@Data
+@Builder
+public class DatasetAnalytics {
+    private Long datasetId;
+    private long recordCount;
+    private Map<String, Long> ratingDistribution;
+    private Map<String, Long> categoryDistribution;
+    // Per amount and ratio property: count, sum, min, average and max of the non-null values
+    private Map<String, DoubleSummaryStatistics> columns;
+    private long scanMicros;
+}
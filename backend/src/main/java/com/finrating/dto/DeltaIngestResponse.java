@@ -0,0 +1,18 @@
+package com.finrating.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+public class DeltaIngestResponse {
+    private Long datasetId;
+    private long rowsRead;
+    private long inserted;
+    private long updated;
+    private long unchanged;
+    // Not quarantined: fix the rows and send the delta again, unchanged rows cost nothing
+    private List<RejectedRowResponse> rejected;
+    private int recordCount;
+}
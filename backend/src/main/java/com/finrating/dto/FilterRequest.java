@@ -14,6 +14,9 @@ public class FilterRequest {
 
     private String searchKeyword;
 
+    // Restricts the filter to these of the user's datasets; archived ones are rehydrated first
+    private List<Long> datasetIds;
+
     private String sortBy = "calculatedAt";
     private String sortDirection = "DESC";
 }
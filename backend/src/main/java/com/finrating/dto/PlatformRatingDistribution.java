@@ -0,0 +1,24 @@
+package com.finrating.dto;
+
+import lombok.*;
+
+import java.util.Map;
+
+@Data
+@Builder
+public class PlatformRatingDistribution {
+    private String groupBy;
+    // Industry or country name -> rating -> record count
+    private Map<String, Map<String, Long>> distribution;
+    private long totalRecords;
+    private int segments;
+    private int segmentsCompleted;
+    private int segmentsFailed;
+    private int segmentsTimedOut;
+    // False when a segment failed or timed out; the counts then cover completed segments only
+    private boolean complete;
+    private int datasetsFromSnapshots;
+    // Archived datasets without a snapshot: their rows are not in the database
+    private int datasetsSkipped;
+    private long elapsedMillis;
+}
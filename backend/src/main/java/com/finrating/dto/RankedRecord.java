@@ -0,0 +1,20 @@
+package com.finrating.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RankedRecord {
+    private int rank;
+    private Long recordId;
+    private Long datasetId;
+    private String issuerName;
+    private String industry;
+    private String country;
+    private String rating;
+    private BigDecimal value;
+}
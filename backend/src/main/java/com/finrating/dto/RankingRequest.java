@@ -0,0 +1,21 @@
+package com.finrating.dto;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class RankingRequest {
+    // Record property to rank by, e.g. debtToEbitda
+    private String metric;
+    private String direction = "DESC";
+    private int limit = 100;
+
+    private List<String> industries;
+    private List<String> countries;
+    private List<String> ratings;
+
+    private String searchKeyword;
+
+    // Restricts the ranking to these of the user's datasets; archived ones are rehydrated first
+    private List<Long> datasetIds;
+}
@@ -0,0 +1,19 @@
+package com.finrating.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+public class RankingResponse {
+    private String metric;
+    private String direction;
+    // INDEX when read in order from a covering index, HEAP when streamed through a bounded heap
+    private String strategy;
+    // Rows read to produce the ranking
+    private long candidatesScanned;
+    private List<RankedRecord> records;
+    // Archived datasets left out of this ranking while they are rehydrated in the background
+    private List<Long> pendingDatasetIds;
+}
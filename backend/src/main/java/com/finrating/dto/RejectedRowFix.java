@@ -0,0 +1,10 @@
+package com.finrating.dto;
+
+import lombok.Data;
+
+/** Corrected version of a rejected row, as a CSV line in upload column order. */
+@Data
+public class RejectedRowFix {
+    private Long rowNumber;
+    private String rawText;
+}
@@ -0,0 +1,11 @@
+package com.finrating.dto;
+
+import lombok.*;
+
+@Data
+@Builder
+public class RejectedRowResponse {
+    private Long rowNumber;
+    private String rawText;
+    private String reason;
+}
@@ -0,0 +1,59 @@
+package com.finrating.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A record that matched an {@link AlertRule} when its dataset was ingested. Written
+ * in batches by the worker. Rule and record are referenced by id only and the
+ * matched values are copied in, so an alert still reads the same after its rule is
+ * deleted or its dataset archived.
+ */
+@Entity
+@Table(name = "alerts", indexes = {
+        @Index(columnList = "user_id, created_at"),
+        @Index(columnList = "dataset_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Alert {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "rule_id", nullable = false)
+    private Long ruleId;
+
+    @Column(nullable = false)
+    private String ruleName;
+
+    @Column(name = "dataset_id", nullable = false)
+    private Long datasetId;
+
+    private Long recordId;
+
+    private String issuerName;
+    private String industry;
+    private String country;
+
+    @Enumerated(EnumType.STRING)
+    private FinancialRecord.CreditRating rating;
+
+    @Enumerated(EnumType.STRING)
+    private FinancialRecord.RatingCategory category;
+
+    // The rule's metric value on the record, if the rule has one
+    private BigDecimal metricValue;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,87 @@
+package com.finrating.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A condition on ingested records that raises an {@link Alert} for the rule's owner
+ * whenever one of their datasets lands with a matching record. Every condition that
+ * is set must hold; unset conditions match anything.
+ */
+@Entity
+@Table(name = "alert_rules", indexes = @Index(columnList = "user_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AlertRule {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(nullable = false)
+    private String name;
+
+    /* ===================== SCOPE ===================== */
+
+    // Watchlist: the record's issuer must be one of these
+    @Builder.Default
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "alert_rule_issuers", joinColumns = @JoinColumn(name = "rule_id"))
+    @Column(name = "issuer_name", nullable = false)
+    private Set<String> issuers = new HashSet<>();
+
+    private String industry;
+    private String country;
+
+    /* ===================== CONDITIONS ===================== */
+
+    @Builder.Default
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "alert_rule_ratings", joinColumns = @JoinColumn(name = "rule_id"))
+    @Enumerated(EnumType.STRING)
+    @Column(name = "rating", nullable = false)
+    private Set<FinancialRecord.CreditRating> ratings = new HashSet<>();
+
+    @Enumerated(EnumType.STRING)
+    private FinancialRecord.RatingCategory category;
+
+    // Record property compared against the threshold, e.g. debtToEbitda
+    private String metric;
+
+    @Enumerated(EnumType.STRING)
+    private Comparison comparison;
+
+    private BigDecimal threshold;
+
+    /* ===================== LIFECYCLE ===================== */
+
+    @Builder.Default
+    @Column(nullable = false)
+    private boolean enabled = true;
+
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public enum Comparison {
+        GT, GTE, LT, LTE
+    }
+}
@@ -0,0 +1,21 @@
+package com.finrating.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/** Country names referenced by financial records. Rows are only ever added, never renamed. */
+@Entity
+@Table(name = "countries")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Country {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(nullable = false, unique = true)
+    private String name;
+}
@@ -1,5 +1,6 @@
 package com.finrating.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -31,11 +32,22 @@ public class Dataset {
     @Column(nullable = false)
     private Long fileSize;
 
-    @Column(nullable = false)
+    // Set right after the first insert, once the id used in the stored file name exists
     private String filePath;   // 🔴 used by Kafka consumer
 
+    /* ===================== BATCH ===================== */
+
+    // Set for datasets created from a batch archive; filePath is then the shared archive
+    private Long batchId;
+
+    // Entry inside the archive at filePath to ingest
+    private String archiveEntry;
+
     /* ===================== OWNERSHIP ===================== */
 
+    // Left out of JSON: the request principal comes from the token, so this is an
+    // uninitialised proxy when records are serialized with their dataset
+    @JsonIgnore
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
@@ -49,9 +61,20 @@ public class Dataset {
 
     private Integer recordCount;
 
+    // Rows quarantined in rejected_rows; non-zero only for COMPLETED_WITH_ERRORS
+    private Integer rejectedCount;
+
     private LocalDateTime uploadedAt;
     private LocalDateTime processedAt;
 
+    /* ===================== ARCHIVAL ===================== */
+
+    // Last read of the dataset's records, written in batches by DatasetAccessTracker
+    private LocalDateTime lastAccessedAt;
+
+    // Set while ARCHIVED: the records are in the archive file, not in financial_records
+    private LocalDateTime archivedAt;
+
     /* ===================== LIFECYCLE ===================== */
 
     @PrePersist
@@ -65,6 +88,8 @@ public class Dataset {
         PENDING,
         PROCESSING,
         COMPLETED,
-        FAILED
+        COMPLETED_WITH_ERRORS,
+        FAILED,
+        ARCHIVED
     }
 }
@@ -0,0 +1,44 @@
+package com.finrating.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One archive uploaded through the batch endpoint. Each supported entry becomes
+ * a child {@link Dataset} pointing back here through {@code batchId}; the batch
+ * status is derived from the children.
+ */
+@Entity
+@Table(name = "dataset_batches")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DatasetBatch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(nullable = false)
+    private Long fileSize;
+
+    // The archive as uploaded; children read their entries straight from it
+    private String filePath;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    private LocalDateTime uploadedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        this.uploadedAt = LocalDateTime.now();
+    }
+}
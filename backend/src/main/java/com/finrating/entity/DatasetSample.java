@@ -0,0 +1,38 @@
+package com.finrating.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Uniform sample of a dataset's records, drawn by the worker while it ingests them.
+ * Only the columns the approximate dashboard summary reads are kept, one byte per
+ * sampled row each.
+ */
+@Entity
+@Table(name = "dataset_samples")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DatasetSample {
+
+    public static final int MAX_ROWS = 65_535;
+
+    @Id
+    private Long datasetId;
+
+    // Dataset state the sample was drawn from, as ColumnarSnapshotStore.sourceVersion
+    @Column(nullable = false)
+    private Long sourceVersion;
+
+    // Records the sample was drawn from
+    @Column(nullable = false)
+    private Long population;
+
+    // Rating / category ordinal plus one of each sampled row; 0 when it had none
+    @Column(nullable = false, length = MAX_ROWS)
+    private byte[] ratings;
+
+    @Column(nullable = false, length = MAX_ROWS)
+    private byte[] categories;
+}
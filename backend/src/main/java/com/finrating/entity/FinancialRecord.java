@@ -1,28 +1,77 @@
 package com.finrating.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.finrating.repository.DimensionNameListener;
 import jakarta.persistence.*;
 import lombok.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "financial_records")
+@Table(name = "financial_records",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"dataset_id", "record_key"}))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@EntityListeners(DimensionNameListener.class)
 public class FinancialRecord {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
+    // No foreign key: on PostgreSQL each dataset's records live in their own
+    // partition, which is dropped after the dataset row is gone (RecordPartitions)
     @ManyToOne
-    @JoinColumn(name = "dataset_id")
+    @JoinColumn(name = "dataset_id", nullable = false,
+            foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Dataset dataset;
     
+    // Stored as ids into the issuers, industries and countries tables; the names
+    // are filled in on load and interned on save by DimensionNameListener
+    @Transient
     private String issuerName;
+    @Transient
     private String industry;
+    @Transient
     private String country;
+
+    @JsonIgnore
+    @Column(name = "issuer_id")
+    private Integer issuerId;
+    @JsonIgnore
+    @Column(name = "industry_id")
+    private Integer industryId;
+    @JsonIgnore
+    @Column(name = "country_id")
+    private Integer countryId;
+
+    // Read-only joins for sorting and searching by name. No foreign keys: ids only
+    // come from committed dimension rows, which are never deleted, and the checks
+    // would cost three index probes per inserted record
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "issuer_id", insertable = false, updatable = false,
+            foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private Issuer issuerRef;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "industry_id", insertable = false, updatable = false,
+            foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private Industry industryRef;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "country_id", insertable = false, updatable = false,
+            foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private Country countryRef;
     
     private BigDecimal revenue;
     private BigDecimal ebitda;
@@ -43,6 +92,12 @@ public class FinancialRecord {
     private RatingCategory category;
     
     private LocalDateTime calculatedAt;
+
+    // Delta mode only: issuer + country, and a hash of the input columns. Null on
+    // rows from full uploads, which may repeat an issuer.
+    @Column(length = 512)
+    private String recordKey;
+    private Long contentHash;
     
     public enum CreditRating {
         AAA, AA_PLUS, AA, AA_MINUS,
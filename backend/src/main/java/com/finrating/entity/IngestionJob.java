@@ -0,0 +1,65 @@
+package com.finrating.entity;
+
+import com.finrating.kafka.IngestionLane;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A dataset waiting for, or leased by, a worker when {@code app.dispatch.backend}
+ * is {@code jobqueue}. Written in the upload transaction like {@link OutboxEvent};
+ * {@code JobQueueWorker} leases rows with SKIP LOCKED, keeps the lease alive while
+ * ingesting and deletes the row when done. A RUNNING row whose lease has expired
+ * belonged to a worker that died and is leased again.
+ */
+@Entity
+@Table(name = "ingestion_jobs", indexes = {
+        @Index(columnList = "status, id"),
+        @Index(columnList = "user_id, status")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IngestionJob {
+
+    public enum Status { QUEUED, RUNNING }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long datasetId;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private IngestionLane lane;
+
+    /* ===================== LEASE ===================== */
+
+    @Builder.Default
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status = Status.QUEUED;
+
+    private String leaseOwner;
+    private LocalDateTime leaseExpiresAt;
+
+    // Leases taken so far; a job whose workers keep dying is given up after app.dispatch.jobqueue.max-attempts
+    @Builder.Default
+    @Column(nullable = false)
+    private int attempts = 0;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = LocalDateTime.now();
+    }
+}
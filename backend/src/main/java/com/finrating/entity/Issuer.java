@@ -0,0 +1,21 @@
+package com.finrating.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/** Issuer (company) names referenced by financial records. Rows are only ever added, never renamed. */
+@Entity
+@Table(name = "issuers")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Issuer {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(nullable = false, unique = true)
+    private String name;
+}
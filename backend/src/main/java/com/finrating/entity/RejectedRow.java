@@ -0,0 +1,35 @@
+package com.finrating.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Source row that could not be ingested. The raw text is kept as a CSV line for
+ * both CSV and Excel uploads, so a corrected row can be resubmitted as-is.
+ */
+@Entity
+@Table(name = "rejected_rows", indexes = @Index(columnList = "dataset_id, source_row"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RejectedRow {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "dataset_id", nullable = false)
+    private Dataset dataset;
+
+    // 1-based row in the uploaded file, header included
+    @Column(name = "source_row", nullable = false)
+    private Long rowNumber;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String rawText;
+
+    @Column(nullable = false, length = 500)
+    private String reason;
+}
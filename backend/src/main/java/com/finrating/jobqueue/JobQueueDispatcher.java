@@ -0,0 +1,67 @@
+package com.finrating.jobqueue;
+
+import com.finrating.entity.Dataset;
+import com.finrating.entity.IngestionJob;
+import com.finrating.kafka.IngestionLaneSelector;
+import com.finrating.repository.IngestionJobRepository;
+import com.finrating.service.DatasetDispatcher;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Queues datasets as {@code ingestion_jobs} rows instead of Kafka messages, for
+ * environments without a broker. On PostgreSQL the insert is followed by a
+ * {@code NOTIFY}, delivered on commit, which wakes idle {@link JobQueueWorker}
+ * pollers on every node; a worker in the same process is also woken directly.
+ */
+@Service
+@ConditionalOnProperty(name = "app.dispatch.backend", havingValue = "jobqueue")
+@RequiredArgsConstructor
+public class JobQueueDispatcher implements DatasetDispatcher {
+
+    static final String CHANNEL = "ingestion_jobs";
+
+    private final IngestionJobRepository ingestionJobRepository;
+    private final IngestionLaneSelector laneSelector;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectProvider<JobQueueWorker> localWorker;
+    private volatile Boolean postgres;
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void dispatch(Dataset dataset) {
+        ingestionJobRepository.save(IngestionJob.builder()
+                .datasetId(dataset.getId())
+                .userId(dataset.getUser().getId())
+                .lane(laneSelector.laneFor(dataset))
+                .build());
+
+        // Repeated notifications within one transaction are folded into one
+        if (isPostgres()) jdbcTemplate.execute("NOTIFY " + CHANNEL);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                localWorker.ifAvailable(JobQueueWorker::wake);
+            }
+        });
+    }
+
+    private boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            result = "PostgreSQL".equals(jdbcTemplate.execute(
+                    (ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName()));
+            postgres = result;
+        }
+        return result;
+    }
+}
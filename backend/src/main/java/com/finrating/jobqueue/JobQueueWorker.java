@@ -0,0 +1,370 @@
+package com.finrating.jobqueue;
+
+import com.finrating.entity.Dataset;
+import com.finrating.entity.IngestionJob;
+import com.finrating.kafka.IngestionLane;
+import com.finrating.kafka.KafkaConsumerService;
+import com.finrating.repository.DatasetRepository;
+import com.finrating.repository.IngestionJobRepository;
+import com.finrating.service.IngestionBulkhead;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ingests datasets from {@code ingestion_jobs} when {@code app.dispatch.backend} is
+ * {@code jobqueue}. Each node runs {@code app.dispatch.jobqueue.workers} pollers (by
+ * default one per ingestion slot); a poller leases one job at a time with
+ * {@code SELECT ... FOR UPDATE SKIP LOCKED}, ingests it and deletes the row, so any
+ * number of nodes share the queue without coordinating.
+ * <ul>
+ *   <li>Leases last {@code lease} ms and are renewed every {@code heartbeat-interval}
+ *       while the ingest runs. Expiry is set and checked on the database clock, so
+ *       nodes whose clocks drift apart still agree on it. A lease that runs out means the worker died: the job
+ *       is leased again, and given up with the dataset FAILED once it has been
+ *       leased {@code max-attempts} times.</li>
+ *   <li>Users with the fewest running jobs are served first, and large-lane jobs
+ *       never hold every poller of a node, as with {@code IngestionScheduler}.</li>
+ *   <li>Idle pollers sleep until a job is queued: on PostgreSQL one connection per
+ *       node LISTENs for the dispatcher's NOTIFY. They also wake every
+ *       {@code poll-interval} ms, which picks up expired leases and is the only
+ *       trigger on other databases.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+@Profile("!api")
+@ConditionalOnProperty(name = "app.dispatch.backend", havingValue = "jobqueue")
+public class JobQueueWorker {
+
+    private static final List<String> ALL_LANES = Arrays.stream(IngestionLane.values()).map(Enum::name).toList();
+    private static final List<String> SMALL_LANE = List.of(IngestionLane.SMALL.name());
+
+    private final IngestionJobRepository ingestionJobRepository;
+    private final DatasetRepository datasetRepository;
+    private final KafkaConsumerService ingestion;
+    private final IngestionBulkhead ingestionBulkhead;
+    private final TransactionTemplate transactionTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final int pollers;
+    private final int maxLarge;
+    private final long pollIntervalMs;
+    private final Duration lease;
+    private final long heartbeatIntervalMs;
+    private final int maxAttempts;
+
+    private final String owner;
+    private final Map<IngestionLane, Timer> queueWait = new EnumMap<>(IngestionLane.class);
+    private final Counter expiredLeases;
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger runningLarge = new AtomicInteger();
+    private final List<Thread> threads = new ArrayList<>();
+    private final ScheduledExecutorService heartbeats;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition jobQueued = lock.newCondition();
+    private long wakeups;
+    private volatile boolean stopped;
+
+    public JobQueueWorker(IngestionJobRepository ingestionJobRepository,
+                          DatasetRepository datasetRepository,
+                          KafkaConsumerService ingestion,
+                          IngestionBulkhead ingestionBulkhead,
+                          TransactionTemplate transactionTemplate,
+                          DataSourceProperties dataSourceProperties,
+                          MeterRegistry meterRegistry,
+                          @Value("${app.dispatch.jobqueue.workers:0}") int workers,
+                          @Value("${app.ingestion.max-concurrent:2}") int maxConcurrent,
+                          @Value("${app.ingestion.lanes.large.max-concurrent:1}") int maxLarge,
+                          @Value("${app.dispatch.jobqueue.poll-interval:2000}") long pollIntervalMs,
+                          @Value("${app.dispatch.jobqueue.lease:60000}") long leaseMs,
+                          @Value("${app.dispatch.jobqueue.heartbeat-interval:15000}") long heartbeatIntervalMs,
+                          @Value("${app.dispatch.jobqueue.max-attempts:3}") int maxAttempts) {
+        if (heartbeatIntervalMs * 2 > leaseMs) {
+            throw new IllegalArgumentException("Job queue leases must last at least two heartbeat intervals");
+        }
+        this.ingestionJobRepository = ingestionJobRepository;
+        this.datasetRepository = datasetRepository;
+        this.ingestion = ingestion;
+        this.ingestionBulkhead = ingestionBulkhead;
+        this.transactionTemplate = transactionTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.pollers = workers > 0 ? workers : maxConcurrent;
+        // Keep at least one poller for the small lane
+        this.maxLarge = pollers > 1 ? Math.min(maxLarge, pollers - 1) : 1;
+        this.pollIntervalMs = pollIntervalMs;
+        this.lease = Duration.ofMillis(leaseMs);
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+        this.maxAttempts = maxAttempts;
+        this.owner = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+
+        // Same meters as IngestionScheduler, so dashboards do not depend on the backend
+        for (IngestionLane lane : IngestionLane.values()) {
+            queueWait.put(lane, Timer.builder("ingestion.queue.wait")
+                    .description("Time from delivery to the start of ingestion")
+                    .tag("lane", lane.name().toLowerCase())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        this.expiredLeases = Counter.builder("ingestion.jobqueue.leases.expired")
+                .description("Jobs leased again after their worker stopped renewing the lease")
+                .register(meterRegistry);
+
+        // Own thread: a long task on the shared @Scheduled thread must not let leases lapse
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(
+                runnable -> new Thread(runnable, "job-queue-heartbeat"));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (int i = 1; i <= pollers; i++) {
+            threads.add(new Thread(this::poll, "job-queue-" + i));
+        }
+        String url = dataSourceProperties.determineUrl();
+        if (url != null && url.startsWith("jdbc:postgresql:")) {
+            Thread listener = new Thread(() -> listen(url), "job-queue-listen");
+            listener.setDaemon(true);
+            threads.add(listener);
+        }
+        threads.forEach(Thread::start);
+        heartbeats.scheduleWithFixedDelay(this::heartbeat, heartbeatIntervalMs, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+
+        log.info("Job queue worker {} polling with {} threads", owner, pollers);
+    }
+
+    /** Wakes idle pollers; called for every NOTIFY and after local dispatches commit. */
+    public void wake() {
+        lock.lock();
+        try {
+            wakeups++;
+            jobQueued.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Pollers finish the ingest they are running; jobs not leased yet stay queued
+        stopped = true;
+        wake();
+        heartbeats.shutdownNow();
+    }
+
+    /* ===================== POLLING ===================== */
+
+    private void poll() {
+        while (!stopped) {
+            long seen = wakeups();
+            try {
+                if (leaseAndRun()) continue;
+            } catch (RuntimeException e) {
+                log.warn("Job queue poll failed: {}", e.getMessage());
+            }
+            awaitWakeup(seen);
+        }
+    }
+
+    /** Leases and runs one job; false when there was nothing to lease. */
+    private boolean leaseAndRun() {
+        boolean largeSlot = reserveLargeSlot();
+        IngestionJob job = null;
+        try {
+            job = lease(largeSlot ? ALL_LANES : SMALL_LANE);
+        } finally {
+            if (largeSlot && (job == null || job.getLane() != IngestionLane.LARGE)) runningLarge.decrementAndGet();
+        }
+        if (job == null) return false;
+
+        try {
+            run(job);
+        } finally {
+            if (job.getLane() == IngestionLane.LARGE) runningLarge.decrementAndGet();
+        }
+        return true;
+    }
+
+    private IngestionJob lease(List<String> lanes) {
+        return transactionTemplate.execute(status -> {
+            while (true) {
+                Optional<IngestionJob> next = ingestionJobRepository.lockNextClaimable(lanes);
+                if (next.isEmpty()) return null;
+
+                IngestionJob job = next.get();
+                if (job.getStatus() == IngestionJob.Status.RUNNING) {
+                    expiredLeases.increment();
+                    log.warn("Lease of {} on dataset {} expired, leasing it again", job.getLeaseOwner(), job.getDatasetId());
+                }
+                if (job.getAttempts() >= maxAttempts) {
+                    giveUp(job);
+                    continue;
+                }
+
+                // The expiry is set on the database clock; the detached copy only mirrors the rest
+                ingestionJobRepository.claim(job.getId(), owner, leaseSeconds());
+                job.setStatus(IngestionJob.Status.RUNNING);
+                job.setLeaseOwner(owner);
+                job.setAttempts(job.getAttempts() + 1);
+                return job;
+            }
+        });
+    }
+
+    /** Must run in the lease transaction. */
+    private void giveUp(IngestionJob job) {
+        log.error("Dataset {} lost its worker {} times, marking it failed", job.getDatasetId(), job.getAttempts());
+        datasetRepository.findById(job.getDatasetId()).ifPresent(dataset -> {
+            if (dataset.getStatus() == Dataset.ProcessingStatus.PENDING
+                    || dataset.getStatus() == Dataset.ProcessingStatus.PROCESSING) {
+                dataset.setStatus(Dataset.ProcessingStatus.FAILED);
+                datasetRepository.save(dataset);
+            }
+        });
+        ingestionJobRepository.delete(job);
+    }
+
+    private void run(IngestionJob job) {
+        if (job.getAttempts() == 1) {
+            queueWait.get(job.getLane()).record(Duration.between(job.getCreatedAt(), LocalDateTime.now()));
+        }
+
+        running.incrementAndGet();
+        try {
+            // A failed ingest has marked the dataset FAILED and is not retried, as with Kafka
+            ingestionBulkhead.run(() -> ingestion.ingestOrMarkFailed(job.getDatasetId()));
+        } catch (Exception e) {
+            log.error("Ingestion of dataset {} failed", job.getDatasetId(), e);
+        } finally {
+            running.decrementAndGet();
+            try {
+                transactionTemplate.executeWithoutResult(status -> ingestionJobRepository.deleteLeased(job.getId(), owner));
+            } catch (RuntimeException e) {
+                // The lease runs out and the next worker skips the finished dataset
+                log.warn("Could not remove the job of dataset {}: {}", job.getDatasetId(), e.getMessage());
+            }
+        }
+    }
+
+    private boolean reserveLargeSlot() {
+        while (true) {
+            int current = runningLarge.get();
+            if (current >= maxLarge) return false;
+            if (runningLarge.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    /* ===================== LEASES ===================== */
+
+    private void heartbeat() {
+        int held = running.get();
+        if (held == 0) return;
+        try {
+            Integer renewed = transactionTemplate.execute(status ->
+                    ingestionJobRepository.extendLeases(owner, leaseSeconds()));
+            if (renewed != null && renewed < held) {
+                log.warn("Worker {} renewed {} of {} leases; the rest passed to other workers", owner, renewed, held);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not renew job queue leases: {}", e.getMessage());
+        }
+    }
+
+    private double leaseSeconds() {
+        return lease.toMillis() / 1000.0;
+    }
+
+    /* ===================== WAKEUPS ===================== */
+
+    private long wakeups() {
+        lock.lock();
+        try {
+            return wakeups;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Sleeps until the next wakeup after {@code seen}, or for at most the poll interval. */
+    private void awaitWakeup(long seen) {
+        lock.lock();
+        try {
+            long remaining = TimeUnit.MILLISECONDS.toNanos(pollIntervalMs);
+            while (wakeups == seen && !stopped && remaining > 0) {
+                remaining = jobQueued.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopped = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Holds one connection outside the pools that LISTENs for new jobs, and
+     * reconnects after a poll interval when it is lost.
+     */
+    private void listen(String url) {
+        while (!stopped) {
+            try (Connection connection = DriverManager.getConnection(url,
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + JobQueueDispatcher.CHANNEL);
+                }
+                PGConnection pg = connection.unwrap(PGConnection.class);
+                // Jobs may have been queued while nobody was listening
+                wake();
+
+                while (!stopped) {
+                    PGNotification[] notifications = pg.getNotifications((int) pollIntervalMs);
+                    if (notifications != null && notifications.length > 0) wake();
+                }
+            } catch (SQLException e) {
+                if (stopped) return;
+                log.warn("Job queue LISTEN connection failed, polling every {} ms until it is back: {}",
+                        pollIntervalMs, e.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "worker";
+        }
+    }
+}
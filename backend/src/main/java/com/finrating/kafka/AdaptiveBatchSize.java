@@ -0,0 +1,112 @@
+package com.finrating.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows per JDBC batch insert for {@link KafkaConsumerService}, tuned by AIMD on every
+ * flush: while a flush finishes within {@code target-latency} and the heap has
+ * {@code min-heap-headroom} free, the size grows by {@code increase}; otherwise it is
+ * multiplied by {@code decrease-factor}. Bulk loads on an idle database climb towards
+ * {@code max}, and a busy database or a filling heap pulls it back within a flush or
+ * two. All ingests of the process share one size, since they share the database.
+ * <p>
+ * The current size is the gauge {@code ingestion.batch.size}; cuts are counted in
+ * {@code ingestion.batch.decreases{reason=latency|heap}}. With {@code adaptive: false},
+ * the default, the size stays at {@code initial}.
+ */
+@Slf4j
+@Component
+@Profile("!api")
+public class AdaptiveBatchSize {
+
+    private final boolean adaptive;
+    private final int min;
+    private final int max;
+    private final int increase;
+    private final double decreaseFactor;
+    private final long targetLatencyNanos;
+    private final double minHeapHeadroom;
+
+    private final Counter latencyDecreases;
+    private final Counter heapDecreases;
+    private volatile int size;
+
+    public AdaptiveBatchSize(MeterRegistry meterRegistry,
+                             @Value("${app.ingestion.batch.adaptive:false}") boolean adaptive,
+                             @Value("${app.ingestion.batch.initial:500}") int initial,
+                             @Value("${app.ingestion.batch.min:100}") int min,
+                             @Value("${app.ingestion.batch.max:5000}") int max,
+                             @Value("${app.ingestion.batch.increase:100}") int increase,
+                             @Value("${app.ingestion.batch.decrease-factor:0.5}") double decreaseFactor,
+                             @Value("${app.ingestion.batch.target-latency:250}") long targetLatencyMs,
+                             @Value("${app.ingestion.batch.min-heap-headroom:0.2}") double minHeapHeadroom) {
+        if (min < 1 || min > max || initial < min || initial > max) {
+            throw new IllegalArgumentException("Batch sizes must satisfy 1 <= min <= initial <= max");
+        }
+        this.adaptive = adaptive;
+        this.min = min;
+        this.max = max;
+        this.increase = increase;
+        this.decreaseFactor = decreaseFactor;
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMs);
+        this.minHeapHeadroom = minHeapHeadroom;
+        this.size = initial;
+
+        Gauge.builder("ingestion.batch.size", this, AdaptiveBatchSize::current)
+                .description("Rows per ingestion write batch")
+                .register(meterRegistry);
+        this.latencyDecreases = decreases(meterRegistry, "latency");
+        this.heapDecreases = decreases(meterRegistry, "heap");
+    }
+
+    /** Rows to collect before the next flush. */
+    public int current() {
+        return size;
+    }
+
+    /** Feeds back one flush of {@code rows} rows that took {@code elapsedNanos}. */
+    public synchronized void record(int rows, long elapsedNanos) {
+        if (!adaptive) return;
+
+        // A short final batch says little about how a full one would do
+        if (rows < size / 2 && elapsedNanos <= targetLatencyNanos) return;
+
+        int previous = size;
+        if (elapsedNanos > targetLatencyNanos) {
+            size = Math.max(min, (int) (size * decreaseFactor));
+            latencyDecreases.increment();
+        } else if (heapHeadroom() < minHeapHeadroom) {
+            size = Math.max(min, (int) (size * decreaseFactor));
+            heapDecreases.increment();
+        } else {
+            size = Math.min(max, size + increase);
+        }
+
+        if (size != previous) {
+            log.debug("Batch size {} -> {} after {} rows in {} ms",
+                    previous, size, rows, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        }
+    }
+
+    /** Fraction of the maximum heap not in use. */
+    private static double heapHeadroom() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        return 1.0 - (double) used / runtime.maxMemory();
+    }
+
+    private static Counter decreases(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("ingestion.batch.decreases")
+                .description("Multiplicative cuts of the ingestion batch size")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
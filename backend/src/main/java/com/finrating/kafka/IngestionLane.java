@@ -0,0 +1,30 @@
+package com.finrating.kafka;
+
+import java.util.Arrays;
+
+/**
+ * Ingestion lanes. Each lane has its own topic so a burst of large uploads never
+ * sits in front of small ones in the same partition.
+ */
+public enum IngestionLane {
+
+    SMALL(KafkaProducerService.DATASET_PROCESSING_TOPIC),
+    LARGE(KafkaProducerService.DATASET_PROCESSING_LARGE_TOPIC);
+
+    private final String topic;
+
+    IngestionLane(String topic) {
+        this.topic = topic;
+    }
+
+    public String topic() {
+        return topic;
+    }
+
+    public static IngestionLane fromTopic(String topic) {
+        return Arrays.stream(values())
+                .filter(lane -> lane.topic.equals(topic))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("No ingestion lane for topic: " + topic));
+    }
+}
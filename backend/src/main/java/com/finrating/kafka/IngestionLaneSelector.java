@@ -0,0 +1,37 @@
+package com.finrating.kafka;
+
+import com.finrating.entity.Dataset;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Picks the lane a dataset is ingested in from its size and format. Shared by both
+ * dispatch backends.
+ */
+@Component
+public class IngestionLaneSelector {
+
+    @Value("${app.ingestion.lanes.large-threshold:10485760}")
+    private long largeThresholdBytes;
+
+    @Value("${app.ingestion.lanes.excel-cost-factor:5}")
+    private int excelCostFactor;
+
+    @Value("${app.ingestion.lanes.compressed-cost-factor:8}")
+    private int compressedCostFactor;
+
+    /**
+     * Excel parses several times slower than CSV and compressed CSVs expand several
+     * times over, so their bytes count for more.
+     */
+    public IngestionLane laneFor(Dataset dataset) {
+        long cost = dataset.getFileSize() == null ? 0 : dataset.getFileSize();
+        String fileType = dataset.getFileType() == null ? "" : dataset.getFileType().toLowerCase();
+        if (fileType.equals("xlsx") || fileType.equals("xls")) {
+            cost *= excelCostFactor;
+        } else if (fileType.equals("csv.gz") || fileType.equals("csv.zst") || fileType.equals("zip")) {
+            cost *= compressedCostFactor;
+        }
+        return cost >= largeThresholdBytes ? IngestionLane.LARGE : IngestionLane.SMALL;
+    }
+}
@@ -0,0 +1,268 @@
+package com.finrating.kafka;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sits between the Kafka listener and the actual ingest. Jobs are queued per lane
+ * and per user and dispatched onto a fixed set of ingestion slots:
+ * <ul>
+ *   <li>within a lane, users are served by weighted fair queuing (start-time
+ *       virtual clock), so one user's backlog cannot delay everyone else;</li>
+ *   <li>the small lane goes first, except that one large job is always allowed
+ *       to run so big uploads keep moving;</li>
+ *   <li>large jobs never occupy more than {@code app.ingestion.lanes.large.max-concurrent}
+ *       slots, leaving the rest for small uploads.</li>
+ * </ul>
+ * Offsets are acknowledged only after the job finishes (out-of-order acks), so
+ * queued jobs are redelivered if the worker dies. The listener is paused while
+ * the in-memory queue is full.
+ */
+@Slf4j
+@Component
+@Profile("!api")
+public class IngestionScheduler {
+
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final ExecutorService slots;
+    private final int maxConcurrent;
+    private final int maxLarge;
+    private final int maxQueued;
+    private final Map<Long, Double> userWeights;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<IngestionLane, LaneQueue> lanes = new EnumMap<>(IngestionLane.class);
+    private final Set<Long> pendingDatasets = new HashSet<>();
+    private int running;
+    private boolean paused;
+
+    public IngestionScheduler(KafkaListenerEndpointRegistry listenerRegistry,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.ingestion.max-concurrent:2}") int maxConcurrent,
+                              @Value("${app.ingestion.lanes.large.max-concurrent:1}") int maxLarge,
+                              @Value("${app.ingestion.scheduler.max-queued:1000}") int maxQueued,
+                              @Value("${app.ingestion.fair-share.weights:}") String userWeights) {
+        this.listenerRegistry = listenerRegistry;
+        this.maxConcurrent = maxConcurrent;
+        // Keep at least one slot for the small lane
+        this.maxLarge = maxConcurrent > 1 ? Math.min(maxLarge, maxConcurrent - 1) : 1;
+        this.maxQueued = maxQueued;
+        this.userWeights = parseWeights(userWeights);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.slots = Executors.newFixedThreadPool(maxConcurrent,
+                runnable -> new Thread(runnable, "ingestion-" + threadNumber.incrementAndGet()));
+
+        for (IngestionLane lane : IngestionLane.values()) {
+            LaneQueue queue = new LaneQueue(Timer.builder("ingestion.queue.wait")
+                    .description("Time from delivery to the start of ingestion")
+                    .tag("lane", lane.name().toLowerCase())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+            lanes.put(lane, queue);
+
+            Gauge.builder("ingestion.queue.depth", queue, q -> q.size)
+                    .description("Datasets waiting for an ingestion slot")
+                    .tag("lane", lane.name().toLowerCase())
+                    .register(meterRegistry);
+            Gauge.builder("ingestion.running", queue, q -> q.running)
+                    .description("Datasets currently being ingested")
+                    .tag("lane", lane.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Queues one dataset. {@code onDone} runs after the ingest finishes, whether it
+     * succeeded or not, and is where the caller acknowledges the message.
+     */
+    public void submit(IngestionLane lane, Long userId, Long datasetId, Runnable ingest, Runnable onDone) {
+        lock.lock();
+        try {
+            if (!pendingDatasets.add(datasetId)) {
+                log.debug("Dataset {} is already queued or running, dropping redelivery", datasetId);
+                onDone.run();
+                return;
+            }
+
+            lanes.get(lane).add(new Job(lane, userId, datasetId, ingest, onDone, System.nanoTime()));
+            dispatch();
+
+            if (!paused && queued() >= maxQueued) {
+                log.warn("Ingestion queue full ({} datasets), pausing listener", queued());
+                listenerContainer().pause();
+                paused = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /* ===================== DISPATCH ===================== */
+
+    /** Must hold {@link #lock}. */
+    private void dispatch() {
+        while (running < maxConcurrent) {
+            Job job = next();
+            if (job == null) break;
+
+            running++;
+            lanes.get(job.lane()).running++;
+            slots.execute(() -> execute(job));
+        }
+
+        if (paused && queued() <= maxQueued / 2) {
+            listenerContainer().resume();
+            paused = false;
+        }
+    }
+
+    private Job next() {
+        LaneQueue small = lanes.get(IngestionLane.SMALL);
+        LaneQueue large = lanes.get(IngestionLane.LARGE);
+        boolean largeEligible = large.size > 0 && large.running < maxLarge;
+
+        if (largeEligible && large.running == 0) return large.poll();
+        if (small.size > 0) return small.poll();
+        if (largeEligible) return large.poll();
+        return null;
+    }
+
+    private void execute(Job job) {
+        lanes.get(job.lane()).queueWait.record(System.nanoTime() - job.enqueuedNanos(), TimeUnit.NANOSECONDS);
+
+        try {
+            job.ingest().run();
+        } catch (Exception e) {
+            log.error("Ingestion of dataset {} failed", job.datasetId(), e);
+        } finally {
+            try {
+                job.onDone().run();
+            } catch (Exception e) {
+                // e.g. the partition was revoked meanwhile; the new owner skips the finished dataset
+                log.warn("Could not acknowledge dataset {}: {}", job.datasetId(), e.getMessage());
+            }
+
+            lock.lock();
+            try {
+                running--;
+                lanes.get(job.lane()).running--;
+                pendingDatasets.remove(job.datasetId());
+                dispatch();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private int queued() {
+        int total = 0;
+        for (LaneQueue queue : lanes.values()) total += queue.size;
+        return total;
+    }
+
+    private MessageListenerContainer listenerContainer() {
+        return listenerRegistry.getListenerContainer(KafkaConsumerService.LISTENER_ID);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Queued jobs were never acknowledged and will be redelivered
+        slots.shutdown();
+    }
+
+    /* ===================== FAIR QUEUE ===================== */
+
+    private record Job(IngestionLane lane, Long userId, Long datasetId,
+                       Runnable ingest, Runnable onDone, long enqueuedNanos) {
+    }
+
+    /**
+     * Start-time fair queuing: each user carries a virtual start tag, the user
+     * with the lowest tag is served next and its tag advances by 1 / weight.
+     * Users becoming active start at the current virtual time, so idle periods
+     * do not bank credit.
+     */
+    private final class LaneQueue {
+
+        private final Timer queueWait;
+        private final Map<Long, Deque<Job>> byUser = new HashMap<>();
+        private final Map<Long, Double> startTags = new HashMap<>();
+        private double virtualTime;
+        private int size;
+        private int running;
+
+        private LaneQueue(Timer queueWait) {
+            this.queueWait = queueWait;
+        }
+
+        void add(Job job) {
+            Deque<Job> jobs = byUser.get(job.userId());
+            if (jobs == null) {
+                jobs = new ArrayDeque<>();
+                byUser.put(job.userId(), jobs);
+                startTags.merge(job.userId(), virtualTime, Math::max);
+            }
+            jobs.add(job);
+            size++;
+        }
+
+        Job poll() {
+            Long userId = null;
+            double lowest = Double.MAX_VALUE;
+            for (Long candidate : byUser.keySet()) {
+                double tag = startTags.get(candidate);
+                if (tag < lowest) {
+                    lowest = tag;
+                    userId = candidate;
+                }
+            }
+            if (userId == null) return null;
+
+            Deque<Job> jobs = byUser.get(userId);
+            Job job = jobs.poll();
+            if (jobs.isEmpty()) byUser.remove(userId);
+
+            virtualTime = lowest;
+            startTags.put(userId, lowest + 1.0 / userWeights.getOrDefault(userId, 1.0));
+            // Tags of idle users at or behind the clock carry no information
+            startTags.keySet().removeIf(id -> !byUser.containsKey(id) && startTags.get(id) <= virtualTime);
+            size--;
+            return job;
+        }
+    }
+
+    /** Parses {@code "userId:weight,userId:weight"}. */
+    private static Map<Long, Double> parseWeights(String spec) {
+        Map<Long, Double> weights = new HashMap<>();
+        if (spec == null || spec.isBlank()) return weights;
+
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new RuntimeException("Invalid fair-share weight entry: " + entry);
+            }
+            double weight = Double.parseDouble(parts[1].trim());
+            if (weight <= 0) {
+                throw new RuntimeException("Fair-share weight must be positive: " + entry);
+            }
+            weights.put(Long.valueOf(parts[0].trim()), weight);
+        }
+        return weights;
+    }
+}
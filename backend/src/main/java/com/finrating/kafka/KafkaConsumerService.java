@@ -2,46 +2,133 @@ package com.finrating.kafka;
 
 import com.finrating.entity.Dataset;
 import com.finrating.entity.FinancialRecord;
+import com.finrating.entity.RejectedRow;
+import com.finrating.metrics.IngestionMetrics;
+import com.finrating.repository.ColumnarSnapshot;
+import com.finrating.repository.ColumnarSnapshotStore;
 import com.finrating.repository.DatasetRepository;
-import com.finrating.repository.FinancialRecordRepository;
+import com.finrating.repository.DatasetSampleStore;
+import com.finrating.repository.FinancialRecordBulkWriter;
+import com.finrating.repository.RecordPartitions;
+import com.finrating.repository.RejectedRowRepository;
+import com.finrating.service.AlertRuleEngine;
+import com.finrating.service.FinancialRecordParser;
+import com.finrating.service.IngestionBulkhead;
 import com.finrating.service.RatingService;
+import com.github.luben.zstd.ZstdInputStream;
 import com.opencsv.CSVReader;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.*;
-import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
 @Service
+@Profile("!api")
 @RequiredArgsConstructor
+@Slf4j
 public class KafkaConsumerService {
 
-    private static final int BATCH_SIZE = 500;
+    public static final String LISTENER_ID = "dataset-ingestion";
+
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final List<String> CSV_FILE_TYPES = List.of("csv", "csv.gz", "csv.zst", "zip");
 
     private final DatasetRepository datasetRepository;
-    private final FinancialRecordRepository financialRecordRepository;
+    private final FinancialRecordBulkWriter bulkWriter;
     private final RatingService ratingService;
+    private final FinancialRecordParser recordParser;
+    private final IngestionMetrics ingestionMetrics;
+    private final IngestionBulkhead ingestionBulkhead;
+    private final TransactionTemplate transactionTemplate;
+    private final IngestionScheduler ingestionScheduler;
+    private final RejectedRowRepository rejectedRowRepository;
+    private final RecordPartitions recordPartitions;
+    private final ColumnarSnapshotStore snapshotStore;
+    private final DatasetSampleStore sampleStore;
+    private final AlertRuleEngine alertRuleEngine;
+    private final AdaptiveBatchSize batchSize;
+
+    @Value("${app.ingestion.error-budget.max-rows:1000}")
+    private int maxRejectedRows;
+
+    @Value("${app.ingestion.error-budget.max-ratio:0.1}")
+    private double maxRejectedRatio;
+
+    /**
+     * Hands the dataset to {@link IngestionScheduler}; the offset is acknowledged
+     * once the ingest has run. The message key is the owning user's id. Not started
+     * when datasets are dispatched through the job queue.
+     */
+    @KafkaListener(
+            id = LISTENER_ID,
+            topics = {KafkaProducerService.DATASET_PROCESSING_TOPIC, KafkaProducerService.DATASET_PROCESSING_LARGE_TOPIC},
+            groupId = "financial-rating-group",
+            autoStartup = "#{'${app.dispatch.backend:kafka}' == 'kafka'}"
+    )
+    public void processDataset(ConsumerRecord<String, String> message, Acknowledgment ack) {
+
+        Long datasetId = Long.valueOf(message.value());
+        Long userId = message.key() == null ? 0L : Long.valueOf(message.key());
+
+        ingestionScheduler.submit(
+                IngestionLane.fromTopic(message.topic()),
+                userId,
+                datasetId,
+                // Take the slot before the transaction so waiting ingests hold no write connection
+                () -> ingestionBulkhead.run(() -> ingestOrMarkFailed(datasetId)),
+                ack::acknowledge
+        );
+    }
 
-    @KafkaListener(topics = "dataset-processing", groupId = "financial-rating-group")
-    @Transactional
-    public void processDataset(String message) {
-
-        Long datasetId = Long.valueOf(message);
+    /**
+     * Ingests one dataset in a transaction of its own; on failure the dataset is
+     * marked FAILED and the exception rethrown. Also called by {@code JobQueueWorker}.
+     */
+    public void ingestOrMarkFailed(Long datasetId) {
+        try {
+            recordPartitions.ensurePartition(datasetId);
+            transactionTemplate.executeWithoutResult(status -> ingest(datasetId));
+        } catch (RuntimeException e) {
+            // The ingest transaction rolled back, so the failure is recorded in its own
+            transactionTemplate.executeWithoutResult(status -> markFailed(datasetId));
+            throw e;
+        }
+    }
 
-        System.out.println("=== KAFKA START ===");
-        System.out.println("Dataset ID: " + datasetId);
+    private void ingest(Long datasetId) {
 
-        Dataset dataset = datasetRepository.findById(datasetId)
+        Dataset dataset = datasetRepository.findByIdForUpdate(datasetId)
                 .orElseThrow(() -> new RuntimeException("Dataset not found: " + datasetId));
 
-        System.out.println("File path: " + dataset.getFilePath());
+        // Both dispatch backends deliver at-least-once; ignore redeliveries of finished work
+        if (dataset.getStatus() == Dataset.ProcessingStatus.COMPLETED
+                || dataset.getStatus() == Dataset.ProcessingStatus.COMPLETED_WITH_ERRORS
+                || dataset.getStatus() == Dataset.ProcessingStatus.ARCHIVED) {
+            log.info("Dataset {} already processed, skipping duplicate message", datasetId);
+            return;
+        }
+
+        log.info("Processing dataset {} from {}", datasetId, dataset.getFilePath());
+
+        IngestionMetrics.Tracker tracker = ingestionMetrics.track(dataset);
+        RowSink rows = new RowSink(dataset, tracker);
 
         try {
             /* ===================== MARK PROCESSING ===================== */
@@ -53,79 +140,139 @@ public class KafkaConsumerService {
                 throw new RuntimeException("File not found at path: " + dataset.getFilePath());
             }
 
-            int recordCount;
             String fileType = dataset.getFileType().toLowerCase();
 
-            if (fileType.equals("csv")) {
-                recordCount = processCSV(file, dataset);
-            } else if (fileType.equals("xlsx") || fileType.equals("xls")) {
-                recordCount = processExcel(file, dataset);
-            } else {
-                throw new RuntimeException("Unsupported file type: " + fileType);
+            try (InputStream in = openSource(file, dataset)) {
+                if (CSV_FILE_TYPES.contains(fileType)) {
+                    processCSV(in, fileType, rows);
+                } else if (fileType.equals("xlsx") || fileType.equals("xls")) {
+                    processExcel(in, rows);
+                } else {
+                    throw new RuntimeException("Unsupported file type: " + fileType);
+                }
             }
+            rows.finish();
 
             /* ===================== MARK COMPLETED ===================== */
-            dataset.setStatus(Dataset.ProcessingStatus.COMPLETED);
+            dataset.setStatus(rows.rejected.isEmpty()
+                    ? Dataset.ProcessingStatus.COMPLETED
+                    : Dataset.ProcessingStatus.COMPLETED_WITH_ERRORS);
             dataset.setProcessedAt(LocalDateTime.now());
-            dataset.setRecordCount(recordCount);
+            dataset.setRecordCount(rows.accepted);
+            dataset.setRejectedCount(rows.rejected.size());
             datasetRepository.save(dataset);
+            sampleStore.save(datasetId, rows.sample, ColumnarSnapshotStore.sourceVersion(dataset));
+            rows.publishSnapshot();
+            tracker.completed(dataset);
 
-            System.out.println("=== PROCESSING COMPLETED ===");
-            System.out.println("Total records: " + recordCount);
+            log.info("Dataset {} completed with {} records, {} rejected",
+                    datasetId, rows.accepted, rows.rejected.size());
 
         } catch (Exception e) {
-            dataset.setStatus(Dataset.ProcessingStatus.FAILED);
-            datasetRepository.save(dataset);
-            e.printStackTrace();
+            tracker.failed();
+            log.error("Dataset {} processing failed", datasetId, e);
             throw new RuntimeException("Dataset processing failed", e);
+        } finally {
+            rows.closeSnapshot();
         }
     }
 
-    /* ===================== CSV PROCESSING (BATCHED) ===================== */
-
-    private int processCSV(File file, Dataset dataset) throws Exception {
-
-        List<FinancialRecord> batch = new ArrayList<>();
-        int count = 0;
+    private void markFailed(Long datasetId) {
+        datasetRepository.findById(datasetId).ifPresent(dataset -> {
+            dataset.setStatus(Dataset.ProcessingStatus.FAILED);
+            datasetRepository.save(dataset);
+        });
+    }
 
-        try (CSVReader reader = new CSVReader(new FileReader(file))) {
+    /* ===================== SOURCE ===================== */
 
-            reader.readNext(); // skip header
-            String[] line;
+    /**
+     * The uploaded file, or for a batch child its entry inside the shared archive,
+     * read through the zip's central directory without touching other entries.
+     */
+    private InputStream openSource(File file, Dataset dataset) throws IOException {
+        if (dataset.getArchiveEntry() == null) {
+            return new BufferedInputStream(new FileInputStream(file), STREAM_BUFFER_SIZE);
+        }
 
-            while ((line = reader.readNext()) != null) {
+        ZipFile archive = new ZipFile(file);
+        ZipEntry entry = archive.getEntry(dataset.getArchiveEntry());
+        if (entry == null) {
+            archive.close();
+            throw new RuntimeException("Entry " + dataset.getArchiveEntry() + " not found in " + file);
+        }
 
-                FinancialRecord record = parseRecordFromArray(line, dataset);
-                ratingService.calculateRating(record);
-                record.setCalculatedAt(LocalDateTime.now());
+        return new FilterInputStream(new BufferedInputStream(archive.getInputStream(entry), STREAM_BUFFER_SIZE)) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    archive.close();
+                }
+            }
+        };
+    }
 
-                batch.add(record);
-                count++;
+    /* ===================== CSV PROCESSING (BATCHED) ===================== */
 
-                if (batch.size() == BATCH_SIZE) {
-                    financialRecordRepository.saveAll(batch);
-                    batch.clear();
-                    System.out.println("Saved " + count + " records");
+    /**
+     * Compressed uploads are decompressed as they are read, never expanded on disk.
+     * Zip archives are read entry by entry; row numbers then run on across entries,
+     * each entry's header line included.
+     */
+    private void processCSV(InputStream in, String fileType, RowSink rows) throws Exception {
+
+        switch (fileType) {
+            case "csv" -> readCsv(in, rows, 0);
+            case "csv.gz" -> readCsv(new GZIPInputStream(in, STREAM_BUFFER_SIZE), rows, 0);
+            case "csv.zst" -> readCsv(new ZstdInputStream(in), rows, 0);
+            case "zip" -> {
+                ZipInputStream zip = new ZipInputStream(in);
+                long rowNumber = 0;
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null) {
+                    if (entry.isDirectory() || !entry.getName().toLowerCase().endsWith(".csv")) {
+                        log.debug("Skipping non-CSV zip entry {}", entry.getName());
+                        continue;
+                    }
+                    rowNumber = readCsv(zip, rows, rowNumber);
                 }
             }
+            default -> throw new RuntimeException("Unsupported file type: " + fileType);
         }
+    }
 
-        if (!batch.isEmpty()) {
-            financialRecordRepository.saveAll(batch);
-            System.out.println("Saved final batch. Total: " + count);
+    /**
+     * Reads one CSV stream, header first. Not closed here: for zip archives the
+     * stream is the archive itself and the caller closes it.
+     *
+     * @return the last row number read
+     */
+    private long readCsv(InputStream in, RowSink rows, long rowNumber) throws Exception {
+
+        CSVReader reader = new CSVReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        if (reader.readNext() == null) return rowNumber; // skip header
+        rowNumber++;
+
+        String[] line;
+        while ((line = reader.readNext()) != null) {
+            rowNumber++;
+            try {
+                rows.accept(recordParser.parseRecordFromArray(line, rows.dataset));
+            } catch (FinancialRecordParser.InvalidRowException e) {
+                rows.reject(rowNumber, recordParser.toRawText(line), e.getMessage());
+            }
         }
-
-        return count;
+        return rowNumber;
     }
 
     /* ===================== EXCEL PROCESSING (BATCHED) ===================== */
 
-    private int processExcel(File file, Dataset dataset) throws Exception {
+    private void processExcel(InputStream in, RowSink rows) throws Exception {
 
-        List<FinancialRecord> batch = new ArrayList<>();
-        int count = 0;
-
-        try (Workbook workbook = new XSSFWorkbook(new FileInputStream(file))) {
+        try (Workbook workbook = new XSSFWorkbook(in)) {
 
             Sheet sheet = workbook.getSheetAt(0);
 
@@ -134,85 +281,139 @@ public class KafkaConsumerService {
                 Row row = sheet.getRow(i);
                 if (row == null) continue;
 
-                FinancialRecord record = parseRecordFromRow(row, dataset);
-                ratingService.calculateRating(record);
-                record.setCalculatedAt(LocalDateTime.now());
-
-                batch.add(record);
-                count++;
+                try {
+                    rows.accept(recordParser.parseRecordFromRow(row, rows.dataset));
+                } catch (FinancialRecordParser.InvalidRowException e) {
+                    rows.reject(i + 1, recordParser.toRawText(row), e.getMessage());
+                }
+            }
+        }
+    }
 
-                if (batch.size() == BATCH_SIZE) {
-                    financialRecordRepository.saveAll(batch);
-                    batch.clear();
-                    System.out.println("Saved " + count + " records");
+    /* ===================== ROW SINK ===================== */
+
+    /**
+     * Rates and batch-writes valid rows and quarantines invalid ones. The dataset
+     * fails once rejections exceed {@code app.ingestion.error-budget.max-rows}, or
+     * exceed {@code max-ratio} of all rows at the end.
+     */
+    private final class RowSink {
+
+        private final Dataset dataset;
+        private final IngestionMetrics.Tracker tracker;
+        private final List<FinancialRecord> batch = new ArrayList<>();
+        private final List<RejectedRow> rejected = new ArrayList<>();
+        private int accepted;
+        // Read again after every flush, as AdaptiveBatchSize moves it
+        private int batchLimit = batchSize.current();
+        // The owner's alert rules, tested on each record as soon as it is rated
+        private final AlertRuleEngine.Matcher alerts;
+        // Columnar copy of the accepted rows for analytics; dropped on the first write error
+        private ColumnarSnapshot.Writer snapshot;
+        // Uniform sample of the accepted rows for the approximate dashboard summary
+        private final DatasetSampleStore.Reservoir sample = sampleStore.newReservoir();
+
+        private RowSink(Dataset dataset, IngestionMetrics.Tracker tracker) {
+            this.dataset = dataset;
+            this.tracker = tracker;
+            this.alerts = alertRuleEngine.compile(dataset);
+            if (snapshotStore.isEnabled()) {
+                try {
+                    snapshot = snapshotStore.newWriter(dataset.getId());
+                } catch (IOException e) {
+                    log.warn("Dataset {} will have no snapshot until first read: {}", dataset.getId(), e.getMessage());
                 }
             }
         }
 
-        if (!batch.isEmpty()) {
-            financialRecordRepository.saveAll(batch);
-            System.out.println("Saved final batch. Total: " + count);
+        void accept(FinancialRecord record) {
+            tracker.rate(() -> ratingService.calculateRating(record));
+            alerts.evaluate(record);
+            sample.offer(record);
+            record.setCalculatedAt(LocalDateTime.now());
+
+            batch.add(record);
+            accepted++;
+
+            if (batch.size() >= batchLimit) {
+                flush();
+                log.debug("Saved {} records", accepted);
+            }
         }
 
-        return count;
-    }
+        void reject(long rowNumber, String rawText, String reason) {
+            rejected.add(RejectedRow.builder()
+                    .dataset(dataset)
+                    .rowNumber(rowNumber)
+                    .rawText(rawText)
+                    .reason(reason)
+                    .build());
+
+            if (rejected.size() > maxRejectedRows) {
+                throw new RuntimeException("Error budget exceeded: more than " + maxRejectedRows
+                        + " rejected rows, last at row " + rowNumber + " (" + reason + ")");
+            }
+        }
 
-    /* ===================== PARSERS ===================== */
-
-    private FinancialRecord parseRecordFromArray(String[] data, Dataset dataset) {
-        return FinancialRecord.builder()
-                .dataset(dataset)
-                .issuerName(getString(data, 0))
-                .industry(getString(data, 1))
-                .country(getString(data, 2))
-                .revenue(getDecimal(data, 3))
-                .ebitda(getDecimal(data, 4))
-                .totalDebt(getDecimal(data, 5))
-                .interestExpense(getDecimal(data, 6))
-                .currentAssets(getDecimal(data, 7))
-                .currentLiabilities(getDecimal(data, 8))
-                .build();
-    }
+        void finish() {
+            if (!batch.isEmpty()) {
+                flush();
+                log.debug("Saved final batch. Total: {}", accepted);
+            }
+            alerts.finish();
 
-    private FinancialRecord parseRecordFromRow(Row row, Dataset dataset) {
-        return FinancialRecord.builder()
-                .dataset(dataset)
-                .issuerName(getCellString(row.getCell(0)))
-                .industry(getCellString(row.getCell(1)))
-                .country(getCellString(row.getCell(2)))
-                .revenue(getCellDecimal(row.getCell(3)))
-                .ebitda(getCellDecimal(row.getCell(4)))
-                .totalDebt(getCellDecimal(row.getCell(5)))
-                .interestExpense(getCellDecimal(row.getCell(6)))
-                .currentAssets(getCellDecimal(row.getCell(7)))
-                .currentLiabilities(getCellDecimal(row.getCell(8)))
-                .build();
-    }
+            if (rejected.isEmpty()) return;
 
-    /* ===================== HELPERS ===================== */
+            double ratio = rejected.size() / (double) (accepted + rejected.size());
+            if (ratio > maxRejectedRatio) {
+                throw new RuntimeException(String.format(
+                        "Error budget exceeded: %d of %d rows rejected", rejected.size(), accepted + rejected.size()));
+            }
+            rejectedRowRepository.saveAll(rejected);
+        }
 
-    private String getString(String[] arr, int index) {
-        if (arr.length <= index) return null;
-        String value = arr[index];
-        return value == null || value.trim().isEmpty() ? null : value;
-    }
+        private void flush() {
+            // One JDBC batch insert per flush; new issuer/industry/country names are
+            // interned once per batch, not per row
+            long started = System.nanoTime();
+            tracker.flush(() -> bulkWriter.insertReturningIds(batch));
+            batchSize.record(batch.size(), System.nanoTime() - started);
+            batchLimit = batchSize.current();
+            // Alerts carry record ids, so they are written once the records have them
+            alerts.flush();
+            appendToSnapshot();
+            batch.clear();
+        }
 
-    private BigDecimal getDecimal(String[] arr, int index) {
-        if (arr.length <= index) return null;
-        String value = arr[index];
-        if (value == null || value.trim().isEmpty()) return null;
-        return new BigDecimal(value);
-    }
+        /** Hands the finished snapshot over to be published when the ingest commits. */
+        void publishSnapshot() {
+            if (snapshot == null) return;
+            try {
+                snapshotStore.publishAfterCommit(dataset.getId(), snapshot.finish(
+                        ColumnarSnapshotStore.sourceVersion(dataset)));
+            } catch (IOException e) {
+                log.warn("Failed to write snapshot of dataset {}: {}", dataset.getId(), e.getMessage());
+            }
+        }
 
-    private String getCellString(Cell cell) {
-        if (cell == null) return null;
-        return cell.getCellType() == CellType.STRING
-                ? cell.getStringCellValue()
-                : String.valueOf(cell.getNumericCellValue());
-    }
+        void closeSnapshot() {
+            if (snapshot == null) return;
+            try {
+                snapshot.close();
+            } catch (IOException e) {
+                log.warn("Failed to remove snapshot spill files of dataset {}: {}", dataset.getId(), e.getMessage());
+            }
+            snapshot = null;
+        }
 
-    private BigDecimal getCellDecimal(Cell cell) {
-        if (cell == null || cell.getCellType() != CellType.NUMERIC) return null;
-        return BigDecimal.valueOf(cell.getNumericCellValue());
+        private void appendToSnapshot() {
+            if (snapshot == null) return;
+            try {
+                for (FinancialRecord record : batch) snapshot.append(record);
+            } catch (IOException e) {
+                log.warn("Dropping snapshot of dataset {}: {}", dataset.getId(), e.getMessage());
+                closeSnapshot();
+            }
+        }
     }
 }
@@ -1,16 +1,39 @@
 package com.finrating.kafka;
 
+import com.finrating.entity.Dataset;
+import com.finrating.entity.OutboxEvent;
+import com.finrating.repository.OutboxEventRepository;
+import com.finrating.service.DatasetDispatcher;
 import lombok.RequiredArgsConstructor;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
+@ConditionalOnProperty(name = "app.dispatch.backend", havingValue = "kafka", matchIfMissing = true)
 @RequiredArgsConstructor
-public class KafkaProducerService {
+public class KafkaProducerService implements DatasetDispatcher {
 
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    public static final String DATASET_PROCESSING_TOPIC = "dataset-processing";
+    public static final String DATASET_PROCESSING_LARGE_TOPIC = "dataset-processing-large";
 
-    public void sendDatasetProcessingMessage(Long datasetId) {
-        kafkaTemplate.send("dataset-processing", datasetId.toString());
+    private final OutboxEventRepository outboxEventRepository;
+    private final IngestionLaneSelector laneSelector;
+
+    /**
+     * Queues the message in the outbox within the caller's transaction;
+     * {@link OutboxRelay} publishes it after commit. The topic is the dataset's
+     * lane and the key is the owner, which {@link IngestionScheduler} uses for
+     * per-user fair sharing.
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void dispatch(Dataset dataset) {
+        outboxEventRepository.save(OutboxEvent.builder()
+                .topic(laneSelector.laneFor(dataset).topic())
+                .messageKey(dataset.getUser().getId().toString())
+                .payload(dataset.getId().toString())
+                .build());
     }
 }
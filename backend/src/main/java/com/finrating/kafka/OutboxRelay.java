@@ -0,0 +1,57 @@
+package com.finrating.kafka;
+
+import com.finrating.entity.OutboxEvent;
+import com.finrating.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes outbox rows in batches. Rows are deleted only after every send in
+ * the batch is acknowledged; on failure the transaction rolls back and the batch
+ * is retried on the next poll (at-least-once, so consumers must be idempotent).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.dispatch.backend", havingValue = "kafka", matchIfMissing = true)
+@RequiredArgsConstructor
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+
+    @Value("${app.outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.outbox.send-timeout:10000}")
+    private long sendTimeoutMillis;
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval:200}")
+    @Transactional
+    public void relay() {
+        List<OutboxEvent> events = outboxEventRepository.lockNextBatch(batchSize);
+        if (events.isEmpty()) return;
+
+        CompletableFuture<?>[] sends = events.stream()
+                .map(event -> kafkaTemplate.send(event.getTopic(), event.getMessageKey(), event.getPayload()))
+                .toArray(CompletableFuture[]::new);
+
+        try {
+            CompletableFuture.allOf(sends).get(sendTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            throw new RuntimeException("Outbox relay failed for batch of " + events.size(), e);
+        }
+
+        outboxEventRepository.deleteAllInBatch(events);
+        log.debug("Relayed {} outbox events", events.size());
+    }
+}
@@ -0,0 +1,133 @@
+package com.finrating.metrics;
+
+import com.finrating.entity.Dataset;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer instrumentation for the ingestion path. Every meter is tagged with
+ * the dataset's file type and size bucket so throughput can be broken down for
+ * capacity planning.
+ */
+@Component
+@RequiredArgsConstructor
+public class IngestionMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.metrics.rating-sample-rate:100}")
+    private int ratingSampleRate;
+
+    public Tracker track(Dataset dataset) {
+        return new Tracker(tagsFor(dataset));
+    }
+
+    public Tags tagsFor(Dataset dataset) {
+        return Tags.of(
+                "fileType", dataset.getFileType() == null ? "unknown" : dataset.getFileType(),
+                "sizeBucket", sizeBucket(dataset.getFileSize())
+        );
+    }
+
+    public static String sizeBucket(Long bytes) {
+        if (bytes == null) return "unknown";
+        if (bytes < 1024 * 1024) return "lt1mb";
+        if (bytes < 10L * 1024 * 1024) return "1-10mb";
+        if (bytes < 50L * 1024 * 1024) return "10-50mb";
+        return "gt50mb";
+    }
+
+    /* ===================== PER-DATASET TRACKER ===================== */
+
+    /**
+     * Resolves the tagged meters once per dataset so the row loop only touches
+     * pre-built counters and timers.
+     */
+    public class Tracker {
+
+        private final Tags tags;
+        private final Counter rows;
+        private final Timer flushLatency;
+        private final Timer ratingLatency;
+        private final DistributionSummary rowsPerSecond;
+
+        private long ratedRows;
+        private long rowsSinceFlush;
+        private long lastFlushNanos = System.nanoTime();
+
+        private Tracker(Tags tags) {
+            this.tags = tags;
+            this.rows = Counter.builder("ingestion.rows")
+                    .description("Rows parsed, rated and written")
+                    .tags(tags)
+                    .register(meterRegistry);
+            this.flushLatency = Timer.builder("ingestion.batch.flush")
+                    .description("Latency of one batch write")
+                    .tags(tags)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            this.ratingLatency = Timer.builder("ingestion.rating")
+                    .description("Sampled per-record RatingService.calculateRating latency")
+                    .tags(tags)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            this.rowsPerSecond = DistributionSummary.builder("ingestion.rows.per.second")
+                    .description("Ingestion throughput measured per batch, parse through flush")
+                    .tags(tags)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+
+        /** Runs the rating step, timing one call in every {@code app.metrics.rating-sample-rate}. */
+        public void rate(Runnable rating) {
+            if (ratingSampleRate > 0 && ratedRows++ % ratingSampleRate == 0) {
+                ratingLatency.record(rating);
+            } else {
+                rating.run();
+            }
+            rowsSinceFlush++;
+        }
+
+        public void flush(Runnable write) {
+            flushLatency.record(write);
+
+            long now = System.nanoTime();
+            long elapsed = now - lastFlushNanos;
+            if (elapsed > 0) {
+                rowsPerSecond.record(rowsSinceFlush * (double) TimeUnit.SECONDS.toNanos(1) / elapsed);
+            }
+            rows.increment(rowsSinceFlush);
+            rowsSinceFlush = 0;
+            lastFlushNanos = now;
+        }
+
+        public void completed(Dataset dataset) {
+            recordOutcome("completed");
+            if (dataset.getUploadedAt() != null && dataset.getProcessedAt() != null) {
+                Timer.builder("ingestion.dataset.duration")
+                        .description("End-to-end time from upload to processed")
+                        .tags(tags)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)
+                        .record(Duration.between(dataset.getUploadedAt(), dataset.getProcessedAt()));
+            }
+        }
+
+        public void failed() {
+            recordOutcome("failed");
+        }
+
+        private void recordOutcome(String outcome) {
+            meterRegistry.counter("ingestion.datasets", tags.and("outcome", outcome)).increment();
+        }
+    }
+}
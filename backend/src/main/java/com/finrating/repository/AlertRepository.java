@@ -0,0 +1,20 @@
+package com.finrating.repository;
+
+import com.finrating.entity.Alert;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AlertRepository extends JpaRepository<Alert, Long> {
+
+    Page<Alert> findByUserId(Long userId, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM Alert a WHERE a.datasetId = :datasetId")
+    void deleteByDatasetId(@Param("datasetId") Long datasetId);
+}
@@ -0,0 +1,20 @@
+package com.finrating.repository;
+
+import com.finrating.entity.AlertRule;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface AlertRuleRepository extends JpaRepository<AlertRule, Long> {
+
+    // Both collections in the same query rather than two selects per rule
+    @EntityGraph(attributePaths = {"issuers", "ratings"})
+    List<AlertRule> findByUserIdOrderByCreatedAtDesc(Long userId);
+
+    @EntityGraph(attributePaths = {"issuers", "ratings"})
+    List<AlertRule> findByUserIdAndEnabledTrue(Long userId);
+
+    long countByUserId(Long userId);
+}
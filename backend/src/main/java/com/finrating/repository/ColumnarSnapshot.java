@@ -0,0 +1,278 @@
+package com.finrating.repository;
+
+import com.finrating.entity.FinancialRecord;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.DoubleSummaryStatistics;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Read-only, memory-mapped column store of one dataset's records. Each column is a
+ * flat little-endian array mapped straight from the file, so a scan is a loop over
+ * a primitive buffer: nothing is deserialized and the pages are shared through the
+ * OS page cache between requests and processes.
+ * <p>
+ * Layout: a header of magic, format version, row count, source version and one
+ * offset per {@link Column}, then the columns in enum order, each 8-byte aligned.
+ * Issuer, industry and country are stored as their dimension ids (see
+ * {@link DimensionCache}), rating and category as enum ordinals, null as 0, -1 or
+ * NaN. The source version ties the file to the dataset state it was built from;
+ * see {@link ColumnarSnapshotStore}.
+ */
+public final class ColumnarSnapshot {
+
+    private static final int MAGIC = 0x31534346; // "FCS1"
+    // 2: industry and country ids widened from 2 to 4 bytes; older files are rebuilt
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 24 + 8 * Column.values().length;
+
+    public enum Column {
+        ISSUER_ID(4, r -> r.getIssuerId()),
+        INDUSTRY_ID(4, r -> r.getIndustryId()),
+        COUNTRY_ID(4, r -> r.getCountryId()),
+        RATING(1, r -> r.getRating() == null ? null : r.getRating().ordinal()),
+        CATEGORY(1, r -> r.getCategory() == null ? null : r.getCategory().ordinal()),
+        REVENUE(8, FinancialRecord::getRevenue),
+        EBITDA(8, FinancialRecord::getEbitda),
+        TOTAL_DEBT(8, FinancialRecord::getTotalDebt),
+        INTEREST_EXPENSE(8, FinancialRecord::getInterestExpense),
+        CURRENT_ASSETS(8, FinancialRecord::getCurrentAssets),
+        CURRENT_LIABILITIES(8, FinancialRecord::getCurrentLiabilities),
+        DEBT_TO_EBITDA(8, FinancialRecord::getDebtToEbitda),
+        INTEREST_COVERAGE_RATIO(8, FinancialRecord::getInterestCoverageRatio),
+        LIQUIDITY_COVERAGE_RATIO(8, FinancialRecord::getLiquidityCoverageRatio),
+        REVENUE_STABILITY_SCORE(8, FinancialRecord::getRevenueStabilityScore);
+
+        private final int width;
+        private final Function<FinancialRecord, Number> value;
+
+        Column(int width, Function<FinancialRecord, Number> value) {
+            this.width = width;
+            this.value = value;
+        }
+
+        public boolean isDecimal() {
+            return width == 8;
+        }
+
+        /** The matching {@link FinancialRecord} property name, e.g. debtToEbitda. */
+        public String propertyName() {
+            StringBuilder name = new StringBuilder();
+            for (String word : name().toLowerCase().split("_")) {
+                name.append(name.isEmpty() ? word : Character.toUpperCase(word.charAt(0)) + word.substring(1));
+            }
+            return name.toString();
+        }
+    }
+
+    private final long rowCount;
+    private final long sourceVersion;
+    private final Map<Column, ByteBuffer> columns = new EnumMap<>(Column.class);
+
+    private ColumnarSnapshot(long rowCount, long sourceVersion) {
+        this.rowCount = rowCount;
+        this.sourceVersion = sourceVersion;
+    }
+
+    /** Maps every column of the file; the mappings stay valid after the file is replaced or deleted. */
+    public static ColumnarSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) break;
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                throw new IOException("Not a columnar snapshot of format " + FORMAT_VERSION + ": " + file);
+            }
+
+            ColumnarSnapshot snapshot = new ColumnarSnapshot(header.getLong(), header.getLong());
+            for (Column column : Column.values()) {
+                long offset = header.getLong();
+                long size = snapshot.rowCount * column.width;
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("Column " + column + " of " + file + " is too large to map");
+                }
+                snapshot.columns.put(column, channel.map(FileChannel.MapMode.READ_ONLY, offset, size)
+                        .order(ByteOrder.LITTLE_ENDIAN));
+            }
+            return snapshot;
+        }
+    }
+
+    public int rowCount() {
+        return (int) rowCount;
+    }
+
+    public long sourceVersion() {
+        return sourceVersion;
+    }
+
+    public IntBuffer ints(Column column) {
+        return view(column, 4).asIntBuffer();
+    }
+
+    public ByteBuffer bytes(Column column) {
+        return view(column, 1);
+    }
+
+    public DoubleBuffer doubles(Column column) {
+        return view(column, 8).asDoubleBuffer();
+    }
+
+    /* ===================== SCANS ===================== */
+
+    /** Row count per value of a byte column ({@link Column#RATING}, {@link Column#CATEGORY}); nulls are skipped. */
+    public long[] histogram(Column column, int buckets) {
+        ByteBuffer values = bytes(column);
+        long[] counts = new long[buckets];
+        for (int i = 0, n = values.limit(); i < n; i++) {
+            byte value = values.get(i);
+            if (value >= 0) counts[value]++;
+        }
+        return counts;
+    }
+
+    /** Count, min, max and mean of the non-null values of a decimal column. */
+    public DoubleSummaryStatistics summarize(Column column) {
+        DoubleBuffer values = doubles(column);
+        DoubleSummaryStatistics stats = new DoubleSummaryStatistics();
+        for (int i = 0, n = values.limit(); i < n; i++) {
+            double value = values.get(i);
+            if (!Double.isNaN(value)) stats.accept(value);
+        }
+        return stats;
+    }
+
+    private ByteBuffer view(Column column, int width) {
+        if (column.width != width) {
+            throw new IllegalArgumentException(column + " is " + column.width + " bytes wide, not " + width);
+        }
+        // Duplicates keep positions independent between concurrent scans
+        return columns.get(column).duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /* ===================== WRITER ===================== */
+
+    /**
+     * Appends records column by column to one spill file per column, then joins them
+     * behind a header. Memory use is one buffer per column whatever the row count.
+     */
+    public static final class Writer implements AutoCloseable {
+
+        private static final int BUFFER_SIZE = 64 * 1024;
+
+        private final Path target;
+        private final Map<Column, FileChannel> spills = new EnumMap<>(Column.class);
+        private final Map<Column, ByteBuffer> buffers = new EnumMap<>(Column.class);
+        private long rowCount;
+
+        /** @param target the finished file; spill files are created next to it */
+        public Writer(Path target) throws IOException {
+            this.target = target;
+            try {
+                for (Column column : Column.values()) {
+                    spills.put(column, FileChannel.open(spillFile(column), StandardOpenOption.CREATE,
+                            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE,
+                            StandardOpenOption.READ));
+                    buffers.put(column, ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN));
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        public void append(FinancialRecord record) throws IOException {
+            for (Column column : Column.values()) {
+                ByteBuffer buffer = buffers.get(column);
+                if (buffer.remaining() < column.width) drain(column);
+                put(buffer, column, column.value.apply(record));
+            }
+            rowCount++;
+        }
+
+        /** Writes the header and the columns to the target file; the spill files are removed on close. */
+        public Path finish(long sourceVersion) throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(rowCount).putLong(sourceVersion);
+
+            long offset = align(HEADER_SIZE);
+            for (Column column : Column.values()) {
+                drain(column);
+                header.putLong(offset);
+                offset = align(offset + rowCount * column.width);
+            }
+            header.flip();
+
+            try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                while (header.hasRemaining()) out.write(header);
+
+                long position = align(HEADER_SIZE);
+                for (Column column : Column.values()) {
+                    FileChannel spill = spills.get(column);
+                    long size = spill.size();
+                    for (long copied = 0; copied < size; ) {
+                        copied += spill.transferTo(copied, size - copied, out.position(position + copied));
+                    }
+                    position = align(position + size);
+                }
+                out.force(false);
+            } catch (IOException e) {
+                Files.deleteIfExists(target);
+                throw e;
+            }
+            return target;
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (Column column : spills.keySet()) {
+                try {
+                    spills.get(column).close();
+                    Files.deleteIfExists(spillFile(column));
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) throw failure;
+        }
+
+        private void drain(Column column) throws IOException {
+            ByteBuffer buffer = buffers.get(column);
+            buffer.flip();
+            FileChannel spill = spills.get(column);
+            while (buffer.hasRemaining()) spill.write(buffer);
+            buffer.clear();
+        }
+
+        private Path spillFile(Column column) {
+            return target.resolveSibling(target.getFileName() + "." + column.name().toLowerCase());
+        }
+
+        private static void put(ByteBuffer buffer, Column column, Number value) {
+            switch (column.width) {
+                case 1 -> buffer.put(value == null ? -1 : value.byteValue());
+                case 4 -> buffer.putInt(value == null ? 0 : value.intValue());
+                default -> buffer.putDouble(value == null ? Double.NaN : ((BigDecimal) value).doubleValue());
+            }
+        }
+
+        private static long align(long offset) {
+            return (offset + 7) & ~7L;
+        }
+    }
+}
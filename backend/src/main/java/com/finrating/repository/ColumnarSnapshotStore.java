@@ -0,0 +1,184 @@
+package com.finrating.repository;
+
+import com.finrating.entity.Dataset;
+import com.finrating.entity.FinancialRecord;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Columnar snapshot files, one per dataset, under {@code app.snapshot.dir}. The
+ * worker writes a dataset's snapshot as it ingests it; any later change to the
+ * dataset (append, delta, resubmitted rows) moves its {@code processedAt}, which
+ * invalidates the file, and the next analytics read rebuilds it from the database.
+ * Files are only ever replaced whole, by an atomic rename, so a reader never sees
+ * a partly written snapshot.
+ */
+@Slf4j
+@Repository
+public class ColumnarSnapshotStore {
+
+    private static final String SUFFIX = ".fcs";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Path directory;
+    private final boolean enabled;
+
+    public ColumnarSnapshotStore(JdbcTemplate jdbcTemplate,
+                                 @Value("${app.snapshot.dir:${app.upload.dir:uploads}/snapshots}") String directory,
+                                 @Value("${app.snapshot.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.directory = Paths.get(directory);
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** The dataset state a snapshot must have been built from to be used. */
+    public static long sourceVersion(Dataset dataset) {
+        return dataset.getProcessedAt() == null ? 0 : dataset.getProcessedAt()
+                .truncatedTo(ChronoUnit.MILLIS).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /** The dataset's snapshot if there is one and it is current. */
+    public Optional<ColumnarSnapshot> find(Dataset dataset) {
+        if (!enabled) return Optional.empty();
+        try {
+            ColumnarSnapshot snapshot = ColumnarSnapshot.open(fileFor(dataset.getId()));
+            return snapshot.sourceVersion() == sourceVersion(dataset) ? Optional.of(snapshot) : Optional.empty();
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable snapshot of dataset {}: {}", dataset.getId(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /** The current snapshot, rebuilt from {@code financial_records} if missing or stale. */
+    public ColumnarSnapshot load(Dataset dataset) {
+        return find(dataset).orElseGet(() -> rebuild(dataset));
+    }
+
+    /** A writer whose output becomes the dataset's snapshot through {@link #publishAfterCommit}. */
+    public ColumnarSnapshot.Writer newWriter(Long datasetId) throws IOException {
+        Files.createDirectories(directory);
+        return new ColumnarSnapshot.Writer(directory.resolve(datasetId + SUFFIX + "." + UUID.randomUUID() + ".tmp"));
+    }
+
+    /**
+     * Makes {@code built} the dataset's snapshot once the current transaction commits,
+     * or deletes it on rollback. Without a transaction it is published immediately.
+     */
+    public void publishAfterCommit(Long datasetId, Path built) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(datasetId, built);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    publish(datasetId, built);
+                } else {
+                    deleteQuietly(built);
+                }
+            }
+        });
+    }
+
+    public void delete(Long datasetId) {
+        deleteQuietly(fileFor(datasetId));
+    }
+
+    /* ===================== REBUILD ===================== */
+
+    private ColumnarSnapshot rebuild(Dataset dataset) {
+        long started = System.nanoTime();
+        try (ColumnarSnapshot.Writer writer = newWriter(dataset.getId())) {
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(
+                        "SELECT issuer_id, industry_id, country_id, rating, category, revenue, ebitda, total_debt, " +
+                        "interest_expense, current_assets, current_liabilities, debt_to_ebitda, " +
+                        "interest_coverage_ratio, liquidity_coverage_ratio, revenue_stability_score " +
+                        "FROM financial_records WHERE dataset_id = ?");
+                ps.setLong(1, dataset.getId());
+                ps.setFetchSize(10_000);
+                return ps;
+            }, rs -> {
+                try {
+                    writer.append(FinancialRecord.builder()
+                            .issuerId((Integer) rs.getObject(1))
+                            .industryId(rs.getObject(2) == null ? null : rs.getInt(2))
+                            .countryId(rs.getObject(3) == null ? null : rs.getInt(3))
+                            .rating(rs.getString(4) == null ? null : FinancialRecord.CreditRating.valueOf(rs.getString(4)))
+                            .category(rs.getString(5) == null ? null : FinancialRecord.RatingCategory.valueOf(rs.getString(5)))
+                            .revenue(rs.getBigDecimal(6))
+                            .ebitda(rs.getBigDecimal(7))
+                            .totalDebt(rs.getBigDecimal(8))
+                            .interestExpense(rs.getBigDecimal(9))
+                            .currentAssets(rs.getBigDecimal(10))
+                            .currentLiabilities(rs.getBigDecimal(11))
+                            .debtToEbitda(rs.getBigDecimal(12))
+                            .interestCoverageRatio(rs.getBigDecimal(13))
+                            .liquidityCoverageRatio(rs.getBigDecimal(14))
+                            .revenueStabilityScore(rs.getBigDecimal(15))
+                            .build());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            Path built = writer.finish(sourceVersion(dataset));
+            // Mapped before the rename, so this read is served even if publishing fails
+            ColumnarSnapshot snapshot = ColumnarSnapshot.open(built);
+            publish(dataset.getId(), built);
+            log.info("Rebuilt snapshot of dataset {} ({} rows) in {} ms",
+                    dataset.getId(), snapshot.rowCount(), (System.nanoTime() - started) / 1_000_000);
+            return snapshot;
+
+        } catch (IOException | UncheckedIOException e) {
+            throw new RuntimeException("Failed to build snapshot of dataset " + dataset.getId(), e);
+        }
+    }
+
+    /* ===================== HELPERS ===================== */
+
+    private void publish(Long datasetId, Path built) {
+        try {
+            Files.move(built, fileFor(datasetId), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("Failed to publish snapshot of dataset {}; it will be rebuilt on demand", datasetId, e);
+            deleteQuietly(built);
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.error("Failed to delete file: {}", file, e);
+        }
+    }
+
+    private Path fileFor(Long datasetId) {
+        return directory.resolve(datasetId + SUFFIX);
+    }
+}
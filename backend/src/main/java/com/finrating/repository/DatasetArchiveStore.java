@@ -0,0 +1,174 @@
+package com.finrating.repository;
+
+import com.finrating.entity.Dataset;
+import com.finrating.entity.FinancialRecord;
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVWriter;
+import com.opencsv.exceptions.CsvValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Archive files of datasets moved out of {@code financial_records}: one zstd-compressed
+ * CSV per dataset under {@code app.archive.dir}, holding the stored columns as they are
+ * (dimension ids, rating, delta keys), so restoring is a plain insert with no re-rating
+ * or name lookups. Dimension rows are never deleted, so the ids stay valid.
+ */
+@Slf4j
+@Repository
+public class DatasetArchiveStore {
+
+    private static final String SUFFIX = ".csv.zst";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String COLUMNS =
+            "issuer_id, industry_id, country_id, revenue, ebitda, total_debt, interest_expense, " +
+            "current_assets, current_liabilities, debt_to_ebitda, interest_coverage_ratio, " +
+            "liquidity_coverage_ratio, revenue_stability_score, rating, category, calculated_at, " +
+            "record_key, content_hash";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Path directory;
+
+    public DatasetArchiveStore(JdbcTemplate jdbcTemplate,
+                               @Value("${app.archive.dir:${app.upload.dir:uploads}/archive}") String directory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.directory = Paths.get(directory);
+    }
+
+    /**
+     * Writes the dataset's records to its archive file, replacing any previous one.
+     *
+     * @return the number of records written
+     */
+    public long export(Long datasetId) throws IOException {
+        Files.createDirectories(directory);
+        Path temp = directory.resolve(datasetId + SUFFIX + "." + UUID.randomUUID() + ".tmp");
+        long[] rows = {0};
+
+        try (CSVWriter writer = new CSVWriter(new OutputStreamWriter(new ZstdOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE)), StandardCharsets.UTF_8))) {
+            writer.writeNext(COLUMNS.split(", "), false);
+
+            String[] line = new String[18];
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(
+                        "SELECT " + COLUMNS + " FROM financial_records WHERE dataset_id = ?");
+                ps.setLong(1, datasetId);
+                ps.setFetchSize(10_000);
+                return ps;
+            }, rs -> {
+                for (int i = 0; i < line.length; i++) {
+                    Object value = rs.getObject(i + 1);
+                    line[i] = value == null ? ""
+                            : value instanceof BigDecimal decimal ? decimal.toPlainString()
+                            : value instanceof Timestamp timestamp ? timestamp.toLocalDateTime().toString()
+                            : value.toString();
+                }
+                writer.writeNext(line, false);
+                rows[0]++;
+            });
+
+            if (writer.checkError()) throw new IOException("Failed to write archive of dataset " + datasetId);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        Files.move(temp, fileFor(datasetId), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return rows[0];
+    }
+
+    /** Reads the archive back in batches of records belonging to {@code dataset}. */
+    public void read(Dataset dataset, int batchSize, Consumer<List<FinancialRecord>> batches) throws IOException {
+        try (CSVReader reader = new CSVReader(new InputStreamReader(new ZstdInputStream(
+                new BufferedInputStream(Files.newInputStream(fileFor(dataset.getId())), BUFFER_SIZE)),
+                StandardCharsets.UTF_8))) {
+
+            if (reader.readNext() == null) return; // header
+
+            List<FinancialRecord> batch = new ArrayList<>(batchSize);
+            String[] line;
+            while ((line = reader.readNext()) != null) {
+                batch.add(toRecord(line, dataset));
+                if (batch.size() == batchSize) {
+                    batches.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) batches.accept(batch);
+
+        } catch (CsvValidationException e) {
+            throw new IOException("Corrupt archive of dataset " + dataset.getId(), e);
+        }
+    }
+
+    public boolean exists(Long datasetId) {
+        return Files.exists(fileFor(datasetId));
+    }
+
+    public long size(Long datasetId) throws IOException {
+        return Files.size(fileFor(datasetId));
+    }
+
+    public void delete(Long datasetId) {
+        try {
+            Files.deleteIfExists(fileFor(datasetId));
+        } catch (IOException e) {
+            log.error("Failed to delete archive of dataset {}", datasetId, e);
+        }
+    }
+
+    /* ===================== HELPERS ===================== */
+
+    private static FinancialRecord toRecord(String[] line, Dataset dataset) {
+        return FinancialRecord.builder()
+                .dataset(dataset)
+                .issuerId(line[0].isEmpty() ? null : Integer.valueOf(line[0]))
+                .industryId(line[1].isEmpty() ? null : Integer.valueOf(line[1]))
+                .countryId(line[2].isEmpty() ? null : Integer.valueOf(line[2]))
+                .revenue(decimal(line[3]))
+                .ebitda(decimal(line[4]))
+                .totalDebt(decimal(line[5]))
+                .interestExpense(decimal(line[6]))
+                .currentAssets(decimal(line[7]))
+                .currentLiabilities(decimal(line[8]))
+                .debtToEbitda(decimal(line[9]))
+                .interestCoverageRatio(decimal(line[10]))
+                .liquidityCoverageRatio(decimal(line[11]))
+                .revenueStabilityScore(decimal(line[12]))
+                .rating(line[13].isEmpty() ? null : FinancialRecord.CreditRating.valueOf(line[13]))
+                .category(line[14].isEmpty() ? null : FinancialRecord.RatingCategory.valueOf(line[14]))
+                .calculatedAt(line[15].isEmpty() ? null : LocalDateTime.parse(line[15]))
+                .recordKey(line[16].isEmpty() ? null : line[16])
+                .contentHash(line[17].isEmpty() ? null : Long.valueOf(line[17]))
+                .build();
+    }
+
+    private static BigDecimal decimal(String value) {
+        return value.isEmpty() ? null : new BigDecimal(value);
+    }
+
+    private Path fileFor(Long datasetId) {
+        return directory.resolve(datasetId + SUFFIX);
+    }
+}
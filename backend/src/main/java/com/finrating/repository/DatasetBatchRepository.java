@@ -0,0 +1,9 @@
+package com.finrating.repository;
+
+import com.finrating.entity.DatasetBatch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DatasetBatchRepository extends JpaRepository<DatasetBatch, Long> {
+}
@@ -2,12 +2,59 @@ package com.finrating.repository;
 
 import com.finrating.entity.Dataset;
 import com.finrating.entity.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface DatasetRepository extends JpaRepository<Dataset, Long> {
     List<Dataset> findByUserOrderByUploadedAtDesc(User user);
+    List<Dataset> findByUserIdOrderByUploadedAtDesc(Long userId);
     Long countByUser(User user);
+
+    List<Dataset> findByBatchId(Long batchId);
+
+    /** A batch's children, locked in id order like {@link #findByIdForUpdate}. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT d FROM Dataset d WHERE d.batchId = :batchId ORDER BY d.id")
+    List<Dataset> findByBatchIdForUpdate(@Param("batchId") Long batchId);
+
+    List<Dataset> findByStatusIn(Collection<Dataset.ProcessingStatus> statuses);
+
+    @Query("SELECT d.status AS status, COUNT(d) AS datasets, " +
+           "COALESCE(SUM(d.recordCount), 0) AS records, COALESCE(SUM(d.rejectedCount), 0) AS rejected " +
+           "FROM Dataset d WHERE d.batchId = :batchId GROUP BY d.status")
+    List<BatchStatusCount> countByBatchIdGroupByStatus(@Param("batchId") Long batchId);
+
+    interface BatchStatusCount {
+        Dataset.ProcessingStatus getStatus();
+        Long getDatasets();
+        Long getRecords();
+        Long getRejected();
+    }
+
+    @Modifying
+    @Query("UPDATE Dataset d SET d.lastAccessedAt = :at WHERE d.id IN :ids")
+    int markAccessed(@Param("ids") Collection<Long> ids, @Param("at") LocalDateTime at);
+
+    /** Completed datasets neither read nor changed since {@code cutoff}, oldest first. */
+    @Query("SELECT d.id FROM Dataset d WHERE d.status IN :statuses AND d.processedAt < :cutoff " +
+           "AND (d.lastAccessedAt IS NULL OR d.lastAccessedAt < :cutoff) ORDER BY d.processedAt")
+    List<Long> findColdDatasetIds(@Param("statuses") Collection<Dataset.ProcessingStatus> statuses,
+                                  @Param("cutoff") LocalDateTime cutoff,
+                                  Pageable pageable);
+
+    /** Serialises concurrent ingests of the same dataset across workers. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT d FROM Dataset d WHERE d.id = :id")
+    Optional<Dataset> findByIdForUpdate(@Param("id") Long id);
 }
@@ -0,0 +1,16 @@
+package com.finrating.repository;
+
+import com.finrating.entity.DatasetSample;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DatasetSampleRepository extends JpaRepository<DatasetSample, Long> {
+
+    @Modifying
+    @Query("DELETE FROM DatasetSample s WHERE s.datasetId = :datasetId")
+    void deleteByDatasetId(@Param("datasetId") Long datasetId);
+}
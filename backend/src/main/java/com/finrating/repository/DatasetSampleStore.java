@@ -0,0 +1,236 @@
+package com.finrating.repository;
+
+import com.finrating.entity.Dataset;
+import com.finrating.entity.DatasetSample;
+import com.finrating.entity.FinancialRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Uniform samples of each dataset's records, read by the approximate dashboard
+ * summary. The worker passes every record it ingests through a {@link Reservoir} of
+ * {@code app.dashboard.approximate.sample-size} rows and stores it in
+ * {@code dataset_samples} with the ingest. Like a columnar snapshot, a sample is only
+ * used while the dataset is at the source version it was drawn from; for a dataset
+ * without a current sample, {@link #tableSample} reads a block sample of its
+ * partition instead. Either way about one sample's worth of rows is read per dataset.
+ */
+@Repository
+public class DatasetSampleStore {
+
+    private static final FinancialRecord.CreditRating[] RATINGS = FinancialRecord.CreditRating.values();
+    private static final FinancialRecord.RatingCategory[] CATEGORIES = FinancialRecord.RatingCategory.values();
+
+    private final DatasetSampleRepository sampleRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final RecordPartitions recordPartitions;
+    private final int sampleSize;
+
+    public DatasetSampleStore(DatasetSampleRepository sampleRepository,
+                              JdbcTemplate jdbcTemplate,
+                              RecordPartitions recordPartitions,
+                              @Value("${app.dashboard.approximate.sample-size:4096}") int sampleSize) {
+        if (sampleSize < 2 || sampleSize > DatasetSample.MAX_ROWS) {
+            throw new IllegalArgumentException("Sample size must be between 2 and " + DatasetSample.MAX_ROWS);
+        }
+        this.sampleRepository = sampleRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.recordPartitions = recordPartitions;
+        this.sampleSize = sampleSize;
+    }
+
+    public Reservoir newReservoir() {
+        return new Reservoir(sampleSize);
+    }
+
+    /** Stores the reservoir as the sample of the dataset at {@code sourceVersion}. */
+    public void save(Long datasetId, Reservoir reservoir, long sourceVersion) {
+        sampleRepository.save(reservoir.toSample(datasetId, sourceVersion));
+    }
+
+    /** The datasets' current samples, by dataset id; stale ones are left out. */
+    public Map<Long, Sample> findCurrent(List<Dataset> datasets) {
+        Map<Long, Long> versions = new HashMap<>();
+        datasets.forEach(dataset -> versions.put(dataset.getId(), ColumnarSnapshotStore.sourceVersion(dataset)));
+
+        Map<Long, Sample> current = new HashMap<>();
+        for (DatasetSample sample : sampleRepository.findAllById(versions.keySet())) {
+            if (sample.getSourceVersion().equals(versions.get(sample.getDatasetId()))) {
+                current.put(sample.getDatasetId(), Sample.of(sample));
+            }
+        }
+        return current;
+    }
+
+    /**
+     * About {@code sample-size} of the dataset's records, read with {@code TABLESAMPLE
+     * SYSTEM} from its partition, so only that share of its pages is touched. Empty where
+     * it would not save work or cannot be trusted: an unpartitioned table (or another
+     * database), a dataset no larger than one sample, or fewer than two pages returned.
+     */
+    public Optional<Sample> tableSample(Dataset dataset) {
+        long population = dataset.getRecordCount() == null ? 0 : dataset.getRecordCount();
+        if (population <= sampleSize || !recordPartitions.isPartitioned()) return Optional.empty();
+
+        double percent = 100.0 * sampleSize / population;
+        Map<Long, long[][]> pages = new HashMap<>();
+        jdbcTemplate.query(
+                // TABLESAMPLE takes the percentage as a literal; it is computed here, not passed in
+                "SELECT (ctid::text::point)[0]::bigint, rating, category, COUNT(*) FROM financial_records " +
+                "TABLESAMPLE SYSTEM (" + String.format(Locale.ROOT, "%.6f", percent) + ") " +
+                "WHERE dataset_id = ? GROUP BY 1, 2, 3",
+                (RowCallbackHandler) rs -> {
+                    long[][] counts = pages.computeIfAbsent(rs.getLong(1),
+                            page -> new long[][]{new long[RATINGS.length + 1], new long[CATEGORIES.length + 1]});
+                    String rating = rs.getString(2);
+                    String category = rs.getString(3);
+                    counts[0][rating == null ? RATINGS.length : FinancialRecord.CreditRating.valueOf(rating).ordinal()]
+                            += rs.getLong(4);
+                    counts[1][category == null ? CATEGORIES.length : FinancialRecord.RatingCategory.valueOf(category).ordinal()]
+                            += rs.getLong(4);
+                },
+                dataset.getId());
+        if (pages.size() < 2) return Optional.empty();
+
+        Tally ratings = new Tally(RATINGS.length);
+        Tally categories = new Tally(CATEGORIES.length);
+        pages.values().forEach(counts -> {
+            ratings.addUnit(counts[0]);
+            categories.addUnit(counts[1]);
+        });
+        return Optional.of(new Sample(population, percent / 100, ratings, categories));
+    }
+
+    public void delete(Long datasetId) {
+        sampleRepository.deleteByDatasetId(datasetId);
+    }
+
+    /* ===================== RESERVOIR ===================== */
+
+    /** Algorithm R over the records of one ingest: each ends up in the sample with equal probability. */
+    public static final class Reservoir {
+
+        private final byte[] ratings;
+        private final byte[] categories;
+        private long seen;
+
+        private Reservoir(int size) {
+            this.ratings = new byte[size];
+            this.categories = new byte[size];
+        }
+
+        /** Offers a rated record. */
+        public void offer(FinancialRecord record) {
+            long slot = seen < ratings.length ? seen : ThreadLocalRandom.current().nextLong(seen + 1);
+            seen++;
+            if (slot >= ratings.length) return;
+            ratings[(int) slot] = code(record.getRating());
+            categories[(int) slot] = code(record.getCategory());
+        }
+
+        private DatasetSample toSample(Long datasetId, long sourceVersion) {
+            int size = (int) Math.min(seen, ratings.length);
+            return DatasetSample.builder()
+                    .datasetId(datasetId)
+                    .sourceVersion(sourceVersion)
+                    .population(seen)
+                    .ratings(Arrays.copyOf(ratings, size))
+                    .categories(Arrays.copyOf(categories, size))
+                    .build();
+        }
+
+        private static byte code(Enum<?> value) {
+            return value == null ? 0 : (byte) (value.ordinal() + 1);
+        }
+    }
+
+    /* ===================== ESTIMATION ===================== */
+
+    /** Sampled rows of one dataset, drawn from {@code fraction} of its {@code population} records. */
+    public record Sample(long population, double fraction, Tally ratings, Tally categories) {
+
+        private static Sample of(DatasetSample stored) {
+            Tally ratings = new Tally(RATINGS.length);
+            Tally categories = new Tally(CATEGORIES.length);
+            for (int i = 0; i < stored.getRatings().length; i++) {
+                ratings.addRow(stored.getRatings()[i] == 0 ? RATINGS.length : stored.getRatings()[i] - 1);
+                categories.addRow(stored.getCategories()[i] == 0 ? CATEGORIES.length : stored.getCategories()[i] - 1);
+            }
+            long population = stored.getPopulation();
+            return new Sample(population, population == 0 ? 1 : (double) stored.getRatings().length / population,
+                    ratings, categories);
+        }
+    }
+
+    /**
+     * Sampled values of one column by ordinal, the last slot counting rows without one,
+     * grouped in the units they were drawn as: single rows from a reservoir, pages from
+     * a block sample. Keeps the sums for the variance of a cluster sample, which for
+     * single rows is the usual binomial one.
+     */
+    public static final class Tally {
+
+        private final long[] hits;
+        private final double[] hitSquares;
+        private final double[] hitRows;
+        private long units;
+        private long rows;
+        private double rowSquares;
+
+        private Tally(int values) {
+            this.hits = new long[values + 1];
+            this.hitSquares = new double[values + 1];
+            this.hitRows = new double[values + 1];
+        }
+
+        private void addUnit(long[] counts) {
+            long unitRows = Arrays.stream(counts).sum();
+            for (int v = 0; v < counts.length; v++) {
+                hits[v] += counts[v];
+                hitSquares[v] += (double) counts[v] * counts[v];
+                hitRows[v] += (double) counts[v] * unitRows;
+            }
+            units++;
+            rows += unitRows;
+            rowSquares += (double) unitRows * unitRows;
+        }
+
+        private void addRow(int value) {
+            hits[value]++;
+            hitSquares[value]++;
+            hitRows[value]++;
+            units++;
+            rows++;
+            rowSquares++;
+        }
+
+        public long rows() {
+            return rows;
+        }
+
+        public long hits(int value) {
+            return hits[value];
+        }
+
+        /**
+         * Estimated records with {@code value} among {@code population} and the variance
+         * of that estimate: a ratio estimate over the sampled units, with the finite
+         * population correction for having drawn {@code fraction} of them.
+         */
+        public double[] estimate(int value, long population, double fraction) {
+            if (rows == 0) return new double[]{0, 0};
+            double share = (double) hits[value] / rows;
+            if (units < 2 || fraction >= 1) return new double[]{population * share, 0};
+
+            double residuals = hitSquares[value] - 2 * share * hitRows[value] + share * share * rowSquares;
+            double variance = (double) population * population * (1 - fraction)
+                    * residuals * units / ((units - 1) * (double) rows * rows);
+            return new double[]{population * share, Math.max(0, variance)};
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.finrating.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * One-time move of records written before the dimension tables existed: their
+ * issuer_name / industry / country text columns are copied into the dimension
+ * tables and replaced by ids. Idempotent, so it runs on every worker start; the
+ * legacy columns are left in place for the operator to drop (see README), after
+ * which it does nothing.
+ * <p>
+ * Also widens industry and country ids of databases created while they were
+ * {@code smallint} to {@code integer}, identity sequences included.
+ * <p>
+ * On PostgreSQL the whole run is one transaction holding an advisory lock, so of
+ * several workers starting together one migrates and the others skip straight
+ * on; names inserted meanwhile by ingestion are skipped by {@code ON CONFLICT}.
+ */
+@Slf4j
+@Component
+@Profile("!api")
+public class DimensionBackfill implements ApplicationRunner {
+
+    // Arbitrary, but shared by every worker of the platform
+    private static final long LOCK_KEY = 0x46524442L;
+
+    // legacy text column -> dimension table, id column
+    private static final List<String[]> DIMENSIONS = List.of(
+            new String[]{"issuer_name", "issuers", "issuer_id"},
+            new String[]{"industry", "industries", "industry_id"},
+            new String[]{"country", "countries", "country_id"}
+    );
+
+    // table, column once declared smallint
+    private static final List<String[]> WIDENED_IDS = List.of(
+            new String[]{"industries", "id"},
+            new String[]{"countries", "id"},
+            new String[]{"financial_records", "industry_id"},
+            new String[]{"financial_records", "country_id"}
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public DimensionBackfill(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        boolean postgres = "PostgreSQL".equals(jdbcTemplate.execute(
+                (ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName()));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // Released on commit; the same connection runs every statement below
+            if (postgres && !Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT pg_try_advisory_xact_lock(?)", Boolean.class, LOCK_KEY))) {
+                log.info("Dimension backfill is running on another worker; skipping");
+                return;
+            }
+            if (postgres) widenSmallintIds();
+            backfill(postgres);
+        });
+    }
+
+    private void backfill(boolean postgres) {
+        List<String[]> legacy = DIMENSIONS.stream().filter(d -> legacyColumnExists(d[0])).toList();
+        if (legacy.isEmpty() || !unresolvedRowsExist(legacy)) return;
+
+        for (String[] dimension : legacy) {
+            String column = dimension[0];
+            String table = dimension[1];
+            String idColumn = dimension[2];
+
+            int added = jdbcTemplate.update(
+                    "INSERT INTO " + table + " (name) SELECT DISTINCT f." + column + " FROM financial_records f " +
+                    "WHERE f." + column + " IS NOT NULL AND f." + idColumn + " IS NULL " +
+                    "AND NOT EXISTS (SELECT 1 FROM " + table + " d WHERE d.name = f." + column + ")" +
+                    (postgres ? " ON CONFLICT (name) DO NOTHING" : ""));
+            int updated = jdbcTemplate.update(
+                    "UPDATE financial_records SET " + idColumn + " = " +
+                    "(SELECT d.id FROM " + table + " d WHERE d.name = financial_records." + column + ") " +
+                    "WHERE " + idColumn + " IS NULL AND " + column + " IS NOT NULL");
+
+            if (added > 0 || updated > 0) {
+                log.info("Backfilled {}: {} new names, {} records now reference {}", column, added, updated, table);
+            }
+        }
+    }
+
+    private void widenSmallintIds() {
+        for (String[] widened : WIDENED_IDS) {
+            String table = widened[0];
+            String column = widened[1];
+            List<String> types = jdbcTemplate.queryForList(
+                    "SELECT data_type FROM information_schema.columns WHERE table_name = ? AND column_name = ?",
+                    String.class, table, column);
+            if (!types.contains("smallint")) continue;
+
+            // Rewrites the table (every partition of financial_records) once
+            jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN " + column + " TYPE integer");
+            String sequence = jdbcTemplate.queryForObject("SELECT pg_get_serial_sequence(?, ?)", String.class, table, column);
+            if (sequence != null) jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " AS integer");
+            log.info("Widened {}.{} from smallint to integer", table, column);
+        }
+    }
+
+    private boolean legacyColumnExists(String column) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.columns " +
+                "WHERE LOWER(table_name) = 'financial_records' AND LOWER(column_name) = ?",
+                Integer.class, column);
+        return count != null && count > 0;
+    }
+
+    /** Stops at the first record still to move, so a finished backfill costs one probe. */
+    private boolean unresolvedRowsExist(List<String[]> legacy) {
+        String unresolved = legacy.stream()
+                .map(d -> "(" + d[2] + " IS NULL AND " + d[0] + " IS NOT NULL)")
+                .collect(Collectors.joining(" OR "));
+        return !jdbcTemplate.queryForList(
+                "SELECT 1 FROM financial_records WHERE " + unresolved + " FETCH FIRST 1 ROWS ONLY", Integer.class).isEmpty();
+    }
+}
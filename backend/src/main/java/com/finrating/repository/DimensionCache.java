@@ -0,0 +1,214 @@
+package com.finrating.repository;
+
+import com.finrating.entity.FinancialRecord;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory interning of issuer, industry and country names to the surrogate
+ * ids stored on {@code financial_records}. Names are resolved against the
+ * database only the first time a process sees them, a whole batch at a time
+ * through {@link #encodeAll}; after that encoding and decoding are map lookups.
+ * <p>
+ * New names are inserted in their own transaction, so an id handed out here
+ * stays valid even if the ingest that introduced it rolls back. Concurrent
+ * inserts of the same name from other processes are resolved by the unique
+ * constraint on the name.
+ */
+@Slf4j
+@Repository
+public class DimensionCache {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate requiresNew;
+
+    private final Dictionary issuers = new Dictionary("issuers");
+    private final Dictionary industries = new Dictionary("industries");
+    private final Dictionary countries = new Dictionary("countries");
+
+    public DimensionCache(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /** {@link #encode} for a batch, with all names not yet cached resolved in one go. */
+    public void encodeAll(Collection<FinancialRecord> records) {
+        Set<String> issuerNames = new HashSet<>();
+        Set<String> industryNames = new HashSet<>();
+        Set<String> countryNames = new HashSet<>();
+        for (FinancialRecord record : records) {
+            issuerNames.add(record.getIssuerName());
+            industryNames.add(record.getIndustry());
+            countryNames.add(record.getCountry());
+        }
+        issuers.internAll(issuerNames);
+        industries.internAll(industryNames);
+        countries.internAll(countryNames);
+
+        records.forEach(this::encode);
+    }
+
+    /** Sets the dimension ids from the names, creating dimension rows as needed. */
+    public void encode(FinancialRecord record) {
+        record.setIssuerId(issuers.idFor(record.getIssuerName()));
+        record.setIndustryId(industries.idFor(record.getIndustry()));
+        record.setCountryId(countries.idFor(record.getCountry()));
+    }
+
+    /** Sets the names from the dimension ids. */
+    public void decode(FinancialRecord record) {
+        record.setIssuerName(issuers.nameFor(record.getIssuerId()));
+        record.setIndustry(industries.nameFor(record.getIndustryId()));
+        record.setCountry(countries.nameFor(record.getCountryId()));
+    }
+
+    public String issuerName(Number id) {
+        return issuers.nameFor(id);
+    }
+
+    public String industryName(Number id) {
+        return industries.nameFor(id);
+    }
+
+    public String countryName(Number id) {
+        return countries.nameFor(id);
+    }
+
+    /** Ids of the known industries among {@code names}; unknown names are skipped, not created. */
+    public List<Integer> industryIds(Collection<String> names) {
+        return industries.existingIds(names);
+    }
+
+    public List<Integer> countryIds(Collection<String> names) {
+        return countries.existingIds(names);
+    }
+
+    /* ===================== DICTIONARY ===================== */
+
+    private final class Dictionary {
+
+        private final String table;
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private final Map<Integer, String> names = new ConcurrentHashMap<>();
+
+        private Dictionary(String table) {
+            this.table = table;
+        }
+
+        Integer idFor(String name) {
+            if (name == null) return null;
+            Integer id = ids.get(name);
+            return id != null ? id : remember(name, findOrInsert(name));
+        }
+
+        String nameFor(Number id) {
+            if (id == null) return null;
+            Integer key = id.intValue();
+            String name = names.get(key);
+            if (name != null) return name;
+
+            List<String> found = jdbcTemplate.queryForList(
+                    "SELECT name FROM " + table + " WHERE id = ?", String.class, key);
+            if (found.isEmpty()) throw new IllegalStateException("No row " + key + " in " + table);
+            remember(found.get(0), key);
+            return found.get(0);
+        }
+
+        List<Integer> existingIds(Collection<String> wanted) {
+            List<Integer> result = new ArrayList<>(wanted.size());
+            for (String name : wanted) {
+                Integer id = ids.get(name);
+                if (id == null) {
+                    id = findId(name);
+                    if (id == null) continue;
+                    remember(name, id);
+                }
+                result.add(id);
+            }
+            return result;
+        }
+
+        /** Caches ids for all of {@code wanted}, inserting the unknown names in one transaction. */
+        void internAll(Collection<String> wanted) {
+            List<String> missing = new ArrayList<>();
+            for (String name : wanted) {
+                if (name != null && !ids.containsKey(name)) missing.add(name);
+            }
+            if (missing.isEmpty()) return;
+
+            try {
+                requiresNew.executeWithoutResult(status -> {
+                    Map<String, Integer> found = findIds(missing);
+                    List<String> unknown = missing.stream().filter(name -> !found.containsKey(name)).toList();
+                    if (!unknown.isEmpty()) {
+                        jdbcTemplate.batchUpdate("INSERT INTO " + table + " (name) VALUES (?)", unknown, unknown.size(),
+                                (ps, name) -> ps.setString(1, name));
+                        found.putAll(findIds(unknown));
+                        log.debug("Added {} names to {}", unknown.size(), table);
+                    }
+                    found.forEach(this::remember);
+                });
+            } catch (DuplicateKeyException e) {
+                // Raced with another process on some name; settle them one at a time
+                missing.forEach(this::idFor);
+            }
+        }
+
+        private Map<String, Integer> findIds(Collection<String> names) {
+            Map<String, Integer> found = new HashMap<>();
+            // One array parameter rather than an IN list: a single statement shape, and indexed on H2 too
+            jdbcTemplate.query("SELECT id, name FROM " + table + " WHERE name = ANY (?)",
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", names.toArray())),
+                    rs -> {
+                        found.put(rs.getString(2), rs.getInt(1));
+                    });
+            return found;
+        }
+
+        private Integer findOrInsert(String name) {
+            try {
+                return requiresNew.execute(status -> {
+                    Integer existing = findId(name);
+                    if (existing != null) return existing;
+
+                    KeyHolder key = new GeneratedKeyHolder();
+                    jdbcTemplate.update(con -> {
+                        PreparedStatement ps = con.prepareStatement(
+                                "INSERT INTO " + table + " (name) VALUES (?)", new String[]{"id"});
+                        ps.setString(1, name);
+                        return ps;
+                    }, key);
+                    log.debug("Added '{}' to {}", name, table);
+                    return key.getKey().intValue();
+                });
+            } catch (DuplicateKeyException e) {
+                // Another process inserted it first and has committed
+                return findId(name);
+            }
+        }
+
+        private Integer findId(String name) {
+            List<Integer> found = jdbcTemplate.queryForList(
+                    "SELECT id FROM " + table + " WHERE name = ?", Integer.class, name);
+            return found.isEmpty() ? null : found.get(0);
+        }
+
+        private Integer remember(String name, Integer id) {
+            ids.put(name, id);
+            names.put(id, name);
+            return id;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.finrating.repository;
+
+import com.finrating.entity.FinancialRecord;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Keeps the name fields of {@link FinancialRecord} and the stored dimension ids
+ * in step for JPA reads and writes. The JDBC writer encodes on its own.
+ * <p>
+ * Hibernate builds the listener through Spring while the EntityManagerFactory is
+ * being created; the cache depends on the transaction manager, which depends on
+ * that factory, hence the deferred lookup. It is an {@link ObjectProvider} rather
+ * than a {@code @Lazy} proxy: under AOT a runtime proxy of {@link DimensionCache}
+ * clashes with the repository proxy class generated for it at build time.
+ */
+public class DimensionNameListener {
+
+    private final ObjectProvider<DimensionCache> dimensionCacheProvider;
+    private volatile DimensionCache dimensionCache;
+
+    public DimensionNameListener(ObjectProvider<DimensionCache> dimensionCacheProvider) {
+        this.dimensionCacheProvider = dimensionCacheProvider;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void encode(FinancialRecord record) {
+        dimensionCache().encode(record);
+    }
+
+    @PostLoad
+    public void decode(FinancialRecord record) {
+        dimensionCache().decode(record);
+    }
+
+    private DimensionCache dimensionCache() {
+        DimensionCache cache = dimensionCache;
+        if (cache == null) {
+            cache = dimensionCacheProvider.getObject();
+            dimensionCache = cache;
+        }
+        return cache;
+    }
+}
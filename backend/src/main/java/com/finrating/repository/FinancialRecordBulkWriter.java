@@ -0,0 +1,229 @@
+package com.finrating.repository;
+
+import com.finrating.entity.FinancialRecord;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * JDBC batch insert for financial records. Hibernate cannot batch inserts on an
+ * IDENTITY key, so high-volume paths write here instead of {@code saveAll}.
+ * Records are not attached to the persistence context, and their ids stay null
+ * unless written through {@link #insertReturningIds} or {@link #upsert}. Names are encoded through {@link DimensionCache} here, since JDBC bypasses
+ * the entity listener.
+ * <p>
+ * Delta ingestion upserts on {@code (dataset_id, record_key)}; that part uses
+ * PostgreSQL's {@code INSERT ... ON CONFLICT}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class FinancialRecordBulkWriter {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO financial_records (dataset_id, issuer_id, industry_id, country_id, " +
+            "revenue, ebitda, total_debt, interest_expense, current_assets, current_liabilities, " +
+            "debt_to_ebitda, interest_coverage_ratio, liquidity_coverage_ratio, revenue_stability_score, " +
+            "rating, category, calculated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO financial_records (dataset_id, issuer_id, industry_id, country_id, " +
+            "revenue, ebitda, total_debt, interest_expense, current_assets, current_liabilities, " +
+            "debt_to_ebitda, interest_coverage_ratio, liquidity_coverage_ratio, revenue_stability_score, " +
+            "rating, category, calculated_at, record_key, content_hash) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (dataset_id, record_key) DO UPDATE SET " +
+            "issuer_id = EXCLUDED.issuer_id, industry_id = EXCLUDED.industry_id, country_id = EXCLUDED.country_id, " +
+            "revenue = EXCLUDED.revenue, ebitda = EXCLUDED.ebitda, total_debt = EXCLUDED.total_debt, " +
+            "interest_expense = EXCLUDED.interest_expense, current_assets = EXCLUDED.current_assets, " +
+            "current_liabilities = EXCLUDED.current_liabilities, debt_to_ebitda = EXCLUDED.debt_to_ebitda, " +
+            "interest_coverage_ratio = EXCLUDED.interest_coverage_ratio, " +
+            "liquidity_coverage_ratio = EXCLUDED.liquidity_coverage_ratio, " +
+            "revenue_stability_score = EXCLUDED.revenue_stability_score, rating = EXCLUDED.rating, " +
+            "category = EXCLUDED.category, calculated_at = EXCLUDED.calculated_at, " +
+            "content_hash = EXCLUDED.content_hash";
+
+    private static final String RESTORE_SQL =
+            "INSERT INTO financial_records (dataset_id, issuer_id, industry_id, country_id, " +
+            "revenue, ebitda, total_debt, interest_expense, current_assets, current_liabilities, " +
+            "debt_to_ebitda, interest_coverage_ratio, liquidity_coverage_ratio, revenue_stability_score, " +
+            "rating, category, calculated_at, record_key, content_hash) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final DimensionCache dimensionCache;
+
+    public void insert(List<FinancialRecord> records) {
+        if (records.isEmpty()) return;
+        dimensionCache.encodeAll(records);
+        jdbcTemplate.batchUpdate(INSERT_SQL, records, records.size(), this::bindColumns);
+    }
+
+    /**
+     * Same batch as {@link #insert}, reading the generated keys back into the records'
+     * ids, for callers that reference the new rows (alerts carry record ids).
+     */
+    public void insertReturningIds(List<FinancialRecord> records) {
+        if (records.isEmpty()) return;
+        dimensionCache.encodeAll(records);
+        batchReturningIds(INSERT_SQL, records, this::bindColumns);
+    }
+
+    /**
+     * Inserts or replaces by {@code (dataset_id, record_key)}; keys must be unique within
+     * the list. Each record gets the id of its row, new or replaced.
+     */
+    public void upsert(List<FinancialRecord> records) {
+        if (records.isEmpty()) return;
+        dimensionCache.encodeAll(records);
+
+        batchReturningIds(UPSERT_SQL, records, (ps, r) -> {
+            bindColumns(ps, r);
+            ps.setString(18, r.getRecordKey());
+            ps.setLong(19, r.getContentHash());
+        });
+    }
+
+    /** Inserts records exactly as they were stored, dimension ids and delta keys included. */
+    public void restore(List<FinancialRecord> records) {
+        if (records.isEmpty()) return;
+
+        jdbcTemplate.batchUpdate(RESTORE_SQL, records, records.size(), (ps, r) -> {
+            bindColumns(ps, r);
+            ps.setString(18, r.getRecordKey());
+            ps.setObject(19, r.getContentHash(), Types.BIGINT);
+        });
+    }
+
+    /** Stored content hash per record key, for the keys that exist in the dataset. */
+    public Map<String, Long> findContentHashes(Long datasetId, Collection<String> recordKeys) {
+        Map<String, Long> hashes = new HashMap<>();
+        if (recordKeys.isEmpty()) return hashes;
+
+        namedJdbcTemplate.query(
+                "SELECT record_key, content_hash FROM financial_records " +
+                "WHERE dataset_id = :datasetId AND record_key IN (:keys)",
+                new MapSqlParameterSource("datasetId", datasetId).addValue("keys", recordKeys),
+                rs -> {
+                    hashes.put(rs.getString(1), rs.getLong(2));
+                });
+        return hashes;
+    }
+
+    /**
+     * Streams the rows of the dataset not yet keyed for delta mode, with the columns
+     * the key and hash cover, to {@code handler} in chunks of up to {@code chunkSize}.
+     * One cursor reads them all, so the handler may key each chunk as it goes; call
+     * within a transaction for the fetch size to apply.
+     */
+    public void forEachUnkeyedChunk(Long datasetId, int chunkSize, Consumer<List<FinancialRecord>> handler) {
+        List<FinancialRecord> chunk = new ArrayList<>(chunkSize);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT id, issuer_id, industry_id, country_id, revenue, ebitda, total_debt, interest_expense, " +
+                    "current_assets, current_liabilities FROM financial_records " +
+                    "WHERE dataset_id = ? AND record_key IS NULL");
+            ps.setLong(1, datasetId);
+            ps.setFetchSize(chunkSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            FinancialRecord record = FinancialRecord.builder()
+                    .id(rs.getLong(1))
+                    .issuerId(rs.getObject(2, Integer.class))
+                    .industryId(rs.getObject(3, Integer.class))
+                    .countryId(rs.getObject(4, Integer.class))
+                    .revenue(rs.getBigDecimal(5))
+                    .ebitda(rs.getBigDecimal(6))
+                    .totalDebt(rs.getBigDecimal(7))
+                    .interestExpense(rs.getBigDecimal(8))
+                    .currentAssets(rs.getBigDecimal(9))
+                    .currentLiabilities(rs.getBigDecimal(10))
+                    .build();
+            dimensionCache.decode(record);
+            chunk.add(record);
+            if (chunk.size() == chunkSize) {
+                handler.accept(chunk);
+                chunk.clear();
+            }
+        });
+        if (!chunk.isEmpty()) handler.accept(chunk);
+    }
+
+    public void assignKeys(Long datasetId, List<FinancialRecord> records) {
+        if (records.isEmpty()) return;
+
+        // dataset_id lets PostgreSQL prune to the dataset's partition
+        jdbcTemplate.batchUpdate(
+                "UPDATE financial_records SET record_key = ?, content_hash = ? WHERE id = ? AND dataset_id = ?",
+                records, records.size(), (ps, r) -> {
+                    ps.setString(1, r.getRecordKey());
+                    ps.setLong(2, r.getContentHash());
+                    ps.setLong(3, r.getId());
+                    ps.setLong(4, datasetId);
+                });
+    }
+
+    private void batchReturningIds(String sql, List<FinancialRecord> records,
+                                   ParameterizedPreparedStatementSetter<FinancialRecord> binder) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            try (PreparedStatement ps = con.prepareStatement(sql, new String[]{"id"})) {
+                for (FinancialRecord record : records) {
+                    binder.setValues(ps, record);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                int i = 0;
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next() && i < records.size()) records.get(i++).setId(keys.getLong(1));
+                }
+                if (i != records.size()) {
+                    throw new IllegalStateException("Expected " + records.size() + " generated ids, got " + i);
+                }
+            }
+            return null;
+        });
+    }
+
+    private void bindColumns(PreparedStatement ps, FinancialRecord r) throws SQLException {
+        ps.setLong(1, r.getDataset().getId());
+        ps.setObject(2, r.getIssuerId(), Types.INTEGER);
+        ps.setObject(3, r.getIndustryId(), Types.INTEGER);
+        ps.setObject(4, r.getCountryId(), Types.INTEGER);
+        ps.setBigDecimal(5, r.getRevenue());
+        ps.setBigDecimal(6, r.getEbitda());
+        ps.setBigDecimal(7, r.getTotalDebt());
+        ps.setBigDecimal(8, r.getInterestExpense());
+        ps.setBigDecimal(9, r.getCurrentAssets());
+        ps.setBigDecimal(10, r.getCurrentLiabilities());
+        ps.setBigDecimal(11, r.getDebtToEbitda());
+        ps.setBigDecimal(12, r.getInterestCoverageRatio());
+        ps.setBigDecimal(13, r.getLiquidityCoverageRatio());
+        ps.setBigDecimal(14, r.getRevenueStabilityScore());
+        ps.setString(15, r.getRating() == null ? null : r.getRating().name());
+        ps.setString(16, r.getCategory() == null ? null : r.getCategory().name());
+        if (r.getCalculatedAt() == null) {
+            ps.setNull(17, Types.TIMESTAMP);
+        } else {
+            ps.setTimestamp(17, Timestamp.valueOf(r.getCalculatedAt()));
+        }
+    }
+}
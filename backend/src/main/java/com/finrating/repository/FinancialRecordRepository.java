@@ -21,4 +21,8 @@ public interface FinancialRecordRepository extends JpaRepository<FinancialRecord
     @Query("SELECT f.rating as rating, COUNT(f) as count FROM FinancialRecord f " +
            "WHERE f.dataset IN :datasets GROUP BY f.rating")
     java.util.List<Map<String, Object>> countByRating(java.util.List<Dataset> datasets);
+
+    @Query("SELECT f.category as category, COUNT(f) as count FROM FinancialRecord f " +
+           "WHERE f.dataset IN :datasets GROUP BY f.category")
+    java.util.List<Map<String, Object>> countByCategory(java.util.List<Dataset> datasets);
 }
@@ -0,0 +1,58 @@
+package com.finrating.repository;
+
+import com.finrating.entity.IngestionJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Optional;
+
+@Repository
+public interface IngestionJobRepository extends JpaRepository<IngestionJob, Long> {
+
+    /**
+     * Next job to lease in the given lanes: queued, or running under an expired lease.
+     * Users with the fewest jobs running across all workers go first, then oldest
+     * first; SKIP LOCKED lets every poller on every node claim without blocking. The
+     * running jobs are counted once per user rather than once per candidate, and
+     * leases are judged by the database clock, which every node shares.
+     */
+    @Query(value = "WITH running AS (" +
+                   "    SELECT user_id, COUNT(*) AS jobs FROM ingestion_jobs " +
+                   "    WHERE status = 'RUNNING' AND lease_expires_at >= LOCALTIMESTAMP GROUP BY user_id) " +
+                   "SELECT j.* FROM ingestion_jobs j LEFT JOIN running r ON r.user_id = j.user_id " +
+                   "WHERE j.lane IN (:lanes) AND (j.status = 'QUEUED' OR j.lease_expires_at < LOCALTIMESTAMP) " +
+                   "ORDER BY COALESCE(r.jobs, 0), j.id LIMIT 1 FOR UPDATE OF j SKIP LOCKED",
+           nativeQuery = true)
+    Optional<IngestionJob> lockNextClaimable(@Param("lanes") Collection<String> lanes);
+
+    /**
+     * Leases a job locked by {@link #lockNextClaimable} to {@code owner} until {@code seconds}
+     * from now on the database clock. Clears the persistence context, so the locked entity
+     * is detached and its stale lease is not written back.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE ingestion_jobs SET status = 'RUNNING', lease_owner = :owner, attempts = attempts + 1, " +
+                   "lease_expires_at = LOCALTIMESTAMP + CAST(:seconds AS DOUBLE PRECISION) * INTERVAL '1' SECOND " +
+                   "WHERE id = :id",
+           nativeQuery = true)
+    int claim(@Param("id") Long id, @Param("owner") String owner, @Param("seconds") double seconds);
+
+    /** Renews every lease {@code owner} holds to {@code seconds} from now on the database clock. */
+    @Modifying
+    @Query(value = "UPDATE ingestion_jobs " +
+                   "SET lease_expires_at = LOCALTIMESTAMP + CAST(:seconds AS DOUBLE PRECISION) * INTERVAL '1' SECOND " +
+                   "WHERE lease_owner = :owner",
+           nativeQuery = true)
+    int extendLeases(@Param("owner") String owner, @Param("seconds") double seconds);
+
+    /** Removes a finished job unless its lease has meanwhile passed to another worker. */
+    @Modifying
+    @Query("DELETE FROM IngestionJob j WHERE j.id = :id AND j.leaseOwner = :owner")
+    int deleteLeased(@Param("id") Long id, @Param("owner") String owner);
+
+    long countByStatus(IngestionJob.Status status);
+}
@@ -0,0 +1,266 @@
+package com.finrating.repository;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-dataset partitions of {@code financial_records}. On PostgreSQL the table is
+ * list-partitioned by {@code dataset_id} (see schema-postgresql.sql), with one
+ * partition {@code financial_records_p<datasetId>} created before a dataset's first
+ * rows are written. Deleting a dataset then detaches and drops its partition in
+ * the background instead of deleting its rows, and queries filtered by dataset only
+ * scan the partitions of those datasets.
+ * <p>
+ * Partitions whose dataset is gone, because a drop gave up or its node stopped before
+ * running it, are found and dropped by {@link #dropOrphans}.
+ * <p>
+ * On other databases, and on PostgreSQL databases whose table predates partitioning
+ * (see README), partition calls do nothing and records are deleted row by row.
+ */
+@Slf4j
+@Repository
+public class RecordPartitions {
+
+    private static final String PARENT = "financial_records";
+    // Advisory lock class of a dataset id: held shared while it may be created, exclusive by the sweep
+    private static final int LOCK_CLASS = 0x46525050;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate requiresNew;
+    private final String lockTimeout;
+    private final long dropRetryDelayMs;
+    private final int dropMaxAttempts;
+
+    private final Set<Long> created = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService dropper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "partition-drop");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Boolean partitioned;
+
+    public RecordPartitions(JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${app.partitions.lock-timeout:5s}") String lockTimeout,
+                            @Value("${app.partitions.drop-retry-delay:30000}") long dropRetryDelayMs,
+                            @Value("${app.partitions.drop-max-attempts:10}") int dropMaxAttempts) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.lockTimeout = lockTimeout;
+        this.dropRetryDelayMs = dropRetryDelayMs;
+        this.dropMaxAttempts = dropMaxAttempts;
+    }
+
+    public boolean isPartitioned() {
+        Boolean result = partitioned;
+        if (result == null) {
+            result = detectPartitioned();
+            partitioned = result;
+            log.info(result
+                    ? "financial_records is partitioned by dataset"
+                    : "financial_records is not partitioned; dataset deletes remove rows one by one");
+        }
+        return result;
+    }
+
+    /**
+     * Creates the dataset's partition if it does not exist yet. Runs in its own short
+     * transaction: attaching a partition locks the parent table, which must not be
+     * held for the length of an ingest. The calling transaction, which may be the one
+     * inserting the dataset, keeps a shared lock on the id until it ends, so that
+     * {@link #dropOrphans} does not take the new partition for an orphan meanwhile.
+     */
+    public void ensurePartition(Long datasetId) {
+        if (!isPartitioned() || created.contains(datasetId)) return;
+
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock_shared(?, ?)",
+                    LOCK_CLASS, lockId(datasetId));
+        }
+        requiresNew.executeWithoutResult(status -> {
+            setLocalLockTimeout();
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(datasetId)
+                    + " PARTITION OF " + PARENT + " FOR VALUES IN (" + datasetId + ")");
+        });
+        created.add(datasetId);
+    }
+
+    /**
+     * Removes a dataset's records. Partitioned: the partition is detached and dropped
+     * once the calling transaction commits, off the request thread. Otherwise the rows
+     * are deleted now, in the calling transaction.
+     */
+    public void discard(Long datasetId) {
+        if (!isPartitioned()) {
+            int deleted = jdbcTemplate.update("DELETE FROM " + PARENT + " WHERE dataset_id = ?", datasetId);
+            log.debug("Deleted {} records of dataset {}", deleted, datasetId);
+            return;
+        }
+
+        created.remove(datasetId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    scheduleDrop(datasetId, 1, 0);
+                }
+            });
+        } else {
+            scheduleDrop(datasetId, 1, 0);
+        }
+    }
+
+    /**
+     * Deletes a dataset's records but keeps its partition, for records that may be
+     * written back (archival). Partitioned: a TRUNCATE of the partition in the calling
+     * transaction, which locks only that partition.
+     */
+    public void truncate(Long datasetId) {
+        if (!isPartitioned()) {
+            jdbcTemplate.update("DELETE FROM " + PARENT + " WHERE dataset_id = ?", datasetId);
+            return;
+        }
+
+        Boolean exists = jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, partitionName(datasetId));
+        if (Boolean.TRUE.equals(exists)) {
+            jdbcTemplate.execute("TRUNCATE " + partitionName(datasetId));
+        }
+    }
+
+    /**
+     * Detaches and drops every {@code financial_records_p<id>} table without a datasets
+     * row, attached or not. A partition whose dataset may still be inserted by an open
+     * transaction is skipped until a later run.
+     *
+     * @return the number of partitions dropped
+     */
+    public int dropOrphans() {
+        if (!isPartitioned()) return 0;
+
+        List<Long> candidates = jdbcTemplate.queryForList(
+                "SELECT substring(c.relname FROM '^" + PARENT + "_p([0-9]+)$')::bigint AS dataset_id " +
+                "FROM pg_class c " +
+                "WHERE c.relname ~ '^" + PARENT + "_p[0-9]+$' AND c.relkind = 'r' AND pg_table_is_visible(c.oid) " +
+                "AND NOT EXISTS (SELECT 1 FROM datasets d " +
+                "                WHERE d.id = substring(c.relname FROM '^" + PARENT + "_p([0-9]+)$')::bigint)",
+                Long.class);
+
+        int dropped = 0;
+        for (Long datasetId : candidates) {
+            try {
+                if (!isOrphan(datasetId)) continue;
+                created.remove(datasetId);
+                detachAndDrop(datasetId);
+                dropped++;
+            } catch (DataAccessException e) {
+                log.warn("Dropping orphaned partition of dataset {} failed, will retry next run: {}",
+                        datasetId, e.getMessage());
+            }
+        }
+        return dropped;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dropper.shutdown();
+    }
+
+    /* ===================== DROP ===================== */
+
+    private void scheduleDrop(Long datasetId, int attempt, long delayMs) {
+        dropper.schedule(() -> {
+            try {
+                detachAndDrop(datasetId);
+            } catch (DataAccessException e) {
+                if (attempt >= dropMaxAttempts) {
+                    log.error("Giving up on dropping partition of dataset {} after {} attempts; drop {} by hand",
+                            datasetId, attempt, partitionName(datasetId), e);
+                    return;
+                }
+                log.warn("Dropping partition of dataset {} failed (attempt {}), retrying: {}",
+                        datasetId, attempt, e.getMessage());
+                scheduleDrop(datasetId, attempt + 1, dropRetryDelayMs);
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void detachAndDrop(Long datasetId) {
+        String partition = partitionName(datasetId);
+
+        // Outside a transaction on purpose: CONCURRENTLY cannot run in one, and unlike a
+        // plain DETACH or DROP it does not block readers of the parent while it waits.
+        // A detach interrupted half way is left pending and has to be finalized instead.
+        List<Boolean> pending = jdbcTemplate.queryForList(
+                "SELECT inhdetachpending FROM pg_inherits " +
+                "WHERE inhrelid = to_regclass(?) AND inhparent = to_regclass(?)",
+                Boolean.class, partition, PARENT);
+        if (!pending.isEmpty()) {
+            jdbcTemplate.execute("ALTER TABLE " + PARENT + " DETACH PARTITION " + partition
+                    + (pending.get(0) ? " FINALIZE" : " CONCURRENTLY"));
+        }
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+        log.info("Dropped partition {}", partition);
+    }
+
+    /**
+     * Whether the dataset is gone and no transaction that could still insert it is open.
+     * Once the exclusive lock is granted any such transaction has ended, and ids are not
+     * reused, so nothing can bring the dataset back after the lock is released.
+     */
+    private boolean isOrphan(Long datasetId) {
+        return Boolean.TRUE.equals(requiresNew.execute(status -> {
+            if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT pg_try_advisory_xact_lock(?, ?)", Boolean.class, LOCK_CLASS, lockId(datasetId)))) {
+                return false;
+            }
+            return !jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM datasets WHERE id = ?)", Boolean.class, datasetId);
+        }));
+    }
+
+    /* ===================== HELPERS ===================== */
+
+    private boolean detectPartitioned() {
+        String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(product)) return false;
+
+        Boolean result = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?))",
+                Boolean.class, PARENT);
+        return Boolean.TRUE.equals(result);
+    }
+
+    private void setLocalLockTimeout() {
+        // Fail fast rather than queue every reader of the table behind our lock request
+        jdbcTemplate.execute("SET LOCAL lock_timeout = '" + lockTimeout.replace("'", "") + "'");
+    }
+
+    private static int lockId(Long datasetId) {
+        // Ids past the int range share locks, which at worst makes the sweep skip a partition once
+        return datasetId.intValue();
+    }
+
+    private static String partitionName(Long datasetId) {
+        return PARENT + "_p" + datasetId;
+    }
+}
@@ -0,0 +1,227 @@
+package com.finrating.repository;
+
+import com.finrating.dto.RankedRecord;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Top-N records by one numeric column. On PostgreSQL the ratio columns have covering
+ * indexes {@code financial_records_rank_<column>} on (column, id) including the
+ * columns a ranking returns (see schema-postgresql.sql). Those rankings are read in
+ * index order with a LIMIT: on the partitioned table each dataset's partition is
+ * scanned in order and merged, so the database stops after N rows.
+ * <p>
+ * Any other ranking (amount columns, other databases, indexes not built) streams the
+ * matching rows unordered through a heap that holds the N best seen so far. Either way
+ * ties are broken by record id in the ranking's direction, so both strategies return
+ * the same rows in the same order.
+ */
+@Slf4j
+@Repository
+public class RecordRanking {
+
+    public enum Metric {
+        DEBT_TO_EBITDA("debtToEbitda", "debt_to_ebitda", true),
+        INTEREST_COVERAGE_RATIO("interestCoverageRatio", "interest_coverage_ratio", true),
+        LIQUIDITY_COVERAGE_RATIO("liquidityCoverageRatio", "liquidity_coverage_ratio", true),
+        REVENUE_STABILITY_SCORE("revenueStabilityScore", "revenue_stability_score", true),
+        REVENUE("revenue", "revenue", false),
+        EBITDA("ebitda", "ebitda", false),
+        TOTAL_DEBT("totalDebt", "total_debt", false),
+        INTEREST_EXPENSE("interestExpense", "interest_expense", false),
+        CURRENT_ASSETS("currentAssets", "current_assets", false),
+        CURRENT_LIABILITIES("currentLiabilities", "current_liabilities", false);
+
+        private final String property;
+        private final String column;
+        private final boolean indexed;
+
+        Metric(String property, String column, boolean indexed) {
+            this.property = property;
+            this.column = column;
+            this.indexed = indexed;
+        }
+
+        public String property() {
+            return property;
+        }
+
+        public static Metric fromProperty(String property) {
+            for (Metric metric : values()) {
+                if (metric.property.equals(property)) return metric;
+            }
+            throw new IllegalArgumentException("Cannot rank by: " + property + "; expected one of "
+                    + Arrays.stream(values()).map(Metric::property).toList());
+        }
+    }
+
+    public enum Strategy { INDEX, HEAP }
+
+    /** Rows a ranking is taken from; null lists and a blank keyword do not filter. */
+    public record Filter(List<Long> datasetIds, List<Integer> industryIds, List<Integer> countryIds,
+                         List<String> ratings, String keyword) {
+    }
+
+    public record Result(Strategy strategy, long candidatesScanned, List<RankedRecord> records) {
+    }
+
+    private static final String COLUMNS = "r.id, r.dataset_id, r.issuer_id, r.industry_id, r.country_id, r.rating";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DimensionCache dimensionCache;
+    private final Map<Metric, Boolean> indexBuilt = new ConcurrentHashMap<>();
+    private volatile Boolean postgres;
+
+    public RecordRanking(JdbcTemplate jdbcTemplate, DimensionCache dimensionCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dimensionCache = dimensionCache;
+    }
+
+    public Result top(Metric metric, boolean descending, int limit, Filter filter) {
+        List<Row> rows = new ArrayList<>(limit);
+        long scanned;
+        Strategy strategy;
+
+        if (isIndexed(metric)) {
+            strategy = Strategy.INDEX;
+            String direction = descending ? " DESC" : " ASC";
+            // Same direction on both keys, so the (column, id) index is read forwards or backwards
+            query(metric, filter, " ORDER BY r." + metric.column + direction + ", r.id" + direction + " LIMIT " + limit,
+                    rs -> rows.add(new Row(rs)));
+            scanned = rows.size();
+        } else {
+            strategy = Strategy.HEAP;
+            Comparator<Row> order = descending ? Row.ASCENDING.reversed() : Row.ASCENDING;
+            // Worst kept row at the head, evicted whenever a better one arrives
+            PriorityQueue<Row> heap = new PriorityQueue<>(limit + 1, order.reversed());
+            long[] count = {0};
+            query(metric, filter, "", rs -> {
+                count[0]++;
+                if (heap.size() < limit) {
+                    heap.add(new Row(rs));
+                } else {
+                    // Compared before reading the rest of the row, which most candidates never need
+                    Row worst = heap.peek();
+                    int cmp = Row.compare(rs.getBigDecimal(7), rs.getLong(1), worst.value, worst.id);
+                    if (descending ? cmp > 0 : cmp < 0) {
+                        heap.poll();
+                        heap.add(new Row(rs));
+                    }
+                }
+            });
+            scanned = count[0];
+            rows.addAll(heap);
+            rows.sort(order);
+        }
+
+        List<RankedRecord> ranked = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            ranked.add(RankedRecord.builder()
+                    .rank(ranked.size() + 1)
+                    .recordId(row.id)
+                    .datasetId(row.datasetId)
+                    .issuerName(dimensionCache.issuerName(row.issuerId))
+                    .industry(dimensionCache.industryName(row.industryId))
+                    .country(dimensionCache.countryName(row.countryId))
+                    .rating(row.rating)
+                    .value(row.value)
+                    .build());
+        }
+        return new Result(strategy, scanned, ranked);
+    }
+
+    /* ===================== QUERY ===================== */
+
+    private interface RowHandler {
+        void accept(ResultSet rs) throws SQLException;
+    }
+
+    private void query(Metric metric, Filter filter, String suffix, RowHandler handler) {
+        StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + ", r." + metric.column + " FROM financial_records r")
+                .append(" WHERE r.dataset_id = ANY (?) AND r.").append(metric.column).append(" IS NOT NULL");
+        if (filter.industryIds() != null) sql.append(" AND r.industry_id = ANY (?)");
+        if (filter.countryIds() != null) sql.append(" AND r.country_id = ANY (?)");
+        if (filter.ratings() != null) sql.append(" AND r.rating = ANY (?)");
+        if (hasKeyword(filter)) sql.append(" AND r.issuer_id IN (SELECT i.id FROM issuers i WHERE LOWER(i.name) LIKE ?)");
+        sql.append(suffix);
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql.toString());
+            int index = 1;
+            ps.setArray(index++, con.createArrayOf("bigint", filter.datasetIds().toArray()));
+            if (filter.industryIds() != null) ps.setArray(index++, con.createArrayOf("integer", filter.industryIds().toArray()));
+            if (filter.countryIds() != null) ps.setArray(index++, con.createArrayOf("integer", filter.countryIds().toArray()));
+            if (filter.ratings() != null) ps.setArray(index++, con.createArrayOf("varchar", filter.ratings().toArray()));
+            if (hasKeyword(filter)) ps.setString(index, "%" + filter.keyword().toLowerCase() + "%");
+            ps.setFetchSize(10_000);
+            return ps;
+        }, handler::accept);
+    }
+
+    private static boolean hasKeyword(Filter filter) {
+        return filter.keyword() != null && !filter.keyword().isBlank();
+    }
+
+    /* ===================== INDEXES ===================== */
+
+    private boolean isIndexed(Metric metric) {
+        if (!metric.indexed || !isPostgres()) return false;
+        return indexBuilt.computeIfAbsent(metric, m -> {
+            Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL",
+                    Boolean.class, "financial_records_rank_" + m.column);
+            if (!Boolean.TRUE.equals(exists)) {
+                log.warn("No ranking index on financial_records.{}; ranking it through a heap", m.column);
+            }
+            return Boolean.TRUE.equals(exists);
+        });
+    }
+
+    private boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            result = "PostgreSQL".equals(jdbcTemplate.execute(
+                    (ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName()));
+            postgres = result;
+        }
+        return result;
+    }
+
+    /* ===================== ROWS ===================== */
+
+    private static final class Row {
+
+        static final Comparator<Row> ASCENDING = (a, b) -> compare(a.value, a.id, b.value, b.id);
+
+        final long id;
+        final long datasetId;
+        final Integer issuerId;
+        final Integer industryId;
+        final Integer countryId;
+        final String rating;
+        final BigDecimal value;
+
+        Row(ResultSet rs) throws SQLException {
+            id = rs.getLong(1);
+            datasetId = rs.getLong(2);
+            issuerId = (Integer) rs.getObject(3);
+            industryId = rs.getObject(4) == null ? null : rs.getInt(4);
+            countryId = rs.getObject(5) == null ? null : rs.getInt(5);
+            rating = rs.getString(6);
+            value = rs.getBigDecimal(7);
+        }
+
+        static int compare(BigDecimal value, long id, BigDecimal otherValue, long otherId) {
+            int cmp = value.compareTo(otherValue);
+            return cmp != 0 ? cmp : Long.compare(id, otherId);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.finrating.repository;
+
+import com.finrating.entity.RejectedRow;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface RejectedRowRepository extends JpaRepository<RejectedRow, Long> {
+
+    List<RejectedRow> findByDatasetIdOrderByRowNumber(Long datasetId);
+
+    @Query("SELECT COALESCE(MAX(r.rowNumber), 0) FROM RejectedRow r WHERE r.dataset.id = :datasetId")
+    long findMaxRowNumber(@Param("datasetId") Long datasetId);
+
+    @Modifying
+    @Query("DELETE FROM RejectedRow r WHERE r.dataset.id = :datasetId")
+    void deleteByDatasetId(@Param("datasetId") Long datasetId);
+}
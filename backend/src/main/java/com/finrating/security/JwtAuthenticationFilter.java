@@ -1,10 +1,12 @@
 package com.finrating.security;
 
+import com.finrating.entity.User;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -22,6 +24,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final CustomUserDetailsService  userDetailsService;
+    private final UserRevocationList revocationList;
+
+    @Value("${jwt.stateless-principal:false}")
+    private boolean statelessPrincipal;
 
     @Override
     protected void doFilterInternal(
@@ -38,15 +44,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         String jwt = authHeader.substring(7);
-        String userEmail = jwtService.extractUsername(jwt);
 
-        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(userEmail);
+        if (SecurityContextHolder.getContext().getAuthentication() == null) {
+            AuthenticatedUser principal = statelessPrincipal
+                    ? jwtService.extractAuthenticatedUser(jwt)
+                    : null;
 
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+            if (principal == null) {
+                // Stateless mode disabled, or a legacy token without id/role claims
+                principal = authenticateFromDatabase(jwt);
+            } else if (revocationList.isRevoked(principal.getId())) {
+                principal = null;
+            }
+
+            if (principal != null) {
                 UsernamePasswordAuthenticationToken authToken =
                         new UsernamePasswordAuthenticationToken(
-                                userDetails, null, userDetails.getAuthorities()
+                                principal, null, principal.getAuthorities()
                         );
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
@@ -55,4 +69,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    private AuthenticatedUser authenticateFromDatabase(String jwt) {
+        String userEmail = jwtService.extractUsername(jwt);
+        if (userEmail == null) return null;
+
+        UserDetails userDetails = userDetailsService.loadUserByUsername(userEmail);
+        if (!userDetails.isEnabled() || !jwtService.isTokenValid(jwt, userDetails)) return null;
+
+        return AuthenticatedUser.from((User) userDetails);
+    }
 }
@@ -1,10 +1,12 @@
 package com.finrating.security;
 
+import com.finrating.entity.User;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -15,14 +17,21 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
 
+@Slf4j
 @Service
 public class JwtService {
 
-    @Value("${jwt.secret}")
-    private String SECRET_KEY;
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String ROLE_CLAIM = "role";
 
-    @Value("${jwt.expiration}")
-    private long jwtExpiration;
+    private final String SECRET_KEY;
+    private final long jwtExpiration;
+
+    public JwtService(@Value("${jwt.secret}") String secretKey,
+                      @Value("${jwt.expiration}") long jwtExpiration) {
+        this.SECRET_KEY = secretKey;
+        this.jwtExpiration = jwtExpiration;
+    }
 
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -34,7 +43,12 @@ public class JwtService {
     }
 
     public String generateToken(UserDetails userDetails) {
-        return generateToken(new HashMap<>(), userDetails);
+        Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof User user) {
+            claims.put(USER_ID_CLAIM, user.getId());
+            claims.put(ROLE_CLAIM, user.getRole().name());
+        }
+        return generateToken(claims, userDetails);
     }
 
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
@@ -52,16 +66,31 @@ public class JwtService {
         final String username = extractUsername(token);
         boolean isValid = (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
 
-        System.out.println("🔍 Token validation for " + username + ": " + isValid);
+        log.debug("Token validation for {}: {}", username, isValid);
 
         return isValid;
     }
 
+    /**
+     * Builds the principal straight from the token claims, without a database lookup.
+     * Returns null for expired tokens and for tokens issued before the id/role claims existed.
+     */
+    public AuthenticatedUser extractAuthenticatedUser(String token) {
+        Claims claims = extractAllClaims(token);
+        if (claims.getExpiration().before(new Date())) return null;
+
+        Number userId = claims.get(USER_ID_CLAIM, Number.class);
+        String role = claims.get(ROLE_CLAIM, String.class);
+        if (userId == null || role == null) return null;
+
+        return new AuthenticatedUser(userId.longValue(), claims.getSubject(), User.Role.valueOf(role));
+    }
+
     private boolean isTokenExpired(String token) {
-        boolean expired = extractExpiration(token).before(new Date());
+        Date expiration = extractExpiration(token);
+        boolean expired = expiration.before(new Date());
 
-        System.out.println("🔍 Token expired: " + expired);
-        System.out.println("🔍 Token expiration date: " + extractExpiration(token));
+        log.debug("Token expired: {} (expiration {})", expired, expiration);
 
         return expired;
     }
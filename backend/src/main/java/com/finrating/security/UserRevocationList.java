@@ -0,0 +1,61 @@
+package com.finrating.security;
+
+import com.finrating.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Short-TTL cache of disabled user ids, consulted when principals are built from
+ * token claims instead of the database. One query per TTL window replaces the
+ * per-request user lookup; a disabled user is locked out within {@code jwt.revocation.ttl}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserRevocationList {
+
+    private final UserRepository userRepository;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    @Value("${jwt.revocation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${jwt.revocation.ttl:30000}")
+    private long ttlMillis;
+
+    private volatile Set<Long> revokedIds = Set.of();
+    private volatile long loadedAt = 0L;
+
+    public boolean isRevoked(Long userId) {
+        if (!enabled) return false;
+        if (System.currentTimeMillis() - loadedAt > ttlMillis) {
+            refresh();
+        }
+        return revokedIds.contains(userId);
+    }
+
+    private void refresh() {
+        // Only one request refreshes; the others keep using the previous snapshot,
+        // except before the first load when there is no snapshot to fall back on
+        if (loadedAt == 0L) {
+            refreshLock.lock();
+        } else if (!refreshLock.tryLock()) {
+            return;
+        }
+        try {
+            if (System.currentTimeMillis() - loadedAt <= ttlMillis) return;
+            revokedIds = new HashSet<>(userRepository.findDisabledUserIds());
+            loadedAt = System.currentTimeMillis();
+        } catch (Exception e) {
+            log.error("Failed to refresh user revocation list, keeping previous snapshot", e);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.finrating.service;
+
+import com.finrating.entity.AlertRule;
+import com.finrating.entity.Dataset;
+import com.finrating.entity.FinancialRecord;
+import com.finrating.repository.AlertRuleRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Evaluates alert rules against records as they are ingested. A dataset owner's rules
+ * are compiled once per ingest into a {@link Matcher}: each rule becomes one predicate
+ * and is filed in a single bucket under its most selective key (watched issuer, then
+ * industry, country, rating, category), so a record is only tested against the rules
+ * in its own buckets plus those with no key at all. Matches are held until the
+ * records are written and then inserted into {@code alerts} in one batch, in the
+ * ingest transaction. Worker ingests, NDJSON streams, deltas (changed rows only)
+ * and resubmitted rows all go through it.
+ */
+@Service
+@Slf4j
+public class AlertRuleEngine {
+
+    private static final Map<String, Function<FinancialRecord, BigDecimal>> METRICS = Map.of(
+            "revenue", FinancialRecord::getRevenue,
+            "ebitda", FinancialRecord::getEbitda,
+            "totalDebt", FinancialRecord::getTotalDebt,
+            "interestExpense", FinancialRecord::getInterestExpense,
+            "currentAssets", FinancialRecord::getCurrentAssets,
+            "currentLiabilities", FinancialRecord::getCurrentLiabilities,
+            "debtToEbitda", FinancialRecord::getDebtToEbitda,
+            "interestCoverageRatio", FinancialRecord::getInterestCoverageRatio,
+            "liquidityCoverageRatio", FinancialRecord::getLiquidityCoverageRatio,
+            "revenueStabilityScore", FinancialRecord::getRevenueStabilityScore
+    );
+
+    private static final String INSERT_SQL =
+            "INSERT INTO alerts (user_id, rule_id, rule_name, dataset_id, record_id, issuer_name, industry, " +
+            "country, rating, category, metric_value, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final AlertRuleRepository alertRuleRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int maxPerRule;
+
+    public AlertRuleEngine(AlertRuleRepository alertRuleRepository,
+                           JdbcTemplate jdbcTemplate,
+                           @Value("${app.alerts.enabled:true}") boolean enabled,
+                           @Value("${app.alerts.max-per-rule-per-dataset:100}") int maxPerRule) {
+        this.alertRuleRepository = alertRuleRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.maxPerRule = maxPerRule;
+    }
+
+    public static Set<String> metrics() {
+        return METRICS.keySet();
+    }
+
+    /** The owner's enabled rules, compiled for one ingest of {@code dataset}. */
+    public Matcher compile(Dataset dataset) {
+        List<AlertRule> rules = enabled
+                ? alertRuleRepository.findByUserIdAndEnabledTrue(dataset.getUser().getId())
+                : List.of();
+        Matcher matcher = new Matcher(dataset, rules);
+        if (!rules.isEmpty()) {
+            // Appends, deltas and resubmits share the per-dataset cap with the ingests before them
+            jdbcTemplate.query("SELECT rule_id, COUNT(*) FROM alerts WHERE dataset_id = ? GROUP BY rule_id",
+                    rs -> {
+                        matcher.alreadyRaised(rs.getLong(1), rs.getInt(2));
+                    },
+                    dataset.getId());
+        }
+        return matcher;
+    }
+
+    /* ===================== MATCHER ===================== */
+
+    public final class Matcher {
+
+        private final Dataset dataset;
+        private final Map<String, List<Compiled>> byIssuer = new HashMap<>();
+        private final Map<String, List<Compiled>> byIndustry = new HashMap<>();
+        private final Map<String, List<Compiled>> byCountry = new HashMap<>();
+        private final Map<FinancialRecord.CreditRating, List<Compiled>> byRating =
+                new EnumMap<>(FinancialRecord.CreditRating.class);
+        private final Map<FinancialRecord.RatingCategory, List<Compiled>> byCategory =
+                new EnumMap<>(FinancialRecord.RatingCategory.class);
+        private final List<Compiled> unkeyed = new ArrayList<>();
+        private final Map<Long, Compiled> byId = new HashMap<>();
+        private final boolean empty;
+
+        private final List<Match> pending = new ArrayList<>();
+        private long matched;
+        private long written;
+
+        private Matcher(Dataset dataset, List<AlertRule> rules) {
+            this.dataset = dataset;
+            for (AlertRule rule : rules) {
+                Compiled compiled = new Compiled(rule);
+                byId.put(rule.getId(), compiled);
+                if (!rule.getIssuers().isEmpty()) {
+                    rule.getIssuers().forEach(issuer -> file(byIssuer, issuer, compiled));
+                } else if (rule.getIndustry() != null) {
+                    file(byIndustry, rule.getIndustry(), compiled);
+                } else if (rule.getCountry() != null) {
+                    file(byCountry, rule.getCountry(), compiled);
+                } else if (!rule.getRatings().isEmpty()) {
+                    rule.getRatings().forEach(rating -> file(byRating, rating, compiled));
+                } else if (rule.getCategory() != null) {
+                    file(byCategory, rule.getCategory(), compiled);
+                } else {
+                    unkeyed.add(compiled);
+                }
+            }
+            this.empty = rules.isEmpty();
+        }
+
+        /** Tests a rated record against the rules in its buckets; matches wait for {@link #flush}. */
+        public void evaluate(FinancialRecord record) {
+            if (empty) return;
+            test(byIssuer.get(record.getIssuerName()), record);
+            test(byIndustry.get(record.getIndustry()), record);
+            test(byCountry.get(record.getCountry()), record);
+            test(record.getRating() == null ? null : byRating.get(record.getRating()), record);
+            test(record.getCategory() == null ? null : byCategory.get(record.getCategory()), record);
+            test(unkeyed, record);
+        }
+
+        /** Inserts the pending matches; call once their records have been saved. */
+        public void flush() {
+            if (pending.isEmpty()) return;
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            jdbcTemplate.batchUpdate(INSERT_SQL, pending, pending.size(), (ps, match) -> {
+                AlertRule rule = match.rule.rule;
+                FinancialRecord record = match.record;
+                ps.setLong(1, dataset.getUser().getId());
+                ps.setLong(2, rule.getId());
+                ps.setString(3, rule.getName());
+                ps.setLong(4, dataset.getId());
+                ps.setObject(5, record.getId(), Types.BIGINT);
+                ps.setString(6, record.getIssuerName());
+                ps.setString(7, record.getIndustry());
+                ps.setString(8, record.getCountry());
+                ps.setString(9, record.getRating() == null ? null : record.getRating().name());
+                ps.setString(10, record.getCategory() == null ? null : record.getCategory().name());
+                ps.setBigDecimal(11, match.rule.metric == null ? null : match.rule.metric.apply(record));
+                ps.setTimestamp(12, now);
+            });
+            written += pending.size();
+            pending.clear();
+        }
+
+        /** Logs what the ingest raised; rules that hit their cap keep counting but stop writing. */
+        public void finish() {
+            flush();
+            if (matched > 0) {
+                log.info("Dataset {} raised {} alerts ({} matches)", dataset.getId(), written, matched);
+            }
+        }
+
+        private void alreadyRaised(Long ruleId, int alerts) {
+            Compiled rule = byId.get(ruleId);
+            if (rule != null) rule.matches = alerts;
+        }
+
+        private void test(List<Compiled> rules, FinancialRecord record) {
+            if (rules == null) return;
+            for (Compiled rule : rules) {
+                if (rule.predicate.test(record)) {
+                    matched++;
+                    if (++rule.matches <= maxPerRule) pending.add(new Match(rule, record));
+                }
+            }
+        }
+
+        private static <K> void file(Map<K, List<Compiled>> buckets, K key, Compiled rule) {
+            buckets.computeIfAbsent(key, k -> new ArrayList<>()).add(rule);
+        }
+    }
+
+    /* ===================== COMPILED RULES ===================== */
+
+    private static final class Compiled {
+
+        final AlertRule rule;
+        final Function<FinancialRecord, BigDecimal> metric;
+        final Predicate<FinancialRecord> predicate;
+        int matches;
+
+        Compiled(AlertRule rule) {
+            this.rule = rule;
+            this.metric = rule.getMetric() == null ? null : METRICS.get(rule.getMetric());
+
+            // Every condition the rule sets, its bucket key included, ANDed in a fixed order
+            List<Predicate<FinancialRecord>> conditions = new ArrayList<>();
+            if (!rule.getIssuers().isEmpty()) {
+                Set<String> issuers = Set.copyOf(rule.getIssuers());
+                conditions.add(r -> issuers.contains(r.getIssuerName()));
+            }
+            if (rule.getIndustry() != null) {
+                String industry = rule.getIndustry();
+                conditions.add(r -> industry.equals(r.getIndustry()));
+            }
+            if (rule.getCountry() != null) {
+                String country = rule.getCountry();
+                conditions.add(r -> country.equals(r.getCountry()));
+            }
+            if (!rule.getRatings().isEmpty()) {
+                Set<FinancialRecord.CreditRating> ratings = EnumSet.copyOf(rule.getRatings());
+                conditions.add(r -> r.getRating() != null && ratings.contains(r.getRating()));
+            }
+            if (rule.getCategory() != null) {
+                FinancialRecord.RatingCategory category = rule.getCategory();
+                conditions.add(r -> category == r.getCategory());
+            }
+            if (metric != null) {
+                conditions.add(compare(metric, rule.getComparison(), rule.getThreshold()));
+            }
+            this.predicate = conditions.stream().reduce(Predicate::and).orElse(r -> true);
+        }
+
+        private static Predicate<FinancialRecord> compare(Function<FinancialRecord, BigDecimal> metric,
+                                                          AlertRule.Comparison comparison, BigDecimal threshold) {
+            IntPredicate accept = switch (comparison) {
+                case GT -> cmp -> cmp > 0;
+                case GTE -> cmp -> cmp >= 0;
+                case LT -> cmp -> cmp < 0;
+                case LTE -> cmp -> cmp <= 0;
+            };
+            return r -> {
+                BigDecimal value = metric.apply(r);
+                return value != null && accept.test(value.compareTo(threshold));
+            };
+        }
+    }
+
+    private record Match(Compiled rule, FinancialRecord record) {
+    }
+}
@@ -0,0 +1,131 @@
+package com.finrating.service;
+
+import com.finrating.dto.AlertRuleRequest;
+import com.finrating.entity.Alert;
+import com.finrating.entity.AlertRule;
+import com.finrating.entity.FinancialRecord;
+import com.finrating.repository.AlertRepository;
+import com.finrating.repository.AlertRuleRepository;
+import com.finrating.repository.UserRepository;
+import com.finrating.security.AuthenticatedUser;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * Alert rules and the alerts they raised. Rules are evaluated by the worker while it
+ * ingests the owner's datasets (see {@link AlertRuleEngine}); a rule created or
+ * deleted here applies from the next ingest on.
+ */
+@Service
+@Profile("!worker")
+@RequiredArgsConstructor
+@Slf4j
+@Transactional
+public class AlertService {
+
+    private final AlertRuleRepository alertRuleRepository;
+    private final AlertRepository alertRepository;
+    private final UserRepository userRepository;
+
+    @Value("${app.alerts.max-rules-per-user:1000}")
+    private int maxRulesPerUser;
+
+    @Transactional(readOnly = true)
+    public List<AlertRule> getRules(AuthenticatedUser user) {
+        return alertRuleRepository.findByUserIdOrderByCreatedAtDesc(user.getId());
+    }
+
+    public AlertRule createRule(AlertRuleRequest request, AuthenticatedUser user) {
+        if (alertRuleRepository.countByUserId(user.getId()) >= maxRulesPerUser) {
+            throw new IllegalArgumentException("Rule limit reached: at most " + maxRulesPerUser + " alert rules");
+        }
+
+        AlertRule rule = toRule(request);
+        rule.setUser(userRepository.getReferenceById(user.getId()));
+        rule = alertRuleRepository.save(rule);
+
+        log.info("User {} created alert rule {} ({})", user.getEmail(), rule.getId(), rule.getName());
+        return rule;
+    }
+
+    public void deleteRule(Long id, AuthenticatedUser user) {
+        AlertRule rule = alertRuleRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Alert rule not found with ID: " + id));
+        if (!rule.getUser().getId().equals(user.getId())) {
+            throw new RuntimeException("Unauthorized: You do not have access to this alert rule");
+        }
+        alertRuleRepository.delete(rule);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<Alert> getAlerts(AuthenticatedUser user, int page, int size) {
+        return alertRepository.findByUserId(user.getId(),
+                PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by("id"))));
+    }
+
+    /* ===================== HELPERS ===================== */
+
+    private AlertRule toRule(AlertRuleRequest request) {
+        if (request.getName() == null || request.getName().isBlank()) {
+            throw new IllegalArgumentException("Rule name is required");
+        }
+
+        AlertRule rule = AlertRule.builder()
+                .name(request.getName().trim())
+                .issuers(request.getIssuers() == null ? new HashSet<>() : new HashSet<>(request.getIssuers()))
+                .industry(blankToNull(request.getIndustry()))
+                .country(blankToNull(request.getCountry()))
+                .build();
+
+        if (request.getRatings() != null) {
+            for (String rating : request.getRatings()) {
+                rule.getRatings().add(parse(FinancialRecord.CreditRating.class, rating, "rating"));
+            }
+        }
+        if (request.getCategory() != null) {
+            rule.setCategory(parse(FinancialRecord.RatingCategory.class, request.getCategory(), "category"));
+        }
+
+        if (request.getMetric() != null) {
+            if (!AlertRuleEngine.metrics().contains(request.getMetric())) {
+                throw new IllegalArgumentException("Unknown metric: " + request.getMetric()
+                        + "; expected one of " + new TreeSet<>(AlertRuleEngine.metrics()));
+            }
+            if (request.getComparison() == null || request.getThreshold() == null) {
+                throw new IllegalArgumentException("A metric condition needs a comparison and a threshold");
+            }
+            rule.setMetric(request.getMetric());
+            rule.setComparison(parse(AlertRule.Comparison.class, request.getComparison(), "comparison"));
+            rule.setThreshold(request.getThreshold());
+        }
+
+        boolean unconditional = rule.getIssuers().isEmpty() && rule.getIndustry() == null
+                && rule.getCountry() == null && rule.getRatings().isEmpty()
+                && rule.getCategory() == null && rule.getMetric() == null;
+        if (unconditional) {
+            throw new IllegalArgumentException("A rule needs at least one condition");
+        }
+        return rule;
+    }
+
+    private static <E extends Enum<E>> E parse(Class<E> type, String value, String field) {
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + value);
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+}
@@ -5,6 +5,7 @@ import com.finrating.entity.User;
 import com.finrating.repository.UserRepository;
 import com.finrating.security.JwtService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -12,6 +13,7 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 
 @Service
+@Profile("!worker")
 @RequiredArgsConstructor
 public class AuthService {
     private final UserRepository userRepository;
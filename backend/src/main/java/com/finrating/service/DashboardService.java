@@ -2,15 +2,26 @@ package com.finrating.service;
 
 import com.finrating.dto.DashboardSummary;
 import com.finrating.dto.FilterRequest;
+import com.finrating.dto.RankingRequest;
+import com.finrating.dto.RankingResponse;
 import com.finrating.entity.Dataset;
 import com.finrating.entity.FinancialRecord;
-import com.finrating.entity.User;
+import com.finrating.entity.Issuer;
+import com.finrating.repository.ColumnarSnapshot;
+import com.finrating.repository.ColumnarSnapshotStore;
 import com.finrating.repository.DatasetRepository;
+import com.finrating.repository.DatasetSampleStore;
+import com.finrating.repository.DimensionCache;
 import com.finrating.repository.FinancialRecordRepository;
-import com.finrating.repository.UserRepository;
+import com.finrating.repository.RecordRanking;
+import com.finrating.security.AuthenticatedUser;
 import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
@@ -20,6 +31,7 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
+@Profile("!worker")
 @RequiredArgsConstructor
 @Slf4j
 @Transactional(readOnly = true)
@@ -27,52 +39,170 @@ public class DashboardService {
 
     private final DatasetRepository datasetRepository;
     private final FinancialRecordRepository financialRecordRepository;
-    private final UserRepository userRepository;
+    private final DimensionCache dimensionCache;
+    private final ColumnarSnapshotStore snapshotStore;
+    private final DatasetSampleStore sampleStore;
+    private final DatasetArchiveService datasetArchiveService;
+    private final DatasetAccessTracker accessTracker;
+    private final RecordRanking recordRanking;
+
+    @Value("${app.ranking.max-limit:1000}")
+    private int maxRankingLimit;
+
+    // Accounts with fewer records are counted exactly even when an approximate summary is asked for
+    @Value("${app.dashboard.approximate.min-records:1000000}")
+    private long approximateMinRecords;
+
+    private static final double CONFIDENCE_LEVEL = 0.95;
+    // Two-sided standard normal quantile for CONFIDENCE_LEVEL
+    private static final double Z = 1.959963984540054;
+
+    // Name columns live in the dimension tables; sort through the read-only joins
+    private static final Map<String, String> NAME_SORT_PATHS = Map.of(
+            "issuerName", "issuerRef.name",
+            "industry", "industryRef.name",
+            "country", "countryRef.name"
+    );
 
     /* ======================================================
-       PUBLIC API (EMAIL-BASED — REQUIRED FOR JWT)
+       PUBLIC API (PRINCIPAL-BASED — NO USER LOOKUP)
        ====================================================== */
 
-    public DashboardSummary getDashboardSummaryByEmail(String email) {
-        User user = getUserByEmail(email);
-        return buildDashboardSummary(user);
+    public DashboardSummary getDashboardSummary(AuthenticatedUser user, boolean approximate) {
+        return buildDashboardSummary(user, approximate);
     }
 
-    public Page<FinancialRecord> getRecordsByEmail(String email, int page, int size) {
-        User user = getUserByEmail(email);
-        return getRecordsForUser(user, page, size);
+    public RecordsPage getRecords(AuthenticatedUser user, int page, int size, List<Long> datasetIds) {
+        return getRecordsForUser(user, page, size, datasetIds);
     }
 
-    public Page<FinancialRecord> filterRecordsByEmail(FilterRequest filterRequest, String email) {
-        User user = getUserByEmail(email);
+    public RecordsPage filterRecords(FilterRequest filterRequest, AuthenticatedUser user) {
         return filterRecordsForUser(filterRequest, user);
     }
 
+    /** A page of records, and the archived datasets it could not include yet. */
+    public record RecordsPage(Page<FinancialRecord> page, List<Long> pendingDatasetIds) {}
+
+    public RankingResponse rankRecords(RankingRequest rankingRequest, AuthenticatedUser user) {
+        return rankRecordsForUser(rankingRequest, user);
+    }
+
     /* ======================================================
        CORE LOGIC (UNCHANGED, SAFE)
        ====================================================== */
 
-    private DashboardSummary buildDashboardSummary(User user) {
+    private DashboardSummary buildDashboardSummary(AuthenticatedUser user, boolean approximate) {
         log.info("Getting dashboard summary for user: {}", user.getEmail());
 
         List<Dataset> userDatasets = getUserDatasets(user);
-        Long totalRecords = financialRecordRepository.countByDatasetIn(userDatasets);
+        accessTracker.touchAll(userDatasets);
+
+        long knownRecords = userDatasets.stream()
+                .mapToLong(dataset -> dataset.getRecordCount() == null ? 0 : dataset.getRecordCount())
+                .sum();
+        if (approximate && knownRecords >= approximateMinRecords) {
+            return buildApproximateSummary(userDatasets);
+        }
+
+        Counts counts = countExactly(userDatasets);
+        return DashboardSummary.builder()
+                .totalRecords(counts.totalRecords)
+                .datasetCount((long) userDatasets.size())
+                .ratingDistribution(counts.ratings)
+                .categoryDistribution(counts.categories)
+                .build();
+    }
+
+    /**
+     * Distributions estimated from a sample of each dataset: the one stored at ingest
+     * if current, otherwise a block sample of its partition. Datasets are strata of
+     * known size, so a value's estimate and variance are the sums of the datasets'
+     * own. Datasets with neither kind of sample are counted exactly.
+     */
+    private DashboardSummary buildApproximateSummary(List<Dataset> userDatasets) {
+        Map<Long, DatasetSampleStore.Sample> stored = sampleStore.findCurrent(userDatasets);
+
+        Estimate<FinancialRecord.CreditRating> ratings = new Estimate<>(FinancialRecord.CreditRating.class);
+        Estimate<FinancialRecord.RatingCategory> categories = new Estimate<>(FinancialRecord.RatingCategory.class);
+        long totalRecords = 0;
+        long sampledRecords = 0;
+        List<Dataset> unsampled = new ArrayList<>();
+
+        for (Dataset dataset : userDatasets) {
+            Optional<DatasetSampleStore.Sample> sample = Optional.ofNullable(stored.get(dataset.getId()));
+            // Archived records are not in financial_records to be sampled
+            if (sample.isEmpty() && dataset.getStatus() != Dataset.ProcessingStatus.ARCHIVED) {
+                sample = sampleStore.tableSample(dataset);
+            }
+            if (sample.isEmpty()) {
+                unsampled.add(dataset);
+                continue;
+            }
+            totalRecords += sample.get().population();
+            sampledRecords += sample.get().ratings().rows();
+            ratings.add(sample.get().ratings(), sample.get());
+            categories.add(sample.get().categories(), sample.get());
+        }
+
+        Counts exact = countExactly(unsampled);
+        totalRecords += exact.totalRecords;
+        ratings.addExact(exact.ratings);
+        categories.addExact(exact.categories);
 
-        Map<String, Long> ratingDistribution = getRatingDistribution(userDatasets);
+        log.debug("Approximate summary from {} sampled rows; {} of {} datasets counted exactly",
+                sampledRecords, unsampled.size(), userDatasets.size());
 
         return DashboardSummary.builder()
                 .totalRecords(totalRecords)
                 .datasetCount((long) userDatasets.size())
-                .ratingDistribution(ratingDistribution)
+                .ratingDistribution(ratings.counts())
+                .categoryDistribution(categories.counts())
+                .approximate(true)
+                .confidenceLevel(CONFIDENCE_LEVEL)
+                .ratingIntervals(ratings.intervals())
+                .categoryIntervals(categories.intervals())
+                .sampledRecords(sampledRecords)
+                .datasetsCountedExactly(unsampled.size())
                 .build();
     }
 
-    private Page<FinancialRecord> getRecordsForUser(User user, int page, int size) {
+    /** Exact counts; datasets with a current snapshot are counted from it, only the rest are queried. */
+    private Counts countExactly(List<Dataset> datasets) {
+        Counts counts = new Counts();
+        List<Dataset> unsnapshotted = new ArrayList<>();
+
+        for (Dataset dataset : datasets) {
+            boolean archived = dataset.getStatus() == Dataset.ProcessingStatus.ARCHIVED;
+            Optional<ColumnarSnapshot> snapshot = archived
+                    ? datasetArchiveService.readSnapshot(dataset)
+                    : snapshotStore.find(dataset);
+            if (snapshot.isEmpty()) {
+                // An archived dataset without a snapshot has no rows to count until it is back
+                if (archived) datasetArchiveService.ensureOnline(List.of(dataset));
+                unsnapshotted.add(dataset);
+                continue;
+            }
+            counts.totalRecords += snapshot.get().rowCount();
+            DatasetAnalyticsService.distribution(snapshot.get(), ColumnarSnapshot.Column.RATING,
+                    FinancialRecord.CreditRating.values()).forEach((k, v) -> counts.ratings.merge(k, v, Long::sum));
+            DatasetAnalyticsService.distribution(snapshot.get(), ColumnarSnapshot.Column.CATEGORY,
+                    FinancialRecord.RatingCategory.values()).forEach((k, v) -> counts.categories.merge(k, v, Long::sum));
+        }
+
+        if (!unsnapshotted.isEmpty()) {
+            counts.totalRecords += financialRecordRepository.countByDatasetIn(unsnapshotted);
+            getRatingDistribution(unsnapshotted).forEach((k, v) -> counts.ratings.merge(k, v, Long::sum));
+            getCategoryDistribution(unsnapshotted).forEach((k, v) -> counts.categories.merge(k, v, Long::sum));
+        }
+        return counts;
+    }
+
+    private RecordsPage getRecordsForUser(AuthenticatedUser user, int page, int size, List<Long> datasetIds) {
         log.info("Getting records for user: {}", user.getEmail());
 
-        List<Dataset> userDatasets = getUserDatasets(user);
-        if (userDatasets.isEmpty()) {
-            return Page.empty();
+        RowScope scope = scopeRowRead(getUserDatasets(user), datasetIds);
+        if (scope.online.isEmpty()) {
+            return new RecordsPage(Page.empty(), scope.pending);
         }
 
         Pageable pageable = PageRequest.of(
@@ -81,17 +211,17 @@ public class DashboardService {
                 Sort.by(Sort.Direction.DESC, "calculatedAt")
         );
 
-        return financialRecordRepository.findByDatasetIn(userDatasets, pageable);
+        return new RecordsPage(financialRecordRepository.findByDatasetIn(scope.online, pageable), scope.pending);
     }
 
-    private Page<FinancialRecord> filterRecordsForUser(FilterRequest filterRequest, User user) {
-        List<Dataset> userDatasets = getUserDatasets(user);
-        if (userDatasets.isEmpty()) {
-            return Page.empty();
+    private RecordsPage filterRecordsForUser(FilterRequest filterRequest, AuthenticatedUser user) {
+        RowScope scope = scopeRowRead(getUserDatasets(user), filterRequest.getDatasetIds());
+        if (scope.online.isEmpty()) {
+            return new RecordsPage(Page.empty(), scope.pending);
         }
 
         Specification<FinancialRecord> spec =
-                buildFilterSpecification(filterRequest, userDatasets);
+                buildFilterSpecification(filterRequest, scope.online);
 
         Sort sort = buildSort(filterRequest);
         Pageable pageable = PageRequest.of(
@@ -100,20 +230,72 @@ public class DashboardService {
                 sort
         );
 
-        return financialRecordRepository.findAll(spec, pageable);
+        return new RecordsPage(financialRecordRepository.findAll(spec, pageable), scope.pending);
+    }
+
+    private RankingResponse rankRecordsForUser(RankingRequest rankingRequest, AuthenticatedUser user) {
+        RecordRanking.Metric metric = RecordRanking.Metric.fromProperty(rankingRequest.getMetric());
+        boolean descending = !"ASC".equalsIgnoreCase(rankingRequest.getDirection());
+        if (rankingRequest.getLimit() < 1 || rankingRequest.getLimit() > maxRankingLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxRankingLimit);
+        }
+
+        RankingResponse.RankingResponseBuilder response = RankingResponse.builder()
+                .metric(metric.property())
+                .direction(descending ? "DESC" : "ASC");
+
+        RowScope scope = scopeRowRead(getUserDatasets(user), rankingRequest.getDatasetIds());
+        response.pendingDatasetIds(scope.pending);
+        if (scope.online.isEmpty()) {
+            return response.records(List.of()).build();
+        }
+
+        RecordRanking.Filter filter = new RecordRanking.Filter(
+                scope.online.stream().map(Dataset::getId).toList(),
+                isEmpty(rankingRequest.getIndustries()) ? null : dimensionCache.industryIds(rankingRequest.getIndustries()),
+                isEmpty(rankingRequest.getCountries()) ? null : dimensionCache.countryIds(rankingRequest.getCountries()),
+                isEmpty(rankingRequest.getRatings()) ? null : rankingRequest.getRatings(),
+                rankingRequest.getSearchKeyword());
+
+        RecordRanking.Result result = recordRanking.top(metric, descending, rankingRequest.getLimit(), filter);
+        return response
+                .strategy(result.strategy().name())
+                .candidatesScanned(result.candidatesScanned())
+                .records(result.records())
+                .build();
     }
 
     /* ======================================================
        HELPERS
        ====================================================== */
 
-    private User getUserByEmail(String email) {
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found: " + email));
+    private List<Dataset> getUserDatasets(AuthenticatedUser user) {
+        return datasetRepository.findByUserIdOrderByUploadedAtDesc(user.getId());
     }
 
-    private List<Dataset> getUserDatasets(User user) {
-        return datasetRepository.findByUserOrderByUploadedAtDesc(user);
+    /** The datasets a row-level read runs over, and the archived ones it has to leave out for now. */
+    private record RowScope(List<Dataset> online, List<Long> pending) {}
+
+    /**
+     * Row-level reads need the records back in financial_records. Datasets the request
+     * names are rehydrated before it runs, since it is about them; without names only
+     * the online datasets are read and archived ones are rehydrated in the background,
+     * so one request does not pay for restoring every archived dataset of the account.
+     */
+    private RowScope scopeRowRead(List<Dataset> userDatasets, List<Long> datasetIds) {
+        if (!isEmpty(datasetIds)) {
+            Set<Long> named = new HashSet<>(datasetIds);
+            List<Dataset> reached = userDatasets.stream().filter(d -> named.contains(d.getId())).toList();
+            accessTracker.touchAll(reached);
+            datasetArchiveService.ensureOnline(reached);
+            return new RowScope(reached, List.of());
+        }
+
+        accessTracker.touchAll(userDatasets);
+        List<Dataset> online = userDatasets.stream()
+                .filter(d -> d.getStatus() != Dataset.ProcessingStatus.ARCHIVED)
+                .toList();
+        return new RowScope(online, datasetArchiveService.rehydrateInBackground(userDatasets));
     }
 
     private Map<String, Long> getRatingDistribution(List<Dataset> userDatasets) {
@@ -127,30 +309,48 @@ public class DashboardService {
                 ));
     }
 
+    private Map<String, Long> getCategoryDistribution(List<Dataset> userDatasets) {
+        return financialRecordRepository.countByCategory(userDatasets)
+                .stream()
+                .filter(m -> m.get("category") != null)
+                .collect(Collectors.toMap(
+                        m -> m.get("category").toString(),
+                        m -> ((Number) m.get("count")).longValue()
+                ));
+    }
+
     private Specification<FinancialRecord> buildFilterSpecification(
             FilterRequest filterRequest,
             List<Dataset> userDatasets) {
 
+        // Resolved once here; the specification runs for both the page and the count query
+        List<Integer> industryIds = isEmpty(filterRequest.getIndustries())
+                ? null : dimensionCache.industryIds(filterRequest.getIndustries());
+        List<Integer> countryIds = isEmpty(filterRequest.getCountries())
+                ? null : dimensionCache.countryIds(filterRequest.getCountries());
+
         return (root, query, cb) -> {
             List<Predicate> predicates = new ArrayList<>();
 
             predicates.add(root.get("dataset").in(userDatasets));
 
             if (filterRequest.getSearchKeyword() != null && !filterRequest.getSearchKeyword().isBlank()) {
-                predicates.add(
-                        cb.like(
-                                cb.lower(root.get("issuerName")),
-                                "%" + filterRequest.getSearchKeyword().toLowerCase() + "%"
-                        )
-                );
+                // Matched against the issuers table, then joined on the integer id
+                Subquery<Integer> issuers = query.subquery(Integer.class);
+                Root<Issuer> issuer = issuers.from(Issuer.class);
+                issuers.select(issuer.get("id")).where(cb.like(
+                        cb.lower(issuer.get("name")),
+                        "%" + filterRequest.getSearchKeyword().toLowerCase() + "%"
+                ));
+                predicates.add(root.get("issuerId").in(issuers));
             }
 
-            if (filterRequest.getIndustries() != null && !filterRequest.getIndustries().isEmpty()) {
-                predicates.add(root.get("industry").in(filterRequest.getIndustries()));
+            if (industryIds != null) {
+                predicates.add(industryIds.isEmpty() ? cb.disjunction() : root.get("industryId").in(industryIds));
             }
 
-            if (filterRequest.getCountries() != null && !filterRequest.getCountries().isEmpty()) {
-                predicates.add(root.get("country").in(filterRequest.getCountries()));
+            if (countryIds != null) {
+                predicates.add(countryIds.isEmpty() ? cb.disjunction() : root.get("countryId").in(countryIds));
             }
 
             if (filterRequest.getRatings() != null && !filterRequest.getRatings().isEmpty()) {
@@ -167,6 +367,72 @@ public class DashboardService {
                         ? Sort.Direction.DESC
                         : Sort.Direction.ASC;
 
-        return Sort.by(direction, filterRequest.getSortBy());
+        String property = filterRequest.getSortBy();
+        return Sort.by(direction, NAME_SORT_PATHS.getOrDefault(property, property));
+    }
+
+    private static boolean isEmpty(List<?> values) {
+        return values == null || values.isEmpty();
+    }
+
+    private static final class Counts {
+        private long totalRecords;
+        private final Map<String, Long> ratings = new LinkedHashMap<>();
+        private final Map<String, Long> categories = new LinkedHashMap<>();
+    }
+
+    /** Estimated record count and its variance per value, summed over datasets. */
+    private static final class Estimate<E extends Enum<E>> {
+
+        private final Class<E> type;
+        private final E[] values;
+        private final double[] counts;
+        private final double[] variances;
+        private final boolean[] present;
+
+        Estimate(Class<E> type) {
+            this.type = type;
+            this.values = type.getEnumConstants();
+            this.counts = new double[values.length];
+            this.variances = new double[values.length];
+            this.present = new boolean[values.length];
+        }
+
+        void add(DatasetSampleStore.Tally tally, DatasetSampleStore.Sample sample) {
+            for (int v = 0; v < values.length; v++) {
+                if (tally.hits(v) == 0) continue;
+                double[] estimate = tally.estimate(v, sample.population(), sample.fraction());
+                counts[v] += estimate[0];
+                variances[v] += estimate[1];
+                present[v] = true;
+            }
+        }
+
+        void addExact(Map<String, Long> exact) {
+            exact.forEach((name, count) -> {
+                int v = Enum.valueOf(type, name).ordinal();
+                counts[v] += count;
+                present[v] = true;
+            });
+        }
+
+        Map<String, Long> counts() {
+            Map<String, Long> result = new LinkedHashMap<>();
+            for (int v = 0; v < values.length; v++) {
+                if (present[v]) result.put(values[v].name(), Math.round(counts[v]));
+            }
+            return result;
+        }
+
+        Map<String, DashboardSummary.CountInterval> intervals() {
+            Map<String, DashboardSummary.CountInterval> result = new LinkedHashMap<>();
+            for (int v = 0; v < values.length; v++) {
+                if (!present[v]) continue;
+                double halfWidth = Z * Math.sqrt(variances[v]);
+                result.put(values[v].name(), new DashboardSummary.CountInterval(
+                        Math.max(0, Math.round(counts[v] - halfWidth)), Math.round(counts[v] + halfWidth)));
+            }
+            return result;
+        }
     }
 }
@@ -0,0 +1,54 @@
+package com.finrating.service;
+
+import com.finrating.entity.Dataset;
+import com.finrating.repository.DatasetRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records which datasets were read, for archival. Reads only mark the id in memory;
+ * {@code last_accessed_at} is written for all marked datasets in one update per
+ * interval, so read paths (and their read-only transactions) never write.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DatasetAccessTracker {
+
+    private final DatasetRepository datasetRepository;
+
+    private final Set<Long> accessed = ConcurrentHashMap.newKeySet();
+
+    public void touch(Long datasetId) {
+        accessed.add(datasetId);
+    }
+
+    public void touchAll(Collection<Dataset> datasets) {
+        datasets.forEach(dataset -> accessed.add(dataset.getId()));
+    }
+
+    @Scheduled(fixedDelayString = "${app.archive.access-flush-interval:60000}")
+    @Transactional
+    public void flush() {
+        if (accessed.isEmpty()) return;
+
+        List<Long> ids = new ArrayList<>();
+        for (Iterator<Long> it = accessed.iterator(); it.hasNext(); ) {
+            ids.add(it.next());
+            it.remove();
+        }
+        int updated = datasetRepository.markAccessed(ids, LocalDateTime.now());
+        log.debug("Recorded access to {} datasets", updated);
+    }
+}
@@ -0,0 +1,237 @@
+package com.finrating.service;
+
+import com.finrating.entity.Dataset;
+import com.finrating.repository.ColumnarSnapshot;
+import com.finrating.repository.ColumnarSnapshotStore;
+import com.finrating.repository.DatasetArchiveStore;
+import com.finrating.repository.DatasetRepository;
+import com.finrating.repository.FinancialRecordBulkWriter;
+import com.finrating.repository.RecordPartitions;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves cold datasets out of {@code financial_records} into archive files and back.
+ * Reads of an ARCHIVED dataset are served from its columnar snapshot where that is
+ * enough (counts and distributions); anything that needs the rows rehydrates the
+ * dataset first, in the request when the read names the dataset, otherwise on a
+ * background thread while the read is served from what is online. Both paths are
+ * timed as {@code dataset.archive.read{path}}.
+ * <p>
+ * Archiving and rehydrating each run in their own transaction with the dataset row
+ * locked, so a dataset is never half moved and concurrent readers rehydrate it once.
+ */
+@Service
+@Slf4j
+public class DatasetArchiveService {
+
+    private final DatasetRepository datasetRepository;
+    private final DatasetArchiveStore archiveStore;
+    private final ColumnarSnapshotStore snapshotStore;
+    private final RecordPartitions recordPartitions;
+    private final FinancialRecordBulkWriter bulkWriter;
+    private final TransactionTemplate requiresNew;
+    private final Timer snapshotReads;
+    private final Timer rehydrations;
+    // One rehydration at a time off the request path; each can insert millions of rows
+    private final ExecutorService background;
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+
+    @Value("${app.archive.restore-batch-size:2000}")
+    private int restoreBatchSize;
+
+    public DatasetArchiveService(DatasetRepository datasetRepository,
+                                 DatasetArchiveStore archiveStore,
+                                 ColumnarSnapshotStore snapshotStore,
+                                 RecordPartitions recordPartitions,
+                                 FinancialRecordBulkWriter bulkWriter,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry) {
+        this.datasetRepository = datasetRepository;
+        this.archiveStore = archiveStore;
+        this.snapshotStore = snapshotStore;
+        this.recordPartitions = recordPartitions;
+        this.bulkWriter = bulkWriter;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.snapshotReads = readTimer(meterRegistry, "snapshot");
+        this.rehydrations = readTimer(meterRegistry, "rehydrate");
+        this.background = Executors.newSingleThreadExecutor(
+                runnable -> new Thread(runnable, "archive-rehydrate"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // A rehydration cut short rolls back; the dataset stays ARCHIVED and is queued again on the next read
+        background.shutdownNow();
+    }
+
+    /* ===================== ARCHIVE ===================== */
+
+    /**
+     * Archives the dataset if it is still completed and untouched since {@code cutoff}.
+     *
+     * @return whether it was archived
+     */
+    public boolean archive(Long id, LocalDateTime cutoff) {
+        return Boolean.TRUE.equals(requiresNew.execute(status -> {
+            Dataset dataset = datasetRepository.findByIdForUpdate(id).orElse(null);
+            if (dataset == null || !isCold(dataset, cutoff)) return false;
+
+            // Summaries of the archived dataset are answered from the snapshot, so make sure it is current
+            if (snapshotStore.isEnabled()) snapshotStore.load(dataset);
+
+            long rows;
+            try {
+                rows = archiveStore.export(id);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to archive dataset " + id, e);
+            }
+            afterRollback(() -> archiveStore.delete(id));
+
+            recordPartitions.truncate(id);
+            dataset.setStatus(Dataset.ProcessingStatus.ARCHIVED);
+            dataset.setArchivedAt(LocalDateTime.now());
+            datasetRepository.save(dataset);
+
+            log.info("Archived dataset {}: {} records moved out of financial_records", id, rows);
+            return true;
+        }));
+    }
+
+    /* ===================== READ ===================== */
+
+    /** The archived dataset's snapshot, timed as an archive read; empty if it has none. */
+    public Optional<ColumnarSnapshot> readSnapshot(Dataset dataset) {
+        long started = System.nanoTime();
+        Optional<ColumnarSnapshot> snapshot = snapshotStore.find(dataset);
+        if (snapshot.isPresent()) snapshotReads.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return snapshot;
+    }
+
+    /** Brings every ARCHIVED dataset among {@code datasets} back into {@code financial_records}. */
+    public void ensureOnline(Collection<Dataset> datasets) {
+        for (Dataset dataset : datasets) {
+            if (dataset.getStatus() == Dataset.ProcessingStatus.ARCHIVED) rehydrate(dataset.getId());
+        }
+    }
+
+    /**
+     * Queues every ARCHIVED dataset among {@code datasets} to be rehydrated in the
+     * background, once each however many reads ask for it.
+     *
+     * @return the ids of those datasets, which are not online yet
+     */
+    public List<Long> rehydrateInBackground(Collection<Dataset> datasets) {
+        List<Long> pending = new ArrayList<>();
+        for (Dataset dataset : datasets) {
+            if (dataset.getStatus() != Dataset.ProcessingStatus.ARCHIVED) continue;
+            Long id = dataset.getId();
+            pending.add(id);
+            if (!queued.add(id)) continue;
+
+            background.execute(() -> {
+                try {
+                    rehydrate(id);
+                } catch (RuntimeException e) {
+                    log.warn("Background rehydration of dataset {} failed, will retry on the next read", id, e);
+                } finally {
+                    queued.remove(id);
+                }
+            });
+        }
+        return pending;
+    }
+
+    private void rehydrate(Long id) {
+        long started = System.nanoTime();
+        Integer restored = requiresNew.execute(status -> {
+            Dataset dataset = datasetRepository.findByIdForUpdate(id).orElse(null);
+            // Another request may have rehydrated it while we waited for the lock
+            if (dataset == null || dataset.getStatus() != Dataset.ProcessingStatus.ARCHIVED) return null;
+
+            recordPartitions.ensurePartition(id);
+            int[] count = {0};
+            try {
+                archiveStore.read(dataset, restoreBatchSize, batch -> {
+                    bulkWriter.restore(batch);
+                    count[0] += batch.size();
+                });
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to rehydrate dataset " + id, e);
+            }
+
+            dataset.setStatus(dataset.getRejectedCount() != null && dataset.getRejectedCount() > 0
+                    ? Dataset.ProcessingStatus.COMPLETED_WITH_ERRORS
+                    : Dataset.ProcessingStatus.COMPLETED);
+            dataset.setArchivedAt(null);
+            dataset.setLastAccessedAt(LocalDateTime.now());
+            datasetRepository.save(dataset);
+            afterCommit(() -> archiveStore.delete(id));
+            return count[0];
+        });
+
+        if (restored != null) {
+            long elapsed = System.nanoTime() - started;
+            rehydrations.record(elapsed, TimeUnit.NANOSECONDS);
+            log.info("Rehydrated dataset {}: {} records in {} ms", id, restored, elapsed / 1_000_000);
+        }
+    }
+
+    /* ===================== HELPERS ===================== */
+
+    private static boolean isCold(Dataset dataset, LocalDateTime cutoff) {
+        boolean completed = dataset.getStatus() == Dataset.ProcessingStatus.COMPLETED
+                || dataset.getStatus() == Dataset.ProcessingStatus.COMPLETED_WITH_ERRORS;
+        return completed
+                && dataset.getProcessedAt() != null && dataset.getProcessedAt().isBefore(cutoff)
+                && (dataset.getLastAccessedAt() == null || dataset.getLastAccessedAt().isBefore(cutoff));
+    }
+
+    private static void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static void afterRollback(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) action.run();
+            }
+        });
+    }
+
+    private static Timer readTimer(MeterRegistry meterRegistry, String path) {
+        return Timer.builder("dataset.archive.read")
+                .description("Reads of archived datasets, by how they were served")
+                .tag("path", path)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
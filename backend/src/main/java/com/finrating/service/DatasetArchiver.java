@@ -0,0 +1,60 @@
+package com.finrating.service;
+
+import com.finrating.entity.Dataset;
+import com.finrating.repository.DatasetRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Periodically archives datasets that have been neither read nor changed for
+ * {@code app.archive.after-days}. Runs on workers; a dataset is archived in one
+ * transaction of its own, so a failure only skips that dataset until the next run.
+ */
+@Slf4j
+@Component
+@Profile("!api")
+@RequiredArgsConstructor
+public class DatasetArchiver {
+
+    private final DatasetRepository datasetRepository;
+    private final DatasetArchiveService datasetArchiveService;
+
+    @Value("${app.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.archive.after-days:90}")
+    private int afterDays;
+
+    @Value("${app.archive.batch-size:20}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${app.archive.interval:3600000}",
+               initialDelayString = "${app.archive.initial-delay:300000}")
+    public void archiveColdDatasets() {
+        if (!enabled) return;
+
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(afterDays);
+        List<Long> candidates = datasetRepository.findColdDatasetIds(
+                EnumSet.of(Dataset.ProcessingStatus.COMPLETED, Dataset.ProcessingStatus.COMPLETED_WITH_ERRORS),
+                cutoff, PageRequest.of(0, batchSize));
+
+        int archived = 0;
+        for (Long id : candidates) {
+            try {
+                if (datasetArchiveService.archive(id, cutoff)) archived++;
+            } catch (RuntimeException e) {
+                log.warn("Archiving dataset {} failed, will retry next run", id, e);
+            }
+        }
+        if (archived > 0) log.info("Archived {} of {} cold datasets", archived, candidates.size());
+    }
+}
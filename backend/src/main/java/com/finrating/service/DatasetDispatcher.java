@@ -0,0 +1,18 @@
+package com.finrating.service;
+
+import com.finrating.entity.Dataset;
+
+/**
+ * Hands uploaded datasets to the ingestion workers. The backend is chosen with
+ * {@code app.dispatch.backend}: {@code kafka} (default) queues a message in the
+ * outbox, {@code jobqueue} a row in {@code ingestion_jobs} that workers lease
+ * straight from PostgreSQL.
+ */
+public interface DatasetDispatcher {
+
+    /**
+     * Queues the dataset for ingestion within the caller's transaction, so a
+     * rolled-back upload is never ingested and nothing is sent before commit.
+     */
+    void dispatch(Dataset dataset);
+}
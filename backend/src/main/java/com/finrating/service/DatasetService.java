@@ -1,32 +1,65 @@
 package com.finrating.service;
 
+import com.finrating.dto.BatchStatusResponse;
 import com.finrating.dto.DatasetUploadResponse;
+import com.finrating.dto.RejectedRowFix;
+import com.finrating.dto.RejectedRowResponse;
 import com.finrating.entity.Dataset;
-import com.finrating.entity.User;
-import com.finrating.kafka.KafkaProducerService;
+import com.finrating.entity.DatasetBatch;
+import com.finrating.entity.FinancialRecord;
+import com.finrating.entity.RejectedRow;
+import com.finrating.repository.AlertRepository;
+import com.finrating.repository.ColumnarSnapshotStore;
+import com.finrating.repository.DatasetArchiveStore;
+import com.finrating.repository.DatasetBatchRepository;
 import com.finrating.repository.DatasetRepository;
+import com.finrating.repository.DatasetSampleStore;
+import com.finrating.repository.FinancialRecordRepository;
+import com.finrating.repository.RecordPartitions;
+import com.finrating.repository.RejectedRowRepository;
+import com.finrating.repository.UserRepository;
+import com.finrating.security.AuthenticatedUser;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.nio.file.*;
 import java.time.LocalDateTime;
-import java.util.Arrays;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
 
 @Service
+@Profile("!worker")
 @RequiredArgsConstructor
 @Slf4j
 @Transactional
 public class DatasetService {
 
     private final DatasetRepository datasetRepository;
-    private final KafkaProducerService kafkaProducer;
+    private final DatasetBatchRepository datasetBatchRepository;
+    private final UserRepository userRepository;
+    private final DatasetDispatcher datasetDispatcher;
+    private final RejectedRowRepository rejectedRowRepository;
+    private final FinancialRecordRepository financialRecordRepository;
+    private final FinancialRecordParser recordParser;
+    private final RatingService ratingService;
+    private final AlertRuleEngine alertRuleEngine;
+    private final RecordPartitions recordPartitions;
+    private final ColumnarSnapshotStore snapshotStore;
+    private final DatasetSampleStore sampleStore;
+    private final DatasetArchiveStore archiveStore;
+    private final AlertRepository alertRepository;
 
     @Value("${app.upload.dir:uploads}")
     private String uploadDirectory;
@@ -34,14 +67,28 @@ public class DatasetService {
     @Value("${app.upload.max-file-size:52428800}")
     private long maxFileSize;
 
-    private static final List<String> ALLOWED_FILE_TYPES = Arrays.asList("csv", "xlsx", "xls");
+    @Value("${app.upload.max-batch-size:524288000}")
+    private long maxBatchSize;
+
+    @Value("${app.upload.max-batch-entries:500}")
+    private int maxBatchEntries;
+
+    // Compressed CSVs are stored as uploaded and decompressed while streaming during ingestion
+    private static final List<String> ALLOWED_FILE_TYPES = Arrays.asList("csv", "csv.gz", "csv.zst", "zip", "xlsx", "xls");
+    private static final List<String> BATCH_ENTRY_TYPES = Arrays.asList("csv", "xlsx", "xls");
+    private static final List<String> COMPOUND_FILE_TYPES = Arrays.asList("csv.gz", "csv.zst");
     private static final List<String> ALLOWED_CONTENT_TYPES = Arrays.asList(
             "text/csv",
             "application/vnd.ms-excel",
-            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+            "application/gzip",
+            "application/x-gzip",
+            "application/zstd",
+            "application/zip",
+            "application/x-zip-compressed"
     );
 
-    public DatasetUploadResponse uploadDataset(MultipartFile file, User user) throws IOException {
+    public DatasetUploadResponse uploadDataset(MultipartFile file, AuthenticatedUser user) throws IOException {
         log.info("Starting dataset upload for user: {}", user.getEmail());
 
         validateFile(file);
@@ -50,11 +97,11 @@ public class DatasetService {
         dataset = datasetRepository.save(dataset);
 
         try {
-            String filePath = saveFileToDisk(file, dataset.getId());
+            String filePath = saveFileToDisk(file, dataset.getId().toString());
             dataset.setFilePath(filePath);
             dataset = datasetRepository.save(dataset);
 
-            sendToKafkaProcessing(dataset.getId());
+            datasetDispatcher.dispatch(dataset);
 
             return buildSuccessResponse(dataset);
 
@@ -66,25 +113,280 @@ public class DatasetService {
     }
 
     @Transactional(readOnly = true)
-    public List<Dataset> getUserDatasets(User user) {
-        return datasetRepository.findByUserOrderByUploadedAtDesc(user);
+    public List<Dataset> getUserDatasets(AuthenticatedUser user) {
+        return datasetRepository.findByUserIdOrderByUploadedAtDesc(user.getId());
     }
 
     @Transactional(readOnly = true)
-    public Dataset getDatasetById(Long id, User user) {
+    public Dataset getDatasetById(Long id, AuthenticatedUser user) {
         Dataset dataset = datasetRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Dataset not found with ID: " + id));
         validateUserOwnership(dataset, user);
         return dataset;
     }
 
-    public void deleteDataset(Long id, User user) {
-        Dataset dataset = datasetRepository.findById(id)
+    public void deleteDataset(Long id, AuthenticatedUser user) {
+        // Locked so an archived dataset is not deleted while a read is rehydrating it
+        Dataset dataset = datasetRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new RuntimeException("Dataset not found with ID: " + id));
 
         validateUserOwnership(dataset, user);
-        deletePhysicalFile(dataset.getFilePath());
+        // Batch children share the archive, which goes with the batch
+        String uploadedFile = dataset.getBatchId() == null ? dataset.getFilePath() : null;
+        discard(dataset);
+        afterCommit(() -> deletePhysicalFile(uploadedFile));
+    }
+
+    /**
+     * Deletes the dataset and everything derived from it. Files are removed only once
+     * the transaction commits: for an ARCHIVED dataset the archive is the only copy of
+     * its records, and must survive a rollback.
+     */
+    private void discard(Dataset dataset) {
+        Long id = dataset.getId();
+        rejectedRowRepository.deleteByDatasetId(id);
+        alertRepository.deleteByDatasetId(id);
+        recordPartitions.discard(id);
+        sampleStore.delete(id);
         datasetRepository.delete(dataset);
+        afterCommit(() -> {
+            snapshotStore.delete(id);
+            archiveStore.delete(id);
+        });
+    }
+
+    /* ===================== BATCH UPLOAD ===================== */
+
+    /**
+     * Stores the archive as uploaded and creates one child dataset per CSV or Excel
+     * entry, listed from the zip's central directory without extracting anything.
+     * Each child is queued on its own, so workers ingest them in parallel and read
+     * their entry straight from the archive.
+     */
+    public BatchStatusResponse uploadBatch(MultipartFile file, AuthenticatedUser user) throws IOException {
+        log.info("Starting batch upload for user: {}", user.getEmail());
+
+        validateBatchFile(file);
+
+        DatasetBatch batch = datasetBatchRepository.save(DatasetBatch.builder()
+                .name(file.getOriginalFilename())
+                .fileSize(file.getSize())
+                .user(userRepository.getReferenceById(user.getId()))
+                .build());
+
+        String filePath = saveFileToDisk(file, "batch-" + batch.getId());
+        try {
+            batch.setFilePath(filePath);
+            List<Dataset> children = datasetRepository.saveAll(listBatchEntries(batch, user));
+            children.forEach(datasetDispatcher::dispatch);
+
+            log.info("Batch {} queued {} datasets", batch.getId(), children.size());
+            return buildBatchStatus(batch);
+
+        } catch (RuntimeException | IOException e) {
+            deletePhysicalFile(filePath);
+            throw e;
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public BatchStatusResponse getBatchStatus(Long id, AuthenticatedUser user) {
+        return buildBatchStatus(getOwnedBatch(id, user));
+    }
+
+    public void deleteBatch(Long id, AuthenticatedUser user) {
+        DatasetBatch batch = getOwnedBatch(id, user);
+
+        datasetRepository.findByBatchIdForUpdate(id).forEach(this::discard);
+
+        datasetBatchRepository.delete(batch);
+        afterCommit(() -> deletePhysicalFile(batch.getFilePath()));
+    }
+
+    private List<Dataset> listBatchEntries(DatasetBatch batch, AuthenticatedUser user) throws IOException {
+        List<Dataset> children = new ArrayList<>();
+
+        try (ZipFile zip = new ZipFile(batch.getFilePath())) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String entryName = entry.getName();
+                String baseName = entryName.substring(entryName.lastIndexOf('/') + 1);
+
+                if (entry.isDirectory() || !baseName.contains(".")) continue;
+                String fileType = getFileExtension(baseName).toLowerCase();
+                if (!BATCH_ENTRY_TYPES.contains(fileType)) {
+                    log.debug("Skipping unsupported batch entry {}", entryName);
+                    continue;
+                }
+
+                children.add(Dataset.builder()
+                        .name(baseName)
+                        .fileName(baseName)
+                        .fileType(fileType)
+                        // Uncompressed size, so lane classification sees the real work
+                        .fileSize(entry.getSize() >= 0 ? entry.getSize() : entry.getCompressedSize())
+                        .filePath(batch.getFilePath())
+                        .archiveEntry(entryName)
+                        .batchId(batch.getId())
+                        .user(userRepository.getReferenceById(user.getId()))
+                        .status(Dataset.ProcessingStatus.PENDING)
+                        .recordCount(0)
+                        .build());
+            }
+        } catch (ZipException e) {
+            throw new IllegalArgumentException("Not a valid zip archive: " + e.getMessage());
+        }
+
+        if (children.isEmpty()) {
+            throw new IllegalArgumentException("Archive contains no CSV or Excel files");
+        }
+        if (children.size() > maxBatchEntries) {
+            throw new IllegalArgumentException(String.format(
+                    "Archive contains %d files; at most %d are allowed per batch", children.size(), maxBatchEntries));
+        }
+        return children;
+    }
+
+    private BatchStatusResponse buildBatchStatus(DatasetBatch batch) {
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        int total = 0;
+        long records = 0;
+        long rejected = 0;
+
+        for (DatasetRepository.BatchStatusCount count : datasetRepository.countByBatchIdGroupByStatus(batch.getId())) {
+            byStatus.put(count.getStatus().name(), count.getDatasets());
+            total += count.getDatasets();
+            records += count.getRecords();
+            rejected += count.getRejected();
+        }
+
+        return BatchStatusResponse.builder()
+                .id(batch.getId())
+                .name(batch.getName())
+                .status(aggregateStatus(byStatus, total))
+                .totalDatasets(total)
+                .datasetsByStatus(byStatus)
+                .recordCount(records)
+                .rejectedCount(rejected)
+                .build();
+    }
+
+    /** PROCESSING until every child has finished, then the worst outcome among them. */
+    private String aggregateStatus(Map<String, Long> byStatus, int total) {
+        long pending = byStatus.getOrDefault(Dataset.ProcessingStatus.PENDING.name(), 0L);
+        long processing = byStatus.getOrDefault(Dataset.ProcessingStatus.PROCESSING.name(), 0L);
+        long failed = byStatus.getOrDefault(Dataset.ProcessingStatus.FAILED.name(), 0L);
+        long withErrors = byStatus.getOrDefault(Dataset.ProcessingStatus.COMPLETED_WITH_ERRORS.name(), 0L);
+
+        if (pending == total) return Dataset.ProcessingStatus.PENDING.name();
+        if (pending + processing > 0) return Dataset.ProcessingStatus.PROCESSING.name();
+        if (failed == total) return Dataset.ProcessingStatus.FAILED.name();
+        if (failed + withErrors > 0) return Dataset.ProcessingStatus.COMPLETED_WITH_ERRORS.name();
+        return Dataset.ProcessingStatus.COMPLETED.name();
+    }
+
+    private DatasetBatch getOwnedBatch(Long id, AuthenticatedUser user) {
+        DatasetBatch batch = datasetBatchRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Batch not found with ID: " + id));
+        if (!batch.getUser().getId().equals(user.getId())) {
+            throw new RuntimeException("Unauthorized: You do not have access to this batch");
+        }
+        return batch;
+    }
+
+    private void validateBatchFile(MultipartFile file) {
+        if (file == null || file.isEmpty()) throw new IllegalArgumentException("File cannot be empty");
+        String originalFilename = file.getOriginalFilename();
+        if (originalFilename == null || !originalFilename.toLowerCase().endsWith(".zip")) {
+            throw new IllegalArgumentException("Batch uploads must be a .zip archive");
+        }
+        if (file.getSize() > maxBatchSize) {
+            throw new IllegalArgumentException(
+                    String.format("Archive exceeds maximum allowed size of %d MB", maxBatchSize / (1024 * 1024))
+            );
+        }
+    }
+
+    /* ===================== REJECTED ROWS ===================== */
+
+    @Transactional(readOnly = true)
+    public List<RejectedRowResponse> getRejectedRows(Long id, AuthenticatedUser user) {
+        getDatasetById(id, user);
+
+        return rejectedRowRepository.findByDatasetIdOrderByRowNumber(id).stream()
+                .map(row -> RejectedRowResponse.builder()
+                        .rowNumber(row.getRowNumber())
+                        .rawText(row.getRawText())
+                        .reason(row.getReason())
+                        .build())
+                .toList();
+    }
+
+    /**
+     * Re-ingests corrected versions of rejected rows without touching the rest of
+     * the dataset. Rows that still do not parse stay quarantined with the new text
+     * and reason; the dataset becomes COMPLETED once none remain. A row may be
+     * fixed once per request. Fixed rows are tested against the owner's alert rules.
+     */
+    public Dataset resubmitRejectedRows(Long id, List<RejectedRowFix> fixes, AuthenticatedUser user) {
+        Dataset dataset = datasetRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new RuntimeException("Dataset not found with ID: " + id));
+        validateUserOwnership(dataset, user);
+
+        if (dataset.getStatus() != Dataset.ProcessingStatus.COMPLETED_WITH_ERRORS) {
+            throw new IllegalArgumentException("Dataset has no rejected rows to resubmit");
+        }
+
+        // Each fix removes one rejected row, so a row listed twice would be counted twice
+        Set<Long> rowNumbers = new HashSet<>();
+        for (RejectedRowFix fix : fixes) {
+            if (!rowNumbers.add(fix.getRowNumber())) {
+                throw new IllegalArgumentException("Row " + fix.getRowNumber() + " is listed more than once");
+            }
+        }
+
+        Map<Long, RejectedRow> rejectedByRow = rejectedRowRepository.findByDatasetIdOrderByRowNumber(id).stream()
+                .collect(Collectors.toMap(RejectedRow::getRowNumber, Function.identity()));
+
+        List<FinancialRecord> records = new ArrayList<>();
+        List<RejectedRow> fixed = new ArrayList<>();
+        AlertRuleEngine.Matcher alerts = alertRuleEngine.compile(dataset);
+
+        for (RejectedRowFix fix : fixes) {
+            RejectedRow rejected = rejectedByRow.get(fix.getRowNumber());
+            if (rejected == null) {
+                throw new IllegalArgumentException("Row " + fix.getRowNumber() + " is not a rejected row of dataset " + id);
+            }
+
+            try {
+                FinancialRecord record = recordParser.parseRecordFromRawText(fix.getRawText(), dataset);
+                ratingService.calculateRating(record);
+                alerts.evaluate(record);
+                record.setCalculatedAt(LocalDateTime.now());
+                records.add(record);
+                fixed.add(rejected);
+            } catch (FinancialRecordParser.InvalidRowException e) {
+                rejected.setRawText(fix.getRawText());
+                rejected.setReason(e.getMessage());
+            }
+        }
+
+        financialRecordRepository.saveAll(records);
+        // IDENTITY ids are assigned on save, so the matches can reference the records now
+        alerts.finish();
+        rejectedRowRepository.deleteAllInBatch(fixed);
+
+        int remaining = rejectedByRow.size() - fixed.size();
+        dataset.setRecordCount((dataset.getRecordCount() == null ? 0 : dataset.getRecordCount()) + records.size());
+        dataset.setRejectedCount(remaining);
+        dataset.setProcessedAt(LocalDateTime.now());
+        if (remaining == 0) {
+            dataset.setStatus(Dataset.ProcessingStatus.COMPLETED);
+        }
+
+        log.info("Dataset {}: {} rejected rows fixed, {} remaining", id, fixed.size(), remaining);
+        return datasetRepository.save(dataset);
     }
 
     public void updateDatasetStatus(Long datasetId, Dataset.ProcessingStatus status, Integer recordCount) {
@@ -127,7 +429,7 @@ public class DatasetService {
         }
     }
 
-    private Dataset createDatasetRecord(MultipartFile file, User user) {
+    private Dataset createDatasetRecord(MultipartFile file, AuthenticatedUser user) {
         String originalFilename = file.getOriginalFilename();
         String fileExtension = getFileExtension(originalFilename);
 
@@ -136,31 +438,28 @@ public class DatasetService {
                 .fileName(originalFilename)
                 .fileType(fileExtension.toLowerCase())
                 .fileSize(file.getSize())
-                .user(user)
+                .user(userRepository.getReferenceById(user.getId()))
                 .status(Dataset.ProcessingStatus.PENDING)
                 .recordCount(0)
                 .build();
     }
 
-    private String saveFileToDisk(MultipartFile file, Long datasetId) throws IOException {
+    private String saveFileToDisk(MultipartFile file, String prefix) throws IOException {
         Path uploadDir = Paths.get(uploadDirectory);
         if (!Files.exists(uploadDir)) Files.createDirectories(uploadDir);
 
-        String uniqueFilename = String.format("%d_%s_%s",
-                datasetId,
+        String uniqueFilename = String.format("%s_%s_%s",
+                prefix,
                 UUID.randomUUID().toString().substring(0, 8),
                 file.getOriginalFilename()
         );
 
+        // Stream to disk instead of buffering the whole upload on the heap
         Path filePath = uploadDir.resolve(uniqueFilename);
-        Files.write(filePath, file.getBytes());
+        file.transferTo(filePath);
         return filePath.toString();
     }
 
-    private void sendToKafkaProcessing(Long datasetId) {
-        kafkaProducer.sendDatasetProcessingMessage(datasetId);
-    }
-
     private DatasetUploadResponse buildSuccessResponse(Dataset dataset) {
         return DatasetUploadResponse.builder()
                 .id(dataset.getId()) // <-- FIXED
@@ -179,12 +478,21 @@ public class DatasetService {
         }
     }
 
-    private void validateUserOwnership(Dataset dataset, User user) {
+    private void validateUserOwnership(Dataset dataset, AuthenticatedUser user) {
         if (!dataset.getUser().getId().equals(user.getId())) {
             throw new RuntimeException("Unauthorized: You do not have access to this dataset");
         }
     }
 
+    private static void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
     private void deletePhysicalFile(String filePath) {
         if (filePath == null || filePath.isEmpty()) return;
         try {
@@ -199,6 +507,10 @@ public class DatasetService {
         if (filename == null || !filename.contains(".")) {
             throw new IllegalArgumentException("Invalid filename: no extension found");
         }
+        String lowerCase = filename.toLowerCase();
+        for (String compound : COMPOUND_FILE_TYPES) {
+            if (lowerCase.endsWith("." + compound)) return compound;
+        }
         return filename.substring(filename.lastIndexOf(".") + 1);
     }
 }
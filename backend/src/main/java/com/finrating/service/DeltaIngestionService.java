@@ -0,0 +1,333 @@
+package com.finrating.service;
+
+import com.finrating.dto.DeltaIngestResponse;
+import com.finrating.dto.RejectedRowResponse;
+import com.finrating.entity.Dataset;
+import com.finrating.entity.FinancialRecord;
+import com.finrating.metrics.IngestionMetrics;
+import com.finrating.repository.DatasetRepository;
+import com.finrating.repository.FinancialRecordBulkWriter;
+import com.finrating.repository.RecordPartitions;
+import com.finrating.security.AuthenticatedUser;
+import com.github.luben.zstd.ZstdInputStream;
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Applies a monthly extract to an existing dataset instead of re-uploading it.
+ * Rows are matched on issuer + country; a row whose input columns hash the same
+ * as the stored row is skipped, so only new and changed rows are rated and
+ * upserted. Rows missing from the delta are left alone.
+ * <p>
+ * The first delta on a dataset keys its existing rows once, which requires
+ * issuer + country to be unique there. After that a delta costs one indexed
+ * hash lookup per row plus the writes for changed rows.
+ */
+@Service
+@Profile("!worker")
+@RequiredArgsConstructor
+@Slf4j
+public class DeltaIngestionService {
+
+    private static final List<String> DELTA_FILE_TYPES = List.of("csv.gz", "csv.zst", "csv");
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final char KEY_SEPARATOR = '\u001F';
+
+    private final DatasetRepository datasetRepository;
+    private final FinancialRecordBulkWriter bulkWriter;
+    private final RecordPartitions recordPartitions;
+    private final FinancialRecordParser recordParser;
+    private final RatingService ratingService;
+    private final AlertRuleEngine alertRuleEngine;
+    private final IngestionMetrics ingestionMetrics;
+    private final IngestionBulkhead ingestionBulkhead;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.ingestion.delta.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.upload.max-file-size:52428800}")
+    private long maxFileSize;
+
+    @Value("${app.ingestion.error-budget.max-rows:1000}")
+    private int maxRejectedRows;
+
+    @Value("${app.ingestion.error-budget.max-ratio:0.1}")
+    private double maxRejectedRatio;
+
+    public DeltaIngestResponse applyDelta(Long id, MultipartFile file, AuthenticatedUser user) {
+        String fileType = validateDeltaFile(file);
+
+        return ingestionBulkhead.callOrReject(() -> transactionTemplate.execute(status -> {
+            Dataset dataset = datasetRepository.findByIdForUpdate(id)
+                    .orElseThrow(() -> new RuntimeException("Dataset not found with ID: " + id));
+            if (!dataset.getUser().getId().equals(user.getId())) {
+                throw new RuntimeException("Unauthorized: You do not have access to this dataset");
+            }
+            if (dataset.getStatus() != Dataset.ProcessingStatus.COMPLETED
+                    && dataset.getStatus() != Dataset.ProcessingStatus.COMPLETED_WITH_ERRORS) {
+                throw new IllegalArgumentException("Dataset " + id + " is " + dataset.getStatus()
+                        + "; deltas apply to completed datasets only");
+            }
+
+            recordPartitions.ensurePartition(id);
+            keyExistingRecords(dataset);
+
+            try (InputStream in = open(file, fileType)) {
+                return apply(dataset, in);
+            } catch (IOException | CsvException e) {
+                throw new RuntimeException("Failed to read delta file " + file.getOriginalFilename(), e);
+            }
+        }));
+    }
+
+    /* ===================== APPLY ===================== */
+
+    private DeltaIngestResponse apply(Dataset dataset, InputStream in) throws IOException, CsvException {
+        DeltaRun run = new DeltaRun(dataset, ingestionMetrics.track(dataset));
+        CSVReader reader = new CSVReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        if (reader.readNext() != null) { // skip header
+            long rowNumber = 1;
+            String[] line;
+            while ((line = reader.readNext()) != null) {
+                rowNumber++;
+                try {
+                    FinancialRecord record = recordParser.parseRecordFromArray(line, dataset);
+                    record.setRecordKey(recordKey(record));
+                    run.accept(record);
+                } catch (FinancialRecordParser.InvalidRowException e) {
+                    run.reject(rowNumber, recordParser.toRawText(line), e.getMessage());
+                }
+            }
+        }
+        run.finish();
+
+        dataset.setRecordCount((dataset.getRecordCount() == null ? 0 : dataset.getRecordCount()) + (int) run.inserted);
+        dataset.setProcessedAt(LocalDateTime.now());
+        datasetRepository.save(dataset);
+
+        log.info("Delta on dataset {}: {} rows read, {} inserted, {} updated, {} unchanged, {} rejected",
+                dataset.getId(), run.rowsRead, run.inserted, run.updated, run.unchanged, run.rejected.size());
+
+        return DeltaIngestResponse.builder()
+                .datasetId(dataset.getId())
+                .rowsRead(run.rowsRead)
+                .inserted(run.inserted)
+                .updated(run.updated)
+                .unchanged(run.unchanged)
+                .rejected(run.rejected)
+                .recordCount(dataset.getRecordCount())
+                .build();
+    }
+
+    /**
+     * Gives rows ingested by full uploads (or appended since the last delta) their
+     * key and hash. Runs once per dataset in practice; it refuses datasets where
+     * an issuer + country pair occurs more than once, since there is no telling
+     * which of the rows a delta should replace. Rows are streamed and keyed one
+     * batch at a time, so memory does not grow with the dataset.
+     */
+    private void keyExistingRecords(Dataset dataset) {
+        RowHasher hasher = new RowHasher();
+        long[] keyed = {0};
+
+        bulkWriter.forEachUnkeyedChunk(dataset.getId(), batchSize, chunk -> {
+            Set<String> keys = new HashSet<>();
+            for (FinancialRecord record : chunk) {
+                if (record.getIssuerName() == null || record.getIssuerName().isBlank()) {
+                    throw new IllegalArgumentException("Record " + record.getId()
+                            + " has no issuer name; delta mode matches rows on issuer and country");
+                }
+                record.setRecordKey(recordKey(record));
+                record.setContentHash(hasher.hash(record));
+                if (!keys.add(record.getRecordKey())) {
+                    throw new IllegalArgumentException(duplicateMessage(dataset, record));
+                }
+            }
+
+            // Clashes with rows keyed by an earlier delta or an earlier chunk of this pass
+            Set<String> clashing = bulkWriter.findContentHashes(dataset.getId(), keys).keySet();
+            if (!clashing.isEmpty()) {
+                FinancialRecord record = chunk.stream()
+                        .filter(r -> clashing.contains(r.getRecordKey())).findFirst().orElseThrow();
+                throw new IllegalArgumentException(duplicateMessage(dataset, record));
+            }
+            bulkWriter.assignKeys(dataset.getId(), chunk);
+            keyed[0] += chunk.size();
+        });
+        if (keyed[0] > 0) log.info("Keyed {} existing records of dataset {} for delta ingestion", keyed[0], dataset.getId());
+    }
+
+    private String duplicateMessage(Dataset dataset, FinancialRecord record) {
+        return "Dataset " + dataset.getId() + " has more than one record for issuer '" + record.getIssuerName()
+                + "' in " + record.getCountry() + "; delta mode needs issuer and country to be unique";
+    }
+
+    /* ===================== INPUT ===================== */
+
+    private String validateDeltaFile(MultipartFile file) {
+        if (file == null || file.isEmpty()) throw new IllegalArgumentException("File cannot be empty");
+        if (file.getSize() > maxFileSize) {
+            throw new IllegalArgumentException(
+                    String.format("File size exceeds maximum allowed size of %d MB", maxFileSize / (1024 * 1024)));
+        }
+
+        String name = file.getOriginalFilename() == null ? "" : file.getOriginalFilename().toLowerCase();
+        for (String type : DELTA_FILE_TYPES) {
+            if (name.endsWith("." + type)) return type;
+        }
+        throw new IllegalArgumentException("Delta files must be csv, csv.gz or csv.zst: " + file.getOriginalFilename());
+    }
+
+    private InputStream open(MultipartFile file, String fileType) throws IOException {
+        InputStream in = new BufferedInputStream(file.getInputStream(), STREAM_BUFFER_SIZE);
+        return switch (fileType) {
+            case "csv.gz" -> new GZIPInputStream(in, STREAM_BUFFER_SIZE);
+            case "csv.zst" -> new ZstdInputStream(in);
+            default -> in;
+        };
+    }
+
+    /* ===================== KEY AND HASH ===================== */
+
+    private static String recordKey(FinancialRecord record) {
+        if (record.getIssuerName() == null) {
+            throw new FinancialRecordParser.InvalidRowException("Issuer Name is required in delta mode");
+        }
+        String country = record.getCountry() == null ? "" : record.getCountry().trim();
+        return record.getIssuerName().trim() + KEY_SEPARATOR + country;
+    }
+
+    /**
+     * First 64 bits of a SHA-256 over the input columns outside the key. Decimals
+     * are normalized so "100" and the stored "100.00" hash alike. Not thread-safe.
+     */
+    private static final class RowHasher {
+
+        private final MessageDigest digest;
+
+        RowHasher() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        long hash(FinancialRecord r) {
+            StringBuilder input = new StringBuilder(128)
+                    .append(r.getIndustry() == null ? "" : r.getIndustry().trim());
+            for (BigDecimal value : new BigDecimal[]{r.getRevenue(), r.getEbitda(), r.getTotalDebt(),
+                    r.getInterestExpense(), r.getCurrentAssets(), r.getCurrentLiabilities()}) {
+                input.append(KEY_SEPARATOR).append(value == null ? "" : value.stripTrailingZeros().toPlainString());
+            }
+
+            byte[] bytes = digest.digest(input.toString().getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < Long.BYTES; i++) hash = (hash << 8) | (bytes[i] & 0xFF);
+            return hash;
+        }
+    }
+
+    /* ===================== DELTA RUN ===================== */
+
+    /**
+     * Collects keyed rows into batches. Each batch looks up the stored hashes of
+     * its keys in one query, then rates and upserts only the rows that differ.
+     * A key repeated within one batch keeps its last row. Alert rules are tested on
+     * the rows that changed, as they are rated.
+     */
+    private final class DeltaRun {
+
+        private final Dataset dataset;
+        private final IngestionMetrics.Tracker tracker;
+        private final RowHasher hasher = new RowHasher();
+        private final AlertRuleEngine.Matcher alerts;
+        private final Map<String, FinancialRecord> batch = new LinkedHashMap<>();
+        private final List<RejectedRowResponse> rejected = new ArrayList<>();
+        private long rowsRead;
+        private long inserted;
+        private long updated;
+        private long unchanged;
+
+        private DeltaRun(Dataset dataset, IngestionMetrics.Tracker tracker) {
+            this.dataset = dataset;
+            this.tracker = tracker;
+            this.alerts = alertRuleEngine.compile(dataset);
+        }
+
+        void accept(FinancialRecord record) {
+            rowsRead++;
+            record.setContentHash(hasher.hash(record));
+            if (batch.put(record.getRecordKey(), record) != null) unchanged++; // superseded within the file
+            if (batch.size() == batchSize) flush();
+        }
+
+        void reject(long rowNumber, String rawText, String reason) {
+            rowsRead++;
+            rejected.add(RejectedRowResponse.builder()
+                    .rowNumber(rowNumber)
+                    .rawText(rawText)
+                    .reason(reason)
+                    .build());
+
+            if (rejected.size() > maxRejectedRows) {
+                tracker.failed();
+                throw new IllegalArgumentException("Error budget exceeded: more than " + maxRejectedRows
+                        + " rejected rows, last at row " + rowNumber + " (" + reason + ")");
+            }
+        }
+
+        void finish() {
+            if (!batch.isEmpty()) flush();
+            alerts.finish();
+
+            if (!rejected.isEmpty() && rejected.size() / (double) rowsRead > maxRejectedRatio) {
+                tracker.failed();
+                throw new IllegalArgumentException(String.format(
+                        "Error budget exceeded: %d of %d rows rejected", rejected.size(), rowsRead));
+            }
+        }
+
+        private void flush() {
+            Map<String, Long> stored = bulkWriter.findContentHashes(dataset.getId(), batch.keySet());
+            List<FinancialRecord> changed = new ArrayList<>();
+
+            for (FinancialRecord record : batch.values()) {
+                Long storedHash = stored.get(record.getRecordKey());
+                if (storedHash != null && storedHash.longValue() == record.getContentHash()) {
+                    unchanged++;
+                    continue;
+                }
+
+                tracker.rate(() -> ratingService.calculateRating(record));
+                alerts.evaluate(record);
+                record.setCalculatedAt(LocalDateTime.now());
+                changed.add(record);
+                if (storedHash == null) inserted++; else updated++;
+            }
+
+            if (!changed.isEmpty()) tracker.flush(() -> bulkWriter.upsert(changed));
+            // Matches carry the ids the upsert read back
+            alerts.flush();
+            batch.clear();
+        }
+    }
+}
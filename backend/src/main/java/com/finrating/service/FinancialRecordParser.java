@@ -0,0 +1,230 @@
+package com.finrating.service;
+
+import com.finrating.entity.Dataset;
+import com.finrating.entity.FinancialRecord;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.opencsv.CSVParser;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.StringJoiner;
+
+/**
+ * Maps one CSV line or Excel row onto a {@link FinancialRecord}. Column order:
+ * issuer, industry, country, revenue, EBITDA, total debt, interest expense,
+ * current assets, current liabilities.
+ */
+@Component
+public class FinancialRecordParser {
+
+    private static final String[] COLUMNS = {
+            "Issuer Name", "Industry", "Country", "Revenue", "EBITDA", "Total Debt",
+            "Interest Expense", "Current Assets", "Current Liabilities"
+    };
+
+    // NDJSON field names, in column order
+    private static final String[] JSON_FIELDS = {
+            "issuerName", "industry", "country", "revenue", "ebitda", "totalDebt",
+            "interestExpense", "currentAssets", "currentLiabilities"
+    };
+
+    /** A single row cannot be mapped; the row is quarantined rather than the file failed. */
+    public static class InvalidRowException extends RuntimeException {
+
+        // Set when the caller has no raw line of its own to quarantine (NDJSON)
+        private final String rawText;
+
+        public InvalidRowException(String message) {
+            this(message, null);
+        }
+
+        public InvalidRowException(String message, String rawText) {
+            super(message);
+            this.rawText = rawText;
+        }
+
+        public String getRawText() {
+            return rawText;
+        }
+    }
+
+    public FinancialRecord parseRecordFromArray(String[] data, Dataset dataset) {
+        return FinancialRecord.builder()
+                .dataset(dataset)
+                .issuerName(getString(data, 0))
+                .industry(getString(data, 1))
+                .country(getString(data, 2))
+                .revenue(getDecimal(data, 3))
+                .ebitda(getDecimal(data, 4))
+                .totalDebt(getDecimal(data, 5))
+                .interestExpense(getDecimal(data, 6))
+                .currentAssets(getDecimal(data, 7))
+                .currentLiabilities(getDecimal(data, 8))
+                .build();
+    }
+
+    public FinancialRecord parseRecordFromRow(Row row, Dataset dataset) {
+        return FinancialRecord.builder()
+                .dataset(dataset)
+                .issuerName(getCellString(row.getCell(0)))
+                .industry(getCellString(row.getCell(1)))
+                .country(getCellString(row.getCell(2)))
+                .revenue(getCellDecimal(row.getCell(3), 3))
+                .ebitda(getCellDecimal(row.getCell(4), 4))
+                .totalDebt(getCellDecimal(row.getCell(5), 5))
+                .interestExpense(getCellDecimal(row.getCell(6), 6))
+                .currentAssets(getCellDecimal(row.getCell(7), 7))
+                .currentLiabilities(getCellDecimal(row.getCell(8), 8))
+                .build();
+    }
+
+    /** Parses a row previously captured with {@link #toRawText}. */
+    public FinancialRecord parseRecordFromRawText(String rawText, Dataset dataset) {
+        try {
+            return parseRecordFromArray(new CSVParser().parseLine(rawText), dataset);
+        } catch (IOException e) {
+            throw new InvalidRowException("Malformed CSV line: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the next top-level object of an NDJSON stream, or returns null at the
+     * end of input. A bad value does not stop the object being consumed, so the
+     * parser stays aligned on the next record; the row is then rejected with its
+     * fields rendered as a CSV line, ready for the resubmit endpoint.
+     */
+    public FinancialRecord parseRecordFromJson(JsonParser parser, Dataset dataset) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null) return null;
+        if (token != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            throw new InvalidRowException("Expected a JSON object but found " + token, "");
+        }
+
+        String[] values = new String[JSON_FIELDS.length];
+        BigDecimal[] decimals = new BigDecimal[JSON_FIELDS.length];
+        String error = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            int index = jsonFieldIndex(parser.currentName());
+            JsonToken value = parser.nextToken();
+
+            if (index < 0 || value == JsonToken.VALUE_NULL) {
+                parser.skipChildren();
+                continue;
+            }
+            if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                error = error != null ? error : "Expected a scalar for " + JSON_FIELDS[index];
+                continue;
+            }
+
+            values[index] = parser.getText();
+            if (index < 3) continue;
+
+            if (value == JsonToken.VALUE_NUMBER_INT || value == JsonToken.VALUE_NUMBER_FLOAT) {
+                decimals[index] = parser.getDecimalValue();
+            } else {
+                try {
+                    decimals[index] = toDecimal(values[index], index);
+                } catch (InvalidRowException e) {
+                    error = error != null ? error : e.getMessage();
+                }
+            }
+        }
+
+        if (error != null) throw new InvalidRowException(error, toRawText(values));
+
+        return FinancialRecord.builder()
+                .dataset(dataset)
+                .issuerName(getString(values, 0))
+                .industry(getString(values, 1))
+                .country(getString(values, 2))
+                .revenue(decimals[3])
+                .ebitda(decimals[4])
+                .totalDebt(decimals[5])
+                .interestExpense(decimals[6])
+                .currentAssets(decimals[7])
+                .currentLiabilities(decimals[8])
+                .build();
+    }
+
+    private int jsonFieldIndex(String name) {
+        for (int i = 0; i < JSON_FIELDS.length; i++) {
+            if (JSON_FIELDS[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    /* ===================== RAW TEXT ===================== */
+
+    public String toRawText(String[] data) {
+        StringJoiner line = new StringJoiner(",");
+        for (String value : data) line.add(quote(value));
+        return line.toString();
+    }
+
+    public String toRawText(Row row) {
+        // DataFormatter is not thread-safe; rejected rows are rare enough to build one each time
+        DataFormatter formatter = new DataFormatter();
+        int lastCell = Math.max(row.getLastCellNum(), COLUMNS.length);
+
+        StringJoiner line = new StringJoiner(",");
+        for (int c = 0; c < lastCell; c++) {
+            line.add(quote(formatter.formatCellValue(row.getCell(c))));
+        }
+        return line.toString();
+    }
+
+    private String quote(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /* ===================== HELPERS ===================== */
+
+    private String getString(String[] arr, int index) {
+        if (arr.length <= index) return null;
+        String value = arr[index];
+        return value == null || value.trim().isEmpty() ? null : value;
+    }
+
+    private BigDecimal getDecimal(String[] arr, int index) {
+        if (arr.length <= index) return null;
+        return toDecimal(arr[index], index);
+    }
+
+    private String getCellString(Cell cell) {
+        if (cell == null) return null;
+        return cell.getCellType() == CellType.STRING
+                ? cell.getStringCellValue()
+                : String.valueOf(cell.getNumericCellValue());
+    }
+
+    private BigDecimal getCellDecimal(Cell cell, int index) {
+        if (cell == null) return null;
+        if (cell.getCellType() == CellType.NUMERIC) return BigDecimal.valueOf(cell.getNumericCellValue());
+        if (cell.getCellType() == CellType.STRING) return toDecimal(cell.getStringCellValue(), index);
+        return null;
+    }
+
+    private BigDecimal toDecimal(String value, int index) {
+        if (value == null || value.trim().isEmpty()) return null;
+        try {
+            return new BigDecimal(value.trim());
+        } catch (NumberFormatException e) {
+            String shown = value.length() > 100 ? value.substring(0, 100) + "..." : value;
+            throw new InvalidRowException("Invalid number in " + COLUMNS[index] + ": '" + shown + "'");
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.finrating.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Caps how many ingests may hold write-pool connections at once. Callers beyond
+ * the limit wait in FIFO order instead of queuing inside Hikari. Workers wait as
+ * long as it takes; request threads wait at most {@code app.ingestion.slot-timeout}
+ * and are then turned away with 503, so a full bulkhead does not pile up requests.
+ */
+@Component
+public class IngestionBulkhead {
+
+    private final Semaphore permits;
+    private final long slotTimeoutMs;
+    private final Counter rejected;
+
+    public IngestionBulkhead(@Value("${app.ingestion.max-concurrent:2}") int maxConcurrent,
+                             @Value("${app.ingestion.slot-timeout:30000}") long slotTimeoutMs,
+                             MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.slotTimeoutMs = slotTimeoutMs;
+        this.rejected = Counter.builder("ingestion.bulkhead.rejected")
+                .description("Requests turned away after waiting the slot timeout")
+                .register(meterRegistry);
+
+        Gauge.builder("ingestion.bulkhead.available", permits, Semaphore::availablePermits)
+                .description("Free ingestion slots")
+                .register(meterRegistry);
+        Gauge.builder("ingestion.bulkhead.waiting", permits, Semaphore::getQueueLength)
+                .description("Ingests waiting for a slot")
+                .register(meterRegistry);
+    }
+
+    public void run(Runnable ingest) {
+        call(() -> {
+            ingest.run();
+            return null;
+        });
+    }
+
+    public <T> T call(Supplier<T> ingest) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for an ingestion slot", e);
+        }
+
+        return holding(ingest);
+    }
+
+    /** For request threads: like {@link #call}, but gives up after the slot timeout with 503. */
+    public <T> T callOrReject(Supplier<T> ingest) {
+        try {
+            if (!permits.tryAcquire(slotTimeoutMs, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "All ingestion slots are busy; retry later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for an ingestion slot", e);
+        }
+
+        return holding(ingest);
+    }
+
+    private <T> T holding(Supplier<T> ingest) {
+        try {
+            return ingest.get();
+        } finally {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.finrating.service;
+
+import com.finrating.repository.RecordPartitions;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops {@code financial_records} partitions left behind by deleted datasets: a drop
+ * that used up its retries, or one that was only scheduled in memory on a node that
+ * stopped. Runs on workers, shortly after startup and then periodically.
+ */
+@Slf4j
+@Component
+@Profile("!api")
+@RequiredArgsConstructor
+public class PartitionSweeper {
+
+    private final RecordPartitions recordPartitions;
+
+    @Value("${app.partitions.sweep-enabled:true}")
+    private boolean enabled;
+
+    @Scheduled(fixedDelayString = "${app.partitions.sweep-interval:3600000}",
+               initialDelayString = "${app.partitions.sweep-initial-delay:60000}")
+    public void dropOrphanedPartitions() {
+        if (!enabled) return;
+
+        int dropped = recordPartitions.dropOrphans();
+        if (dropped > 0) log.info("Dropped {} partitions of deleted datasets", dropped);
+    }
+}
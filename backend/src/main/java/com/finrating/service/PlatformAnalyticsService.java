@@ -0,0 +1,291 @@
+package com.finrating.service;
+
+import com.finrating.dto.PlatformRatingDistribution;
+import com.finrating.entity.Dataset;
+import com.finrating.entity.FinancialRecord;
+import com.finrating.repository.ColumnarSnapshot;
+import com.finrating.repository.ColumnarSnapshotStore;
+import com.finrating.repository.DatasetRepository;
+import com.finrating.repository.DimensionCache;
+import com.finrating.security.AuthenticatedUser;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.sql.PreparedStatement;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Cross-tenant rating distributions for ADMIN users. The datasets on the platform are
+ * cut into segments of about {@code app.analytics.admin.segment-rows} records, and the
+ * segments are aggregated in parallel on a bounded pool: each from the datasets'
+ * columnar snapshots where current, otherwise with one grouped query on a read
+ * connection of its own. Partial counts are merged as segments finish; segments not
+ * done by the request deadline are reported, not waited for.
+ */
+@Service
+@Profile("!worker")
+@Slf4j
+public class PlatformAnalyticsService {
+
+    public enum GroupBy {
+        INDUSTRY("industry_id", ColumnarSnapshot.Column.INDUSTRY_ID),
+        COUNTRY("country_id", ColumnarSnapshot.Column.COUNTRY_ID);
+
+        private final String column;
+        private final ColumnarSnapshot.Column snapshotColumn;
+
+        GroupBy(String column, ColumnarSnapshot.Column snapshotColumn) {
+            this.column = column;
+            this.snapshotColumn = snapshotColumn;
+        }
+    }
+
+    private static final int RATINGS = FinancialRecord.CreditRating.values().length;
+    private static final String NO_VALUE = "(none)";
+
+    private final DatasetRepository datasetRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ColumnarSnapshotStore snapshotStore;
+    private final DimensionCache dimensionCache;
+    private final TransactionTemplate readOnly;
+    private final ForkJoinPool pool;
+    private final long segmentRows;
+    private final long defaultTimeoutMs;
+    private final long maxTimeoutMs;
+
+    public PlatformAnalyticsService(DatasetRepository datasetRepository,
+                                    JdbcTemplate jdbcTemplate,
+                                    ColumnarSnapshotStore snapshotStore,
+                                    DimensionCache dimensionCache,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${app.analytics.admin.parallelism:0}") int parallelism,
+                                    @Value("${app.datasource.read.pool-size:10}") int readPoolSize,
+                                    @Value("${app.analytics.admin.segment-rows:1000000}") long segmentRows,
+                                    @Value("${app.analytics.admin.timeout:30000}") long defaultTimeoutMs,
+                                    @Value("${app.analytics.admin.max-timeout:300000}") long maxTimeoutMs) {
+        this.datasetRepository = datasetRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshotStore = snapshotStore;
+        this.dimensionCache = dimensionCache;
+        this.segmentRows = segmentRows;
+        this.defaultTimeoutMs = defaultTimeoutMs;
+        this.maxTimeoutMs = maxTimeoutMs;
+
+        // Each running segment may hold a read connection: leave half the pool to the dashboard
+        int threads = parallelism > 0 ? parallelism
+                : Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), readPoolSize / 2));
+        this.pool = new ForkJoinPool(threads);
+
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.readOnly.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        log.info("Admin analytics running {} segments in parallel", threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    public PlatformRatingDistribution ratingDistribution(String groupBy, Long timeoutMs, AuthenticatedUser user) {
+        if (!user.isAdmin()) {
+            throw new RuntimeException("Unauthorized: platform analytics are restricted to administrators");
+        }
+        GroupBy grouping = parseGroupBy(groupBy);
+        long timeout = timeoutMs == null ? defaultTimeoutMs : Math.min(Math.max(timeoutMs, 1), maxTimeoutMs);
+
+        long started = System.nanoTime();
+        long deadline = started + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+        List<List<Dataset>> segments = segment(datasetRepository.findByStatusIn(EnumSet.of(
+                Dataset.ProcessingStatus.COMPLETED,
+                Dataset.ProcessingStatus.COMPLETED_WITH_ERRORS,
+                Dataset.ProcessingStatus.ARCHIVED)));
+
+        List<Future<Partial>> futures = new ArrayList<>(segments.size());
+        for (List<Dataset> segment : segments) {
+            futures.add(pool.submit(() -> scan(segment, grouping, deadline)));
+        }
+
+        /* ===================== MERGE ===================== */
+
+        Partial total = new Partial();
+        int completed = 0;
+        int failed = 0;
+        int timedOut = 0;
+        for (Future<Partial> future : futures) {
+            try {
+                total.merge(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+                completed++;
+            } catch (TimeoutException | CancellationException e) {
+                future.cancel(true);
+                timedOut++;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof CancellationException) {
+                    timedOut++;
+                } else {
+                    failed++;
+                    log.warn("Admin analytics segment failed", e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while aggregating", e);
+            }
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        log.info("Admin rating distribution by {}: {} of {} segments in {} ms ({} failed, {} timed out)",
+                grouping, completed, segments.size(), elapsedMillis, failed, timedOut);
+
+        return PlatformRatingDistribution.builder()
+                .groupBy(grouping.name())
+                .distribution(name(total.counts, grouping))
+                .totalRecords(total.records)
+                .segments(segments.size())
+                .segmentsCompleted(completed)
+                .segmentsFailed(failed)
+                .segmentsTimedOut(timedOut)
+                .complete(completed == segments.size())
+                .datasetsFromSnapshots(total.fromSnapshots)
+                .datasetsSkipped(total.skipped)
+                .elapsedMillis(elapsedMillis)
+                .build();
+    }
+
+    /* ===================== SEGMENTS ===================== */
+
+    /** Consecutive datasets grouped up to the row target; a larger dataset is a segment of its own. */
+    private List<List<Dataset>> segment(List<Dataset> datasets) {
+        List<List<Dataset>> segments = new ArrayList<>();
+        List<Dataset> current = new ArrayList<>();
+        long rows = 0;
+        for (Dataset dataset : datasets) {
+            long count = dataset.getRecordCount() == null ? 0 : dataset.getRecordCount();
+            if (!current.isEmpty() && rows + count > segmentRows) {
+                segments.add(current);
+                current = new ArrayList<>();
+                rows = 0;
+            }
+            current.add(dataset);
+            rows += count;
+        }
+        if (!current.isEmpty()) segments.add(current);
+        return segments;
+    }
+
+    private Partial scan(List<Dataset> segment, GroupBy grouping, long deadline) {
+        // Queued past the deadline: the request has already answered without this segment
+        if (System.nanoTime() > deadline) throw new CancellationException();
+
+        Partial partial = new Partial();
+        List<Long> queried = new ArrayList<>();
+        for (Dataset dataset : segment) {
+            Optional<ColumnarSnapshot> snapshot = snapshotStore.find(dataset);
+            if (snapshot.isPresent()) {
+                partial.add(snapshot.get(), grouping);
+                partial.fromSnapshots++;
+            } else if (dataset.getStatus() == Dataset.ProcessingStatus.ARCHIVED) {
+                partial.skipped++;
+            } else {
+                queried.add(dataset.getId());
+            }
+        }
+        if (!queried.isEmpty()) query(queried, grouping, deadline, partial);
+        return partial;
+    }
+
+    private void query(List<Long> datasetIds, GroupBy grouping, long deadline, Partial partial) {
+        int timeoutSeconds = (int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(deadline - System.nanoTime()));
+
+        readOnly.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT " + grouping.column + ", rating, COUNT(*) FROM financial_records " +
+                    "WHERE dataset_id = ANY (?) GROUP BY " + grouping.column + ", rating");
+            ps.setArray(1, con.createArrayOf("bigint", datasetIds.toArray()));
+            ps.setQueryTimeout(timeoutSeconds);
+            return ps;
+        }, rs -> {
+            String rating = rs.getString(2);
+            if (rating == null) return;
+            partial.add(rs.getInt(1), FinancialRecord.CreditRating.valueOf(rating).ordinal(), rs.getLong(3));
+        }));
+    }
+
+    /* ===================== HELPERS ===================== */
+
+    private Map<String, Map<String, Long>> name(Map<Integer, long[]> counts, GroupBy grouping) {
+        FinancialRecord.CreditRating[] ratings = FinancialRecord.CreditRating.values();
+        Map<String, Map<String, Long>> named = new TreeMap<>();
+        counts.forEach((id, byRating) -> {
+            String group = id == 0 ? NO_VALUE
+                    : grouping == GroupBy.INDUSTRY ? dimensionCache.industryName(id) : dimensionCache.countryName(id);
+            Map<String, Long> distribution = named.computeIfAbsent(group, k -> new LinkedHashMap<>());
+            for (int r = 0; r < byRating.length; r++) {
+                if (byRating[r] > 0) distribution.merge(ratings[r].name(), byRating[r], Long::sum);
+            }
+        });
+        return named;
+    }
+
+    private static GroupBy parseGroupBy(String groupBy) {
+        try {
+            return GroupBy.valueOf(groupBy.trim().toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("groupBy must be one of " + Arrays.toString(GroupBy.values()));
+        }
+    }
+
+    /** Record counts per dimension id (0 for none) and rating ordinal. */
+    private static final class Partial {
+
+        private final Map<Integer, long[]> counts = new HashMap<>();
+        private long records;
+        private int fromSnapshots;
+        private int skipped;
+
+        void add(int groupId, int rating, long count) {
+            counts.computeIfAbsent(groupId, k -> new long[RATINGS])[rating] += count;
+            records += count;
+        }
+
+        void add(ColumnarSnapshot snapshot, GroupBy grouping) {
+            ByteBuffer ratings = snapshot.bytes(ColumnarSnapshot.Column.RATING);
+            IntBuffer groups = snapshot.ints(grouping.snapshotColumn);
+            int lastGroup = -1;
+            long[] lastCounts = null;
+            for (int i = 0, n = snapshot.rowCount(); i < n; i++) {
+                byte rating = ratings.get(i);
+                if (rating < 0) continue;
+                int group = groups.get(i);
+                // Rows of a dataset tend to repeat the same industry or country in runs
+                if (group != lastGroup) {
+                    lastCounts = counts.computeIfAbsent(group, k -> new long[RATINGS]);
+                    lastGroup = group;
+                }
+                lastCounts[rating]++;
+                records++;
+            }
+        }
+
+        void merge(Partial other) {
+            other.counts.forEach((group, byRating) -> {
+                long[] mine = counts.computeIfAbsent(group, k -> new long[RATINGS]);
+                for (int r = 0; r < RATINGS; r++) mine[r] += byRating[r];
+            });
+            records += other.records;
+            fromSnapshots += other.fromSnapshots;
+            skipped += other.skipped;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.finrating.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.finrating.entity.Dataset;
+import com.finrating.entity.FinancialRecord;
+import com.finrating.entity.RejectedRow;
+import com.finrating.metrics.IngestionMetrics;
+import com.finrating.repository.DatasetRepository;
+import com.finrating.repository.FinancialRecordBulkWriter;
+import com.finrating.repository.RecordPartitions;
+import com.finrating.repository.RejectedRowRepository;
+import com.finrating.repository.UserRepository;
+import com.finrating.security.AuthenticatedUser;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Direct record ingestion from an NDJSON request body, skipping Kafka and the
+ * worker. The body is first spooled to a temporary file in the upload directory,
+ * so a slow or stalled client holds neither an ingestion slot nor a connection
+ * while it sends; the file is then parsed token by token and written in JDBC
+ * batches on the request thread.
+ * <p>
+ * Each request is one transaction: it either lands completely or not at all.
+ * Malformed records are quarantined against the same error budget as file
+ * ingestion. An append numbers its quarantined records after the dataset's
+ * existing rejected rows, so row numbers stay unique per dataset for resubmission.
+ * The owner's alert rules are tested on each record as it is rated, as on upload.
+ */
+@Service
+@Profile("!worker")
+@RequiredArgsConstructor
+@Slf4j
+public class RecordStreamService {
+
+    private static final String FILE_TYPE = "ndjson";
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    private final DatasetRepository datasetRepository;
+    private final UserRepository userRepository;
+    private final RejectedRowRepository rejectedRowRepository;
+    private final FinancialRecordBulkWriter bulkWriter;
+    private final RecordPartitions recordPartitions;
+    private final FinancialRecordParser recordParser;
+    private final RatingService ratingService;
+    private final AlertRuleEngine alertRuleEngine;
+    private final IngestionMetrics ingestionMetrics;
+    private final IngestionBulkhead ingestionBulkhead;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.ingestion.stream.batch-size:2000}")
+    private int batchSize;
+
+    @Value("${app.ingestion.stream.max-size:524288000}")
+    private long maxStreamSize;
+
+    @Value("${app.upload.dir:uploads}")
+    private String uploadDirectory;
+
+    @Value("${app.ingestion.error-budget.max-rows:1000}")
+    private int maxRejectedRows;
+
+    @Value("${app.ingestion.error-budget.max-ratio:0.1}")
+    private double maxRejectedRatio;
+
+    /** @param contentLength request body size, or -1 when sent chunked; only used for metric tags */
+    public Dataset ingestIntoNewDataset(String name, InputStream body, long contentLength, AuthenticatedUser user) {
+        return withSpooledBody(body, spooled -> ingestionBulkhead.callOrReject(() -> transactionTemplate.execute(status -> {
+            Dataset dataset = datasetRepository.save(Dataset.builder()
+                    .name(name)
+                    .fileName(name)
+                    .fileType(FILE_TYPE)
+                    .fileSize(Math.max(contentLength, 0))
+                    .user(userRepository.getReferenceById(user.getId()))
+                    .status(Dataset.ProcessingStatus.PROCESSING)
+                    .recordCount(0)
+                    .build());
+            // Committed on its own; left empty if this ingest rolls back
+            recordPartitions.ensurePartition(dataset.getId());
+            return ingest(dataset, spooled, true);
+        })));
+    }
+
+    /** Appends to an existing dataset that is not currently being ingested. */
+    public Dataset ingestIntoDataset(Long id, InputStream body, AuthenticatedUser user) {
+        return withSpooledBody(body, spooled -> ingestionBulkhead.callOrReject(() -> transactionTemplate.execute(status -> {
+            Dataset dataset = datasetRepository.findByIdForUpdate(id)
+                    .orElseThrow(() -> new RuntimeException("Dataset not found with ID: " + id));
+            if (!dataset.getUser().getId().equals(user.getId())) {
+                throw new RuntimeException("Unauthorized: You do not have access to this dataset");
+            }
+            if (dataset.getStatus() == Dataset.ProcessingStatus.PENDING
+                    || dataset.getStatus() == Dataset.ProcessingStatus.PROCESSING) {
+                throw new IllegalArgumentException("Dataset " + id + " is still being ingested");
+            }
+            if (dataset.getStatus() == Dataset.ProcessingStatus.ARCHIVED) {
+                // Rehydrating needs the row lock held here; a read of the dataset brings it back first
+                throw new IllegalArgumentException("Dataset " + id + " is archived; view it to restore it before appending");
+            }
+            recordPartitions.ensurePartition(id);
+            return ingest(dataset, spooled, false);
+        })));
+    }
+
+    /* ===================== SPOOL ===================== */
+
+    /** Receives the whole body into a temporary file, hands it to {@code ingest}, then deletes it. */
+    private <T> T withSpooledBody(InputStream body, Function<Path, T> ingest) {
+        Path spooled = null;
+        try {
+            Path dir = Paths.get(uploadDirectory);
+            if (!Files.exists(dir)) Files.createDirectories(dir);
+            spooled = Files.createTempFile(dir, "stream-", "." + FILE_TYPE);
+
+            try (OutputStream out = Files.newOutputStream(spooled)) {
+                byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+                long received = 0;
+                for (int n = body.read(buffer); n != -1; n = body.read(buffer)) {
+                    received += n;
+                    if (received > maxStreamSize) {
+                        throw new IllegalArgumentException(String.format(
+                                "Stream exceeds maximum allowed size of %d MB", maxStreamSize / (1024 * 1024)));
+                    }
+                    out.write(buffer, 0, n);
+                }
+            }
+        } catch (IOException e) {
+            deleteSpooled(spooled);
+            throw new UncheckedIOException("Failed to receive record stream", e);
+        } catch (RuntimeException e) {
+            deleteSpooled(spooled);
+            throw e;
+        }
+
+        try {
+            return ingest.apply(spooled);
+        } finally {
+            deleteSpooled(spooled);
+        }
+    }
+
+    private void deleteSpooled(Path spooled) {
+        if (spooled == null) return;
+        try {
+            Files.deleteIfExists(spooled);
+        } catch (IOException e) {
+            log.warn("Could not delete spooled stream {}: {}", spooled, e.getMessage());
+        }
+    }
+
+    /* ===================== INGEST ===================== */
+
+    private Dataset ingest(Dataset dataset, Path body, boolean newDataset) {
+        IngestionMetrics.Tracker tracker = ingestionMetrics.track(dataset);
+        AlertRuleEngine.Matcher alerts = alertRuleEngine.compile(dataset);
+        List<FinancialRecord> batch = new ArrayList<>(batchSize);
+        List<RejectedRow> rejected = new ArrayList<>();
+        long rowNumber = 0;
+        long firstRow = newDataset ? 0 : rejectedRowRepository.findMaxRowNumber(dataset.getId());
+        int accepted = 0;
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(body), STREAM_BUFFER_SIZE);
+             JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            while (true) {
+                FinancialRecord record;
+                try {
+                    record = recordParser.parseRecordFromJson(parser, dataset);
+                } catch (FinancialRecordParser.InvalidRowException e) {
+                    rowNumber++;
+                    rejected.add(RejectedRow.builder()
+                            .dataset(dataset)
+                            .rowNumber(firstRow + rowNumber)
+                            .rawText(e.getRawText())
+                            .reason(e.getMessage())
+                            .build());
+                    if (rejected.size() > maxRejectedRows) {
+                        throw new IllegalArgumentException("Error budget exceeded: more than " + maxRejectedRows
+                                + " rejected records, last at record " + rowNumber + " (" + e.getMessage() + ")");
+                    }
+                    continue;
+                }
+                if (record == null) break;
+
+                rowNumber++;
+                tracker.rate(() -> ratingService.calculateRating(record));
+                alerts.evaluate(record);
+                record.setCalculatedAt(LocalDateTime.now());
+                batch.add(record);
+                accepted++;
+
+                if (batch.size() == batchSize) {
+                    tracker.flush(() -> bulkWriter.insertReturningIds(batch));
+                    alerts.flush();
+                    batch.clear();
+                }
+            }
+
+            if (!batch.isEmpty()) tracker.flush(() -> bulkWriter.insertReturningIds(batch));
+            alerts.finish();
+            if (newDataset) dataset.setFileSize(parser.currentLocation().getByteOffset());
+
+        } catch (IOException e) {
+            tracker.failed();
+            throw new UncheckedIOException("Failed to read record stream at record " + (rowNumber + 1), e);
+        }
+
+        if (!rejected.isEmpty() && rejected.size() / (double) rowNumber > maxRejectedRatio) {
+            tracker.failed();
+            throw new IllegalArgumentException(String.format(
+                    "Error budget exceeded: %d of %d records rejected", rejected.size(), rowNumber));
+        }
+        rejectedRowRepository.saveAll(rejected);
+
+        int previousRejected = dataset.getRejectedCount() == null ? 0 : dataset.getRejectedCount();
+        dataset.setRecordCount((dataset.getRecordCount() == null ? 0 : dataset.getRecordCount()) + accepted);
+        dataset.setRejectedCount(previousRejected + rejected.size());
+        dataset.setStatus(previousRejected + rejected.size() > 0
+                ? Dataset.ProcessingStatus.COMPLETED_WITH_ERRORS
+                : Dataset.ProcessingStatus.COMPLETED);
+        dataset.setProcessedAt(LocalDateTime.now());
+        // Upload-to-processed time means nothing for an append to an old dataset
+        if (newDataset) tracker.completed(dataset);
+
+        log.info("Streamed {} records into dataset {} ({} rejected)", accepted, dataset.getId(), rejected.size());
+        return datasetRepository.save(dataset);
+    }
+}
@@ -0,0 +1,43 @@
+-- Runs before Hibernate's schema update (spring.sql.init.platform=postgresql).
+-- financial_records is list-partitioned by dataset_id, one partition per dataset,
+-- created by RecordPartitions when the dataset's first ingest starts. Hibernate
+-- cannot create a partitioned table, so the parent is declared here and Hibernate
+-- only adds later columns and the (dataset_id, record_key) unique key to it.
+-- A table created before partitioning is left as it is: see README, Record Partitions.
+CREATE TABLE IF NOT EXISTS financial_records (
+    id bigserial NOT NULL,
+    dataset_id bigint NOT NULL,
+    issuer_id integer,
+    industry_id integer,
+    country_id integer,
+    revenue numeric(38,2),
+    ebitda numeric(38,2),
+    total_debt numeric(38,2),
+    interest_expense numeric(38,2),
+    current_assets numeric(38,2),
+    current_liabilities numeric(38,2),
+    debt_to_ebitda numeric(38,2),
+    interest_coverage_ratio numeric(38,2),
+    liquidity_coverage_ratio numeric(38,2),
+    revenue_stability_score numeric(38,2),
+    rating varchar(255),
+    category varchar(255),
+    calculated_at timestamp(6),
+    record_key varchar(512),
+    content_hash bigint,
+    -- Keys on a partitioned table must include the partition column
+    PRIMARY KEY (id, dataset_id)
+) PARTITION BY LIST (dataset_id);
+
+-- Covering indexes for top-N rankings by ratio (RecordRanking): read in (value, id)
+-- order per partition with everything a ranking returns, so the top N come from an
+-- index-only scan that stops after N rows. Built on the parent, they cascade to every
+-- partition, including ones created later.
+CREATE INDEX IF NOT EXISTS financial_records_rank_debt_to_ebitda
+    ON financial_records (debt_to_ebitda, id) INCLUDE (dataset_id, issuer_id, industry_id, country_id, rating);
+CREATE INDEX IF NOT EXISTS financial_records_rank_interest_coverage_ratio
+    ON financial_records (interest_coverage_ratio, id) INCLUDE (dataset_id, issuer_id, industry_id, country_id, rating);
+CREATE INDEX IF NOT EXISTS financial_records_rank_liquidity_coverage_ratio
+    ON financial_records (liquidity_coverage_ratio, id) INCLUDE (dataset_id, issuer_id, industry_id, country_id, rating);
+CREATE INDEX IF NOT EXISTS financial_records_rank_revenue_stability_score
+    ON financial_records (revenue_stability_score, id) INCLUDE (dataset_id, issuer_id, industry_id, country_id, rating);
@@ -1,10 +1,10 @@
-import { Component, OnInit, ChangeDetectorRef } from '@angular/core';
+import { Component, OnInit, OnDestroy, ChangeDetectorRef } from '@angular/core';
 import { CommonModule } from '@angular/common';
 import { FormsModule } from '@angular/forms';
 import { Router } from '@angular/router';
 import { AuthService } from '../../services/auth.service';
 import { DashboardService } from '../../services/dashboard.service';
-import { FinancialRecord, FilterRequest } from '../../models/financial-record.model';
+import { FinancialRecord, FilterRequest, RecordsPage } from '../../models/financial-record.model';
 
 @Component({
   selector: 'app-dashboard',
@@ -13,15 +13,20 @@ import { FinancialRecord, FilterRequest } from '../../models/financial-record.mo
   templateUrl: './dashboard.component.html',
   styleUrl: './dashboard.component.css'
 })
-export class DashboardComponent implements OnInit {
+export class DashboardComponent implements OnInit, OnDestroy {
 
   records: FinancialRecord[] = [];
   totalRecords = 0;
   currentPage = 0;
   pageSize = 20;
   searchKeyword = '';
+  pendingDatasetIds: number[] = [];
   Math = Math;
 
+  private restorePollMs = 3000;
+  private restoreTimer?: ReturnType<typeof setTimeout>;
+  private destroyed = false;
+
   constructor(
       public authService: AuthService,
       private dashboardService: DashboardService,
@@ -33,14 +38,17 @@ export class DashboardComponent implements OnInit {
     this.loadRecords();
   }
 
+  ngOnDestroy(): void {
+    this.destroyed = true;
+    clearTimeout(this.restoreTimer);
+  }
+
   // ---------------- LOAD RECORDS ----------------
   loadRecords(): void {
     this.dashboardService.getRecords(this.currentPage, this.pageSize).subscribe({
-      next: (response: any) => {
-        console.log('Records loaded:', response); // Keep this for debugging
-        this.records = response.content ?? [];
-        this.totalRecords = response.totalElements ?? 0;
-        this.cdr.detectChanges();  // ✅ TRIGGER CHANGE DETECTION
+      next: (page: RecordsPage) => {
+        console.log('Records loaded:', page); // Keep this for debugging
+        this.showPage(page, () => this.loadRecords());
       },
       error: (err) => {
         console.error('Error loading records', err);
@@ -60,12 +68,10 @@ export class DashboardComponent implements OnInit {
     };
 
     this.dashboardService.filterRecords(filterRequest).subscribe({
-      next: (response: any) => {
-        console.log('Filtered records:', response); // Keep this for debugging
-        this.records = response.content ?? [];
-        this.totalRecords = response.totalElements ?? 0;
+      next: (page: RecordsPage) => {
+        console.log('Filtered records:', page); // Keep this for debugging
         this.currentPage = 0;
-        this.cdr.detectChanges();  // ✅ TRIGGER CHANGE DETECTION
+        this.showPage(page, () => this.search());
       },
       error: (err) => {
         console.error('Error filtering records', err);
@@ -74,6 +80,18 @@ export class DashboardComponent implements OnInit {
     });
   }
 
+  // Archived datasets come back in the background; ask again until none are left out
+  private showPage(page: RecordsPage, reload: () => void): void {
+    this.records = page.records;
+    this.totalRecords = page.totalRecords;
+    this.pendingDatasetIds = page.pendingDatasetIds;
+    clearTimeout(this.restoreTimer);
+    if (this.pendingDatasetIds.length > 0 && !this.destroyed) {
+      this.restoreTimer = setTimeout(reload, this.restorePollMs);
+    }
+    this.cdr.detectChanges();  // ✅ TRIGGER CHANGE DETECTION
+  }
+
   // ---------------- PAGINATION ----------------
   nextPage(): void {
     if ((this.currentPage + 1) * this.pageSize < this.totalRecords) {
@@ -64,7 +64,7 @@ export class HomeComponent implements OnInit {
         console.log('DATASETS FROM API:', datasets);
 
         this.recentDatasets = datasets
-            .filter(d => d.status === 'COMPLETED')
+            .filter(d => d.status === 'COMPLETED' || d.status === 'COMPLETED_WITH_ERRORS')
             .slice(0, 5);
 
         this.datasetsLoaded = true;
@@ -88,11 +88,12 @@ export class HomeComponent implements OnInit {
       'application/vnd.openxmlformats-officedocument.spreadsheetml.sheet'
     ];
 
-    const validExtensions = ['.csv', '.xls', '.xlsx'];
+    // .gz / .zst must wrap a CSV (name.csv.gz); the backend checks the full extension
+    const validExtensions = ['.csv', '.xls', '.xlsx', '.gz', '.zst', '.zip'];
     const fileExtension = file.name.substring(file.name.lastIndexOf('.')).toLowerCase();
 
     if (!validTypes.includes(file.type) && !validExtensions.includes(fileExtension)) {
-      this.uploadMessage = 'Invalid file type. Please upload CSV or Excel files only.';
+      this.uploadMessage = 'Invalid file type. Please upload CSV (optionally gzip, zstd or zip compressed) or Excel files only.';
       this.uploadError = true;
       this.selectedFile = null;
       event.target.value = '';
@@ -8,10 +8,13 @@ export interface Dataset {
   fileType: string;
   fileSize: number;
 
-  status: 'PENDING' | 'PROCESSING' | 'COMPLETED' | 'FAILED';
+  status: 'PENDING' | 'PROCESSING' | 'COMPLETED' | 'COMPLETED_WITH_ERRORS' | 'FAILED';
 
   recordCount?: number | null;
 
+  // Rows quarantined during ingestion (COMPLETED_WITH_ERRORS)
+  rejectedCount?: number | null;
+
   // Spring Boot LocalDateTime → array format
   uploadedAt: number[];
 
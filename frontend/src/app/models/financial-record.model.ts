@@ -17,6 +17,13 @@
   calculatedAt?: string;
 }
 
+export interface RecordsPage {
+  records: FinancialRecord[];
+  totalRecords: number;
+  // Archived datasets the page leaves out while the backend restores them (X-Datasets-Pending)
+  pendingDatasetIds: number[];
+}
+
 export interface DashboardSummary {
   totalRecords: number;
   ratingDistribution: { [key: string]: number };
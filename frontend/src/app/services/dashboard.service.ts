@@ -1,11 +1,12 @@
 import { Injectable } from '@angular/core';
-import { HttpClient, HttpParams } from '@angular/common/http';
-import { Observable } from 'rxjs';
-import { DashboardSummary, FilterRequest } from '../models/financial-record.model';
+import { HttpClient, HttpParams, HttpResponse } from '@angular/common/http';
+import { Observable, map } from 'rxjs';
+import { DashboardSummary, FilterRequest, RecordsPage } from '../models/financial-record.model';
 
 @Injectable({ providedIn: 'root' })
 export class DashboardService {
   private apiUrl = '/api/dashboard';
+  private pendingHeader = 'X-Datasets-Pending';
 
   constructor(private http: HttpClient) {}
 
@@ -13,14 +14,25 @@ export class DashboardService {
     return this.http.get<DashboardSummary>(`${this.apiUrl}/summary`);
   }
 
-  getRecords(page: number = 0, size: number = 20): Observable<any> {
+  getRecords(page: number = 0, size: number = 20): Observable<RecordsPage> {
     const params = new HttpParams()
       .set('page', page.toString())
       .set('size', size.toString());
-    return this.http.get(`${this.apiUrl}/records`, { params });
+    return this.http.get<any>(`${this.apiUrl}/records`, { params, observe: 'response' })
+      .pipe(map(response => this.toRecordsPage(response)));
   }
 
-  filterRecords(filterRequest: FilterRequest): Observable<any> {
-    return this.http.post(`${this.apiUrl}/filter`, filterRequest);
+  filterRecords(filterRequest: FilterRequest): Observable<RecordsPage> {
+    return this.http.post<any>(`${this.apiUrl}/filter`, filterRequest, { observe: 'response' })
+      .pipe(map(response => this.toRecordsPage(response)));
+  }
+
+  private toRecordsPage(response: HttpResponse<any>): RecordsPage {
+    const pending = response.headers.get(this.pendingHeader);
+    return {
+      records: response.body?.content ?? [],
+      totalRecords: response.body?.totalElements ?? 0,
+      pendingDatasetIds: pending ? pending.split(',').map(Number) : []
+    };
   }
 }